@@ -26,8 +26,10 @@ public class CorsConfig {
     private static final String ALLOWED_ORIGIN = "*";
 
     private static final String ALLOWED_METHODS = "GET, PUT, POST, DELETE, OPTIONS, PATCH";
-    private static final String ALLOWED_HEADERS = "DNT,X-CustomHeader,Keep-Alive,User-Agent,X-Requested-With,If-Modified-Since,Cache-Control,Content-Type,Authorization";
+    private static final String ALLOWED_HEADERS = "DNT,X-CustomHeader,Keep-Alive,User-Agent,X-Requested-With,If-Modified-Since,If-None-Match,If-Match,Cache-Control,Content-Type,Authorization";
     private static final String MAX_AGE = "36000";
+    // Cabeceras de respuesta que el navegador deja leer al JS (p. ej. el cursor de paginación de tareas)
+    private static final String EXPOSED_HEADERS = "X-Next-Cursor, ETag";
 
     @Bean
     public WebFilter corsFilter() {
@@ -40,6 +42,7 @@ public class CorsConfig {
                 headers.add("Access-Control-Allow-Methods", ALLOWED_METHODS);
                 headers.add("Access-Control-Max-Age", MAX_AGE);
                 headers.add("Access-Control-Allow-Headers",ALLOWED_HEADERS);
+                headers.add("Access-Control-Expose-Headers", EXPOSED_HEADERS);
                 if (request.getMethod() == HttpMethod.OPTIONS) {
                     response.setStatusCode(HttpStatus.OK);
                     return Mono.empty();
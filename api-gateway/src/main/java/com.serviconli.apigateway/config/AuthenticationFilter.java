@@ -10,8 +10,10 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Mono;
 
+import java.net.URI;
 import java.security.Key;
 import java.util.List;
 import org.slf4j.Logger; // Importar Logger
@@ -34,6 +36,12 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
             "/auth/login"
     );
 
+    // EventSource (SSE) no permite enviar cabeceras: en estas rutas el token puede ir en ?access_token=
+    private static final List<String> SSE_ROUTES = List.of(
+            "/api/v1/tareas/eventos"
+    );
+    private static final String TOKEN_PARAM = "access_token";
+
     @Override
     public GatewayFilter apply(Config config) {
         return (exchange, chain) -> {
@@ -45,13 +53,20 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
             }
 
             String authHeader = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+            String queryToken = SSE_ROUTES.contains(path)
+                    ? exchange.getRequest().getQueryParams().getFirst(TOKEN_PARAM)
+                    : null;
 
-            if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            String token;
+            if (authHeader != null && authHeader.startsWith("Bearer ")) {
+                token = authHeader.substring(7);
+            } else if (queryToken != null && !queryToken.isBlank()) {
+                token = queryToken;
+            } else {
                 logger.warn("Solicitud a ruta protegida sin token Bearer válido: {}", path); // Log aquí
                 return onError(exchange, HttpStatus.UNAUTHORIZED);
             }
 
-            String token = authHeader.substring(7);
             try {
                 byte[] keyBytes = secret.getBytes();
                 Key key = Keys.hmacShaKeyFor(keyBytes);
@@ -62,6 +77,14 @@ public class AuthenticationFilter extends AbstractGatewayFilterFactory<Authentic
                 return onError(exchange, HttpStatus.UNAUTHORIZED);
             }
 
+            if (queryToken != null) {
+                // El token no sigue hacia el servicio: se quita de la URL reenviada
+                URI sinToken = UriComponentsBuilder.fromUri(exchange.getRequest().getURI())
+                        .replaceQueryParam(TOKEN_PARAM)
+                        .build(true)
+                        .toUri();
+                return chain.filter(exchange.mutate().request(r -> r.uri(sinToken)).build());
+            }
             return chain.filter(exchange);
         };
     }
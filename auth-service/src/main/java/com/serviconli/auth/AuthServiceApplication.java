@@ -2,8 +2,10 @@ package com.serviconli.auth;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableAsync;
 
 @SpringBootApplication
+@EnableAsync // Con spring.threads.virtual.enabled=true, los @Async también corren en hilos virtuales
 public class AuthServiceApplication {
 
     public static void main(String[] args) {
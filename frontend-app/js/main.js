@@ -185,17 +185,18 @@ async function updateStatistics() {
             fetch('http://localhost:8080/api/v1/pacientes', {
                 headers: { Authorization: `Bearer ${token}` }
             }),
-            fetch('http://localhost:8080/api/v1/tareas', {
+            // Solo los conteos: el servidor los mantiene en memoria, no hace falta bajar las tareas
+            fetch('http://localhost:8080/api/v1/tareas/stats', {
                 headers: { Authorization: `Bearer ${token}` }
             })
         ]);
 
         const clients = await clientsRes.json();
-        const tasks = await tasksRes.json();
+        const taskStats = await tasksRes.json();
 
         const stats = {
             activeClients: clients.length,
-            pendingTasks: tasks.filter(t => t.estado === 'PENDIENTE').length
+            pendingTasks: taskStats.porEstado?.PENDIENTE || 0
         };
 
         animateNumber('.stat-card:nth-child(1) .stat-number', stats.activeClients);
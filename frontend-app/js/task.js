@@ -3,6 +3,7 @@ const TASK_API_URL = "http://localhost:8080/api/v1/tareas";
 const PATIENT_API_URL = "http://localhost:8080/api/v1/patients";
 
 let tasks = [];
+let nextTaskCursor = null; // X-Next-Cursor de la última página cargada; null si no hay más
 let editingTaskId = null;
 
 const STATE_PROGRESSION = {
@@ -60,22 +61,58 @@ function populateEpsSelects() {
 }
 
 // ==================== TASKS ====================
-async function loadTasks() {
+// El listado viene paginado: al cargar se pide solo la primera página, y las siguientes (X-Next-Cursor)
+// cuando el usuario pulsa "Cargar más" o exporta el reporte
+async function fetchTaskPage(cursor) {
+    const url = new URL(TASK_API_URL);
+    if (cursor) url.searchParams.set("cursor", cursor);
+    const response = await fetch(url, { headers: getAuthHeaders() });
+    if (!response.ok) {
+        if (response.status === 401 || response.status === 403) logout();
+        throw new Error("Error al cargar las tareas");
+    }
+    return { items: await response.json(), nextCursor: response.headers.get("X-Next-Cursor") };
+}
+
+async function loadFirstTaskPage() {
+    const { items, nextCursor } = await fetchTaskPage(null);
+    tasks = items;
+    nextTaskCursor = nextCursor;
+    populateEspecialidadFilter();
+    updateLoadMoreButton();
+}
+
+// Una tarea que ya llegó por /eventos no se duplica: la del evento es más reciente que la de la página
+async function appendNextTaskPage() {
+    const { items, nextCursor } = await fetchTaskPage(nextTaskCursor);
+    const known = new Set(tasks.map(t => t.id));
+    tasks.push(...items.filter(t => !known.has(t.id)));
+    nextTaskCursor = nextCursor;
+}
+
+async function loadMoreTasks() {
+    if (!nextTaskCursor) return;
+    const button = document.getElementById("loadMoreTasks");
+    if (button) button.disabled = true;
     try {
-        const response = await fetch(TASK_API_URL, { headers: getAuthHeaders() });
-        if (!response.ok) {
-            if (response.status === 401 || response.status === 403) logout();
-            throw new Error("Error al cargar las tareas");
-        }
-        tasks = await response.json();
+        await appendNextTaskPage();
         populateEspecialidadFilter();
         renderTasks();
     } catch (error) {
-        showNotification("Error al cargar tareas. Inicie sesión de nuevo.", "error");
+        showNotification("Error al cargar más tareas", "error");
         console.error("Error:", error);
+    } finally {
+        updateLoadMoreButton();
     }
 }
 
+function updateLoadMoreButton() {
+    const button = document.getElementById("loadMoreTasks");
+    if (!button) return;
+    button.style.display = nextTaskCursor ? "" : "none";
+    button.disabled = false;
+}
+
 function renderTasks() {
     const states = ["PENDIENTE", "EN_PROGRESO", "CITA_CONFIRMADA", "ENVIADA", "COMPLETADA"];
     states.forEach(state => {
@@ -148,43 +185,32 @@ async function updateTaskState(taskId, newState) {
         const task = tasks.find(t => t.id === taskId);
         if (!task) throw new Error("Tarea no encontrada en memoria");
 
-        const payload = {
-            pacienteNumeroIdentificacion: task.paciente?.numeroIdentificacion,
-            tipoCita: task.tipoCita,
-            prioridad: task.prioridad,
-            estado: newState,
-            especialidad: task.especialidad,
-            autorizacion: task.autorizacion,
-            orden: task.orden,
-            radicado: task.radicado,
-            especificaciones: task.especificaciones,
-            observacion: task.observacion,
-            fechaSolicitudServiconli: task.fechaSolicitudServiconli,
-            fechaCita: task.fechaCita,
-            horaCita: task.horaCita, // ✅ corregido
-            doctor: task.doctor,
-            direccionCita: task.direccionCita,
-            lugarCita: task.lugarCita,
-            informacionCita: task.informacionCita,
-            confirmacionCita: task.confirmacionCita,
-            eps: task.paciente?.eps
-        };
-
+        // Solo cambia el estado: PATCH con JSON Merge Patch, condicionado a la versión que se está viendo
         const response = await fetch(`${TASK_API_URL}/${taskId}`, {
-            method: "PUT",
-            headers: getAuthHeaders(),
-            body: JSON.stringify(payload)
+            method: "PATCH",
+            headers: { ...getAuthHeaders(), "Content-Type": "application/merge-patch+json", "If-Match": taskETag(task) },
+            body: JSON.stringify({ estado: newState })
         });
 
+        if (response.status === 412) {
+            showNotification("Otro usuario modificó la tarea; se muestra la versión actual", "error");
+            return;
+        }
         if (!response.ok) throw new Error("Error al actualizar la tarea");
         showNotification(`Tarea actualizada a ${newState.replace("_", " ")}`, "success");
-        loadTasks();
+        applyTaskEvent({ tipo: "ACTUALIZADA", tareaId: taskId, tarea: await response.json() });
     } catch (error) {
         showNotification("Error al actualizar la tarea", "error");
         console.error("Error:", error);
     }
 }
 
+// Mismo formato que TaskETag en task-service: "<version>-<fechaActualizacion en segundos, hex>"
+function taskETag(task) {
+    const segundos = Math.floor(Date.parse(task.fechaActualizacion + "Z") / 1000);
+    return `"${task.version}-${segundos.toString(16)}"`;
+}
+
 function enableManualPatientEntry() {
     // --- Desbloquear todos los campos ---
     document.getElementById("tipoIdentificacionPaciente").disabled = false;
@@ -271,7 +297,7 @@ async function deleteTask(taskId) {
         const res = await fetch(`${TASK_API_URL}/${taskId}`, { method: "DELETE", headers: getAuthHeaders() });
         if (!res.ok) throw new Error("Error al eliminar la tarea");
         showNotification("Tarea eliminada", "success");
-        loadTasks();
+        applyTaskEvent({ tipo: "ELIMINADA", tareaId: taskId });
     } catch (err) {
         console.error(err);
         showNotification("Error al eliminar la tarea", "error");
@@ -406,6 +432,8 @@ async function saveTask(event) {
             lugarCita: (document.getElementById("lugarCita")?.value || "").trim() || null,
             informacionCita: (document.getElementById("informacionCita")?.value || "").trim() || null,
             confirmacionCita: (document.getElementById("confirmacionCita")?.value || "").trim() || null,
+            // El formulario no tiene recordatorio: al editar se conserva el que ya tenía la tarea
+            fechaRecordatorio: isEditing ? (tasks.find(t => t.id === editingTaskId)?.fechaRecordatorio || null) : null,
             eps: document.getElementById("eps")?.value || null
         };
 
@@ -424,9 +452,10 @@ async function saveTask(event) {
             throw new Error(err.message || "Error al guardar la tarea");
         }
 
+        const savedTask = await resTask.json();
         showNotification(isEditing ? "Tarea actualizada correctamente" : "Tarea creada correctamente", "success");
         closeModal();
-        loadTasks();
+        applyTaskEvent({ tipo: isEditing ? "ACTUALIZADA" : "CREADA", tareaId: savedTask.id, tarea: savedTask });
 
     } catch (err) {
         console.error("Error al guardar tarea:", err);
@@ -606,7 +635,19 @@ function sendWhatsApp(taskId) {
 
 
 // ==================== EXPORT REPORT ====================
-function exportReport() {
+// El reporte lleva todas las tareas: antes se cargan las páginas que falten
+async function exportReport() {
+    try {
+        while (nextTaskCursor) await appendNextTaskPage();
+    } catch (error) {
+        showNotification("Error al cargar las tareas del reporte", "error");
+        console.error("Error:", error);
+        return;
+    } finally {
+        updateLoadMoreButton();
+    }
+    renderTasks();
+
     if (!tasks || tasks.length === 0) {
         showNotification("No hay tareas para exportar", "error");
         return;
@@ -724,19 +765,28 @@ function renderFilteredTasks(filteredTasks) {
 
 // ==================== RECORDATORIOS INTERNOS ====================
 
-function updateReminderBanner() {
-    if (!tasks || tasks.length === 0) {
-        document.getElementById("reminderBanner").style.display = "none";
+// Los conteos salen de /tareas/stats (contadores en memoria del servidor), no de la lista de tareas
+async function updateReminderBanner() {
+    const banner = document.getElementById("reminderBanner");
+    let stats;
+    try {
+        const response = await fetch(`${TASK_API_URL}/stats`, { headers: getAuthHeaders() });
+        if (!response.ok) throw new Error("Error al cargar estadísticas");
+        stats = await response.json();
+    } catch (error) {
+        console.error("Error:", error);
         return;
     }
 
-    const pendientes = tasks.filter(t => t.estado === "PENDIENTE").length;
-    const enProgreso = tasks.filter(t => t.estado === "EN_PROGRESO").length;
+    const pendientes = stats.porEstado?.PENDIENTE || 0;
+    const enProgreso = stats.porEstado?.EN_PROGRESO || 0;
+    const vencidos = stats.recordatoriosVencidos || 0;
 
-    const banner = document.getElementById("reminderBanner");
-    if (pendientes > 0 || enProgreso > 0) {
+    if (pendientes > 0 || enProgreso > 0 || vencidos > 0) {
         banner.style.display = "block";
-        banner.textContent = `📌 Tienes ${pendientes} tareas pendientes y ${enProgreso} en progreso`;
+        banner.textContent = `📌 Tienes ${pendientes} tareas pendientes y ${enProgreso} en progreso`
+            + (stats.citasHoy > 0 ? ` · ${stats.citasHoy} citas hoy` : "")
+            + (vencidos > 0 ? ` · ${vencidos} recordatorios vencidos` : "");
 
         // 🔊 reproducir sonido cada vez que se muestre el recordatorio
         const audio = document.getElementById("reminderSound");
@@ -754,17 +804,13 @@ function updateReminderBanner() {
     }
 }
 
-// Llamar cada vez que se carguen las tareas
+// La primera página se carga una sola vez; después llegan solo los cambios por /eventos
 async function loadTasks() {
     try {
-        const response = await fetch(TASK_API_URL, { headers: getAuthHeaders() });
-        if (!response.ok) {
-            if (response.status === 401 || response.status === 403) logout();
-            throw new Error("Error al cargar las tareas");
-        }
-        tasks = await response.json();
+        await loadFirstTaskPage();
         renderTasks();
         updateReminderBanner();
+        subscribeTaskEvents();
     } catch (error) {
         showNotification("Error al cargar tareas. Inicie sesión de nuevo.", "error");
         console.error("Error:", error);
@@ -772,4 +818,59 @@ async function loadTasks() {
 }
 
 
-setInterval(updateReminderBanner, 7200000);
+// ==================== EVENTOS EN TIEMPO REAL (SSE) ====================
+let taskEvents = null;
+let lastTaskEventId = null;
+
+function subscribeTaskEvents() {
+    if (taskEvents) return;
+    // EventSource no admite cabeceras: el gateway acepta el token como parámetro en esta ruta
+    const url = new URL(`${TASK_API_URL}/eventos`);
+    url.searchParams.set("access_token", localStorage.getItem("token"));
+    if (lastTaskEventId) url.searchParams.set("lastEventId", lastTaskEventId);
+    taskEvents = new EventSource(url);
+
+    taskEvents.addEventListener("tarea", event => {
+        lastTaskEventId = event.lastEventId;
+        applyTaskEvent(JSON.parse(event.data));
+        updateReminderBanner();
+    });
+    taskEvents.addEventListener("recordatorio", event => {
+        lastTaskEventId = event.lastEventId;
+        const { tareaId } = JSON.parse(event.data);
+        const task = tasks.find(t => t.id === tareaId);
+        showNotification(`⏰ Recordatorio: ${task?.paciente?.nombreCompleto || "tarea " + tareaId}`, "success");
+        updateReminderBanner();
+    });
+    // Se perdieron eventos que el servidor ya no guarda: se vuelve a la primera página
+    taskEvents.addEventListener("reset", async event => {
+        lastTaskEventId = event.lastEventId;
+        await loadFirstTaskPage();
+        renderTasks();
+        updateReminderBanner();
+    });
+    taskEvents.onerror = async () => {
+        // Mientras la conexión sigue viva el navegador reintenta solo, con Last-Event-ID
+        if (taskEvents.readyState !== EventSource.CLOSED) return;
+        // Cerrada por el servidor o el gateway: si es por el token se sale; si no, se reabre donde se quedó
+        taskEvents = null;
+        const response = await fetch(`${TASK_API_URL}/stats`, { headers: getAuthHeaders() }).catch(() => null);
+        if (response && (response.status === 401 || response.status === 403)) {
+            logout();
+            return;
+        }
+        setTimeout(subscribeTaskEvents, 15000);
+    };
+}
+
+// Aplica un alta, cambio o baja sobre la lista en memoria (puede llegar dos veces: es idempotente)
+function applyTaskEvent({ tipo, tareaId, tarea }) {
+    const anterior = tasks.find(t => t.id === tareaId);
+    tasks = tasks.filter(t => t.id !== tareaId);
+    if (tipo !== "ELIMINADA" && tarea) {
+        // Los PATCH no traen el paciente (no cambia): se conserva el que ya había
+        if (!tarea.paciente && anterior) tarea.paciente = anterior.paciente;
+        tasks.push(tarea);
+    }
+    renderTasks();
+}
@@ -0,0 +1,44 @@
+package com.serviconli.patientservice.config;
+
+import com.serviconli.patientservice.model.PacienteCambioCerrojo;
+import com.serviconli.patientservice.repository.PacienteCambioCerrojoRepository;
+import com.serviconli.patientservice.repository.PacienteCambioRepository;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Los pacientes dados de alta antes de existir paciente_cambios no tienen ningún cambio registrado.
+ * Si la tabla está vacía al arrancar, se siembra un UPSERT por paciente para que el feed los incluya.
+ * También crea, si no existe, la fila de {@link PacienteCambioCerrojo}.
+ */
+@Component
+@RequiredArgsConstructor
+public class PacienteCambiosInicializador {
+
+    private static final Logger logger = LoggerFactory.getLogger(PacienteCambiosInicializador.class);
+
+    private final PacienteCambioRepository cambioRepo;
+    private final PacienteCambioCerrojoRepository cerrojoRepo;
+
+    @PostConstruct
+    void sembrar() {
+        if (!cerrojoRepo.existsById(PacienteCambioCerrojo.ID)) {
+            try {
+                cerrojoRepo.saveAndFlush(new PacienteCambioCerrojo(PacienteCambioCerrojo.ID));
+            } catch (DataIntegrityViolationException e) {
+                // Otra instancia la creó a la vez
+            }
+        }
+        if (cambioRepo.count() > 0) {
+            return;
+        }
+        int sembrados = cambioRepo.sembrar(LocalDateTime.now());
+        logger.info("Registro de cambios de pacientes sembrado con {} pacientes", sembrados);
+    }
+}
@@ -7,14 +7,18 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/v1/patients")
 @RequiredArgsConstructor
 public class PacienteController {
 
+    private static final int MAX_IDS_POR_LOTE = 1000;
+
     private final PacienteService pacienteService;
 
     // CAMBIO: El cuerpo de la petición ahora es el DTO de creación correcto.
@@ -39,12 +43,43 @@ public class PacienteController {
         return ResponseEntity.ok(pacientesEncontrados);
     }
 
+    // Consulta por lotes: recibe una lista de números de identificación y devuelve los pacientes encontrados.
+    // Los IDs que no existen simplemente no aparecen en la respuesta.
+    @PostMapping("/batch")
+    public ResponseEntity<List<BusquedaPacienteResponseDTO>> buscarPacientesPorIdentificaciones(@RequestBody List<String> numerosIdentificacion) {
+        if (numerosIdentificacion.size() > MAX_IDS_POR_LOTE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(pacienteService.buscarPorIdentificaciones(numerosIdentificacion));
+    }
+
+    // Feed de cambios en orden: task-service lo recorre para mantener su réplica paciente_resumen.
+    // Cada página trae el paciente actual en los UPSERT, solo el número en los DELETE y el since de la siguiente.
+    @GetMapping("/changes")
+    public ResponseEntity<CambiosPacienteDTO> buscarCambios(@RequestParam(name = "since", defaultValue = "0") long since,
+                                                            @RequestParam(name = "limit", defaultValue = "500") int limit) {
+        if (since < 0 || limit < 1 || limit > MAX_IDS_POR_LOTE) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(pacienteService.buscarCambios(since, limit));
+    }
+
     // CAMBIO Y MEJORA: Se usa @PathVariable y se maneja el Optional.
+    // El ETag sale de la columna version: con If-None-Match y sin cambios se responde 304 sin cargar al paciente.
     @GetMapping("/{numeroIdentificacion}")
-    public ResponseEntity<BusquedaPacienteResponseDTO> buscarPacientePorIdentificacion(@PathVariable String numeroIdentificacion) {
+    public ResponseEntity<BusquedaPacienteResponseDTO> buscarPacientePorIdentificacion(@PathVariable String numeroIdentificacion,
+                                                                                       WebRequest request) {
+        // El ETag se lee antes que el paciente: si cambia entre medias, el cliente solo pierde un 304
+        Optional<String> etag = pacienteService.obtenerEtag(numeroIdentificacion);
+        if (etag.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (request.checkNotModified(etag.get())) {
+            return null; // Spring ya respondió 304
+        }
         // La capa de servicio devuelve un Optional, que manejamos aquí.
         return pacienteService.buscarPorIdentificacion(numeroIdentificacion)
-                .map(paciente -> ResponseEntity.ok(paciente)) // Si el paciente existe, devuelve 200 OK con el paciente.
+                .map(paciente -> ResponseEntity.ok().eTag(etag.get()).body(paciente)) // Si el paciente existe, devuelve 200 OK con el paciente.
                 .orElse(ResponseEntity.notFound().build());   // Si no existe, devuelve un 404 Not Found.
     }
 
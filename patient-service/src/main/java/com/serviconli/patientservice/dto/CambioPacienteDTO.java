@@ -0,0 +1,17 @@
+package com.serviconli.patientservice.dto;
+
+import com.serviconli.patientservice.model.enums.TipoCambio;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioPacienteDTO {
+
+    private Long version;
+    private String numeroIdentificacion;
+    private TipoCambio tipo;
+    private BusquedaPacienteResponseDTO paciente; // null en los DELETE
+}
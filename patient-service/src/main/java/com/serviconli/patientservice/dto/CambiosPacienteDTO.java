@@ -0,0 +1,18 @@
+package com.serviconli.patientservice.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Una página del feed GET /api/v1/patients/changes
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambiosPacienteDTO {
+
+    private List<CambioPacienteDTO> cambios;
+    private Long siguiente; // valor de since para pedir la página siguiente
+    private boolean hayMas;
+}
@@ -0,0 +1,35 @@
+package com.serviconli.patientservice.mapper;
+
+import com.serviconli.patientservice.dto.BeneficiarioResponseDTO;
+import com.serviconli.patientservice.dto.BusquedaPacienteResponseDTO;
+import com.serviconli.patientservice.dto.CotizanteResponseDTO;
+import com.serviconli.patientservice.dto.CotizanteSummaryDTO;
+import com.serviconli.patientservice.model.Beneficiario;
+import com.serviconli.patientservice.model.Cotizante;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * Cotizantes y beneficiarios a sus DTOs de respuesta y de búsqueda. La implementación (PacienteMapperImpl) la
+ * genera MapStruct al compilar; si se añade un campo a un DTO sin origen, el build falla.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface PacienteMapper {
+
+    @Mapping(target = "tipoPaciente", constant = "COTIZANTE")
+    @Mapping(target = "cotizante", ignore = true)
+    BusquedaPacienteResponseDTO toBusqueda(Cotizante cotizante);
+
+    // La búsqueda nunca ha devuelto la información adicional del beneficiario
+    @Mapping(target = "tipoPaciente", constant = "BENEFICIARIO")
+    @Mapping(target = "infoAdicional", ignore = true)
+    BusquedaPacienteResponseDTO toBusqueda(Beneficiario beneficiario);
+
+    CotizanteResponseDTO toResponse(Cotizante cotizante);
+
+    BeneficiarioResponseDTO toResponse(Beneficiario beneficiario);
+
+    CotizanteSummaryDTO toSummary(Cotizante cotizante);
+}
@@ -6,6 +6,7 @@ import com.serviconli.patientservice.model.enums.Parentesco;
 import com.serviconli.patientservice.model.enums.TipoIdentificacion;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 
 @Entity
 @Table(name = "beneficiarios")
@@ -61,6 +62,11 @@ public class Beneficiario {
     @Column(name = "info_adicional")
     private String infoAdicional;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version; // Bloqueo optimista; también es el ETag de GET /{numeroIdentificacion}
+
     // Relación Many-to-One con Cotizante
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "cotizante_id", nullable = false)
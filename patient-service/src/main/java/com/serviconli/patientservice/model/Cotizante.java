@@ -6,6 +6,7 @@ import com.serviconli.patientservice.model.enums.Parentesco;
 import com.serviconli.patientservice.model.enums.TipoIdentificacion;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import java.util.List;
@@ -63,6 +64,11 @@ public class Cotizante {
     @Column(name = "info_adicional")
     private String infoAdicional;
 
+    @Version
+    @ColumnDefault("0")
+    @Column(name = "version", nullable = false)
+    private Long version; // Bloqueo optimista; también es el ETag de GET /{numeroIdentificacion}
+
     @OneToMany(mappedBy = "cotizante", cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true)
     @JsonIgnore // Evita que al serializar un Cotizante se traiga a todos los beneficiarios en un bucle infinito.
     private List<Beneficiario> beneficiarios;
@@ -0,0 +1,41 @@
+package com.serviconli.patientservice.model;
+
+import com.serviconli.patientservice.model.enums.TipoCambio;
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Registro de cambios de pacientes (cotizantes y beneficiarios), en el orden en que se hicieron.
+ * El id es la versión que recorre GET /api/v1/patients/changes?since=.
+ */
+@Entity
+@Table(name = "paciente_cambios")
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PacienteCambio {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "numero_identificacion", nullable = false)
+    private String numeroIdentificacion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "tipo", nullable = false, length = 10)
+    private TipoCambio tipo;
+
+    @Column(name = "fecha", nullable = false)
+    private LocalDateTime fecha;
+
+    public PacienteCambio(String numeroIdentificacion, TipoCambio tipo) {
+        this.numeroIdentificacion = numeroIdentificacion;
+        this.tipo = tipo;
+        this.fecha = LocalDateTime.now();
+    }
+}
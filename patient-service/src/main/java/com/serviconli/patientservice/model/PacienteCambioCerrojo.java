@@ -0,0 +1,24 @@
+package com.serviconli.patientservice.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Fila única que hace de cerrojo de paciente_cambios: cada transacción que registra un cambio la bloquea antes
+ * de insertar y la suelta al confirmar. Así los ids se asignan en el mismo orden en que se confirman, y quien
+ * recorre el feed no puede pasar por delante de un id que aún no ve.
+ */
+@Entity
+@Table(name = "paciente_cambios_cerrojo")
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PacienteCambioCerrojo {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+}
@@ -0,0 +1,9 @@
+package com.serviconli.patientservice.model.enums;
+
+import lombok.Getter;
+
+@Getter
+public enum TipoCambio {
+    UPSERT, // alta o modificación: el feed devuelve el paciente tal como está ahora
+    DELETE  // baja: el feed devuelve solo el número de identificación (tombstone)
+}
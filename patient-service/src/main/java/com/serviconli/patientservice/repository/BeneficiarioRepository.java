@@ -2,8 +2,12 @@ package com.serviconli.patientservice.repository;
 
 
 import com.serviconli.patientservice.model.Beneficiario;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +19,22 @@ public interface BeneficiarioRepository extends JpaRepository<Beneficiario, Long
 
     List<Beneficiario> findByCotizanteNumeroIdentificacion(String numeroIdentificacionCotizante);
 
+    /**
+     * Busca en una sola consulta (IN) todos los beneficiarios de la lista.
+     * Trae el cotizante en el mismo JOIN para no disparar una consulta por beneficiario.
+     */
+    @EntityGraph(attributePaths = "cotizante")
+    List<Beneficiario> findByNumeroIdentificacionIn(Collection<String> numerosIdentificacion);
+
+    /**
+     * Versión del beneficiario y de su cotizante (la respuesta incluye el resumen del cotizante), sin cargarlos.
+     * USADO PARA: responder 304 a GET /{numeroIdentificacion} con If-None-Match.
+     */
+    @Query("""
+            select concat(cast(b.version as String), '.', cast(c.version as String))
+            from Beneficiario b join b.cotizante c
+            where b.numeroIdentificacion = :numeroIdentificacion
+            """)
+    Optional<String> findVersionByNumeroIdentificacion(@Param("numeroIdentificacion") String numeroIdentificacion);
+
 }
@@ -2,7 +2,10 @@ package com.serviconli.patientservice.repository;
 
 import com.serviconli.patientservice.model.Cotizante;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,4 +13,17 @@ public interface CotizanteRepository extends JpaRepository<Cotizante, Long> {
 
     Optional<Cotizante> findByNumeroIdentificacion(String numeroIdentificacion);
     List<Cotizante> findByNombreCompletoContainingIgnoreCase(String nombreCompleto);
+
+    /**
+     * Busca en una sola consulta (IN) todos los cotizantes de la lista.
+     * USADO PARA: La consulta por lotes que hace task-service al enriquecer tareas.
+     */
+    List<Cotizante> findByNumeroIdentificacionIn(Collection<String> numerosIdentificacion);
+
+    /**
+     * Solo la versión, sin cargar el cotizante.
+     * USADO PARA: responder 304 a GET /{numeroIdentificacion} con If-None-Match.
+     */
+    @Query("select c.version from Cotizante c where c.numeroIdentificacion = :numeroIdentificacion")
+    Optional<Long> findVersionByNumeroIdentificacion(@Param("numeroIdentificacion") String numeroIdentificacion);
 }
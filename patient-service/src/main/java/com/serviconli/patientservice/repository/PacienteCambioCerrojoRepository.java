@@ -0,0 +1,20 @@
+package com.serviconli.patientservice.repository;
+
+import com.serviconli.patientservice.model.PacienteCambioCerrojo;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Optional;
+
+public interface PacienteCambioCerrojoRepository extends JpaRepository<PacienteCambioCerrojo, Integer> {
+
+    /**
+     * SELECT ... FOR UPDATE de la fila del cerrojo; se mantiene hasta el final de la transacción.
+     * USADO PARA: registrar cambios de pacientes en orden de confirmación (ver {@link PacienteCambioCerrojo}).
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select c from PacienteCambioCerrojo c where c.id = " + PacienteCambioCerrojo.ID)
+    Optional<PacienteCambioCerrojo> bloquear();
+}
@@ -0,0 +1,35 @@
+package com.serviconli.patientservice.repository;
+
+import com.serviconli.patientservice.model.PacienteCambio;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PacienteCambioRepository extends JpaRepository<PacienteCambio, Long> {
+
+    /**
+     * Cambios posteriores a {@code desde}, en orden, hasta el límite.
+     * USADO PARA: el feed de cambios que recorre task-service.
+     */
+    List<PacienteCambio> findByIdGreaterThanOrderByIdAsc(Long desde, Limit limite);
+
+    /**
+     * Un UPSERT por cada paciente ya existente, para que quien recorra el feed desde 0 los reciba todos.
+     * USADO PARA: sembrar el registro la primera vez que arranca el servicio con esta tabla.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            insert into paciente_cambios (numero_identificacion, tipo, fecha)
+            select numero_identificacion, 'UPSERT', cast(:fecha as datetime) from cotizantes
+            union all
+            select numero_identificacion, 'UPSERT', cast(:fecha as datetime) from beneficiarios
+            """, nativeQuery = true)
+    int sembrar(@Param("fecha") LocalDateTime fecha);
+}
@@ -9,6 +9,9 @@ public interface PacienteService {
 
     List<BusquedaPacienteResponseDTO> buscarPorNombre(String nombre); //busqueda que estamos usando en el front, para buscar tanto cotizantes como pacientes
     Optional<BusquedaPacienteResponseDTO> buscarPorIdentificacion(String numeroIdentificacion);
+    Optional<String> obtenerEtag(String numeroIdentificacion); // ETag de buscarPorIdentificacion sin cargar el paciente
+    List<BusquedaPacienteResponseDTO> buscarPorIdentificaciones(List<String> numerosIdentificacion); // consulta por lotes usada por task-service
+    CambiosPacienteDTO buscarCambios(long desde, int limite); // feed de cambios que replica task-service
 
     CotizanteResponseDTO crearCotizante(CreateCotizanteRequestDTO  requestDTO);
     BeneficiarioResponseDTO crearBeneficiario(CreateBeneficiarioRequestDTO requestDTO);
@@ -1,17 +1,24 @@
 package com.serviconli.patientservice.service.impl;
 
 import com.serviconli.patientservice.dto.*;
+import com.serviconli.patientservice.mapper.PacienteMapper;
 import com.serviconli.patientservice.model.*;
 import com.serviconli.patientservice.model.enums.*;
 import com.serviconli.patientservice.repository.*;
 import com.serviconli.patientservice.service.PacienteService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -21,17 +28,20 @@ public class PacienteServiceImpl implements PacienteService {
 
     private final CotizanteRepository cotizanteRepo;
     private final BeneficiarioRepository beneficiarioRepo;
+    private final PacienteCambioRepository cambioRepo;
+    private final PacienteCambioCerrojoRepository cerrojoRepo;
+    private final PacienteMapper pacienteMapper;
 
     @Override
     @Transactional(readOnly = true)
     public List<BusquedaPacienteResponseDTO> buscarPorNombre(String nombre) {
         Stream<BusquedaPacienteResponseDTO> cotizantesStream = cotizanteRepo.findByNombreCompletoContainingIgnoreCase(nombre)
                 .stream()
-                .map(this::mapToBusquedaDTO);
+                .map(pacienteMapper::toBusqueda);
 
         Stream<BusquedaPacienteResponseDTO> beneficiariosStream = beneficiarioRepo.findByNombreCompletoContainingIgnoreCase(nombre)
                 .stream()
-                .map(this::mapToBusquedaDTO);
+                .map(pacienteMapper::toBusqueda);
 
         return Stream.concat(cotizantesStream, beneficiariosStream).collect(Collectors.toList());
     }
@@ -43,19 +53,95 @@ public class PacienteServiceImpl implements PacienteService {
         // Buscar primero en cotizantes
         Optional<Cotizante> cotizanteOpt = cotizanteRepo.findByNumeroIdentificacion(numeroIdentificacion);
         if (cotizanteOpt.isPresent()) {
-            return Optional.of(mapToBusquedaDTO(cotizanteOpt.get()));
+            return Optional.of(pacienteMapper.toBusqueda(cotizanteOpt.get()));
         }
 
         // Si no, buscar en beneficiarios
         Optional<Beneficiario> beneficiarioOpt = beneficiarioRepo.findByNumeroIdentificacion(numeroIdentificacion);
         if (beneficiarioOpt.isPresent()) {
-            return Optional.of(mapToBusquedaDTO(beneficiarioOpt.get()));
+            return Optional.of(pacienteMapper.toBusqueda(beneficiarioOpt.get()));
         }
 
         // Si no se encuentra en ninguna tabla, devolvemos un Optional vacío.
         return Optional.empty();
     }
 
+    // Mismo orden que buscarPorIdentificacion: primero cotizantes y luego beneficiarios
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<String> obtenerEtag(String numeroIdentificacion) {
+        Optional<String> cotizante = cotizanteRepo.findVersionByNumeroIdentificacion(numeroIdentificacion)
+                .map(version -> "\"c" + version + "\"");
+        if (cotizante.isPresent()) {
+            return cotizante;
+        }
+        return beneficiarioRepo.findVersionByNumeroIdentificacion(numeroIdentificacion)
+                .map(versiones -> "\"b" + versiones + "\"");
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BusquedaPacienteResponseDTO> buscarPorIdentificaciones(List<String> numerosIdentificacion) {
+        if (numerosIdentificacion == null || numerosIdentificacion.isEmpty()) {
+            return List.of();
+        }
+        Set<String> ids = new HashSet<>(numerosIdentificacion);
+
+        // Dos consultas IN en total, sin importar cuántos IDs lleguen.
+        List<Cotizante> cotizantes = cotizanteRepo.findByNumeroIdentificacionIn(ids);
+        cotizantes.forEach(c -> ids.remove(c.getNumeroIdentificacion()));
+
+        Stream<BusquedaPacienteResponseDTO> cotizantesStream = cotizantes.stream().map(pacienteMapper::toBusqueda);
+        if (ids.isEmpty()) {
+            return cotizantesStream.collect(Collectors.toList());
+        }
+
+        // Igual que en buscarPorIdentificacion: solo se buscan como beneficiarios los que no son cotizantes.
+        Stream<BusquedaPacienteResponseDTO> beneficiariosStream = beneficiarioRepo.findByNumeroIdentificacionIn(ids)
+                .stream()
+                .map(pacienteMapper::toBusqueda);
+
+        return Stream.concat(cotizantesStream, beneficiariosStream).collect(Collectors.toList());
+    }
+
+    // Cada alta, modificación o baja deja una fila en paciente_cambios dentro de su misma transacción, con el
+    // cerrojo de paciente_cambios_cerrojo tomado (ver registrarCambio). Por eso los ids se confirman en orden y
+    // el feed puede llegar hasta el último visible: ninguna transacción confirmará después un id menor.
+    @Override
+    @Transactional(readOnly = true)
+    public CambiosPacienteDTO buscarCambios(long desde, int limite) {
+        List<PacienteCambio> pagina = cambioRepo.findByIdGreaterThanOrderByIdAsc(desde, Limit.of(limite));
+        if (pagina.isEmpty()) {
+            return new CambiosPacienteDTO(List.of(), desde, false);
+        }
+
+        // De varios cambios del mismo paciente en la página basta el último: el paciente se devuelve como está ahora
+        Map<String, PacienteCambio> ultimos = new LinkedHashMap<>();
+        for (PacienteCambio cambio : pagina) {
+            ultimos.remove(cambio.getNumeroIdentificacion());
+            ultimos.put(cambio.getNumeroIdentificacion(), cambio);
+        }
+        List<String> upserts = ultimos.values().stream()
+                .filter(cambio -> cambio.getTipo() == TipoCambio.UPSERT)
+                .map(PacienteCambio::getNumeroIdentificacion)
+                .toList();
+        Map<String, BusquedaPacienteResponseDTO> actuales = buscarPorIdentificaciones(upserts).stream()
+                .collect(Collectors.toMap(BusquedaPacienteResponseDTO::getNumeroIdentificacion, Function.identity()));
+
+        List<CambioPacienteDTO> cambios = ultimos.values().stream()
+                .map(cambio -> {
+                    BusquedaPacienteResponseDTO paciente = cambio.getTipo() == TipoCambio.UPSERT
+                            ? actuales.get(cambio.getNumeroIdentificacion())
+                            : null;
+                    // Un UPSERT de un paciente que ya no existe sale como DELETE: su baja viene más adelante en el feed
+                    TipoCambio tipo = paciente != null ? TipoCambio.UPSERT : TipoCambio.DELETE;
+                    return new CambioPacienteDTO(cambio.getId(), cambio.getNumeroIdentificacion(), tipo, paciente);
+                })
+                .toList();
+        Long siguiente = pagina.get(pagina.size() - 1).getId();
+        return new CambiosPacienteDTO(cambios, siguiente, pagina.size() == limite);
+    }
+
 
     @Override
     @Transactional
@@ -80,7 +166,8 @@ public class PacienteServiceImpl implements PacienteService {
         cotizante.setParentesco(Parentesco.COTIZANTE);
 
         Cotizante guardado = cotizanteRepo.save(cotizante);
-        return mapToCotizanteResponseDTO(guardado);
+        registrarCambio(guardado.getNumeroIdentificacion(), TipoCambio.UPSERT);
+        return pacienteMapper.toResponse(guardado);
     }
 
     @Override
@@ -109,61 +196,10 @@ public class PacienteServiceImpl implements PacienteService {
         beneficiario.setCotizante(cotizante);
 
         Beneficiario guardado = beneficiarioRepo.save(beneficiario);
-        return mapToBeneficiarioResponseDTO(guardado);
-    }
-
-    // Estos son los métodos  para la búsqueda
-    private BusquedaPacienteResponseDTO mapToBusquedaDTO(Cotizante cotizante) {
-        BusquedaPacienteResponseDTO dto = new BusquedaPacienteResponseDTO();
-        dto.setTipoPaciente("COTIZANTE");
-        dto.setId(cotizante.getId());
-        dto.setNombreCompleto(cotizante.getNombreCompleto());
-        // ... (resto de campos)
-        dto.setTipoIdentificacion(cotizante.getTipoIdentificacion());
-        dto.setNumeroIdentificacion(cotizante.getNumeroIdentificacion());
-        dto.setFechaNacimiento(cotizante.getFechaNacimiento());
-        dto.setFechaExpedicion(cotizante.getFechaExpedicion());
-        dto.setCelular(cotizante.getCelular());
-        dto.setCorreo(cotizante.getCorreo());
-        dto.setDireccionResidencia(cotizante.getDireccionResidencia());
-        dto.setEstado(cotizante.getEstado());
-        dto.setParentesco(cotizante.getParentesco());
-        dto.setEps(cotizante.getEps());
-        dto.setInfoAdicional(cotizante.getInfoAdicional());
-        return dto;
-    }
-
-    private BusquedaPacienteResponseDTO mapToBusquedaDTO(Beneficiario beneficiario) {
-        BusquedaPacienteResponseDTO dto = new BusquedaPacienteResponseDTO();
-        dto.setTipoPaciente("BENEFICIARIO");
-        dto.setId(beneficiario.getId());
-        dto.setNombreCompleto(beneficiario.getNombreCompleto());
-        // ... (resto de campos)
-        dto.setTipoIdentificacion(beneficiario.getTipoIdentificacion());
-        dto.setNumeroIdentificacion(beneficiario.getNumeroIdentificacion());
-        dto.setFechaNacimiento(beneficiario.getFechaNacimiento());
-        dto.setFechaExpedicion(beneficiario.getFechaExpedicion());
-        dto.setCelular(beneficiario.getCelular());
-        dto.setCorreo(beneficiario.getCorreo());
-        dto.setDireccionResidencia(beneficiario.getDireccionResidencia());
-        dto.setEstado(beneficiario.getEstado());
-        dto.setParentesco(beneficiario.getParentesco());
-        dto.setEps(beneficiario.getEps());
-        if (beneficiario.getCotizante() != null) {
-            CotizanteSummaryDTO summaryDTO = new CotizanteSummaryDTO();
-            summaryDTO.setId(beneficiario.getCotizante().getId());
-            summaryDTO.setNombreCompleto(beneficiario.getCotizante().getNombreCompleto());
-            summaryDTO.setTipoIdentificacion(beneficiario.getCotizante().getTipoIdentificacion());
-            summaryDTO.setNumeroIdentificacion(beneficiario.getCotizante().getNumeroIdentificacion());
-            dto.setCotizante(summaryDTO);
-        }
-        return dto;
+        registrarCambio(guardado.getNumeroIdentificacion(), TipoCambio.UPSERT);
+        return pacienteMapper.toResponse(guardado);
     }
 
-
-
-
-
     // --- NUEVOS MÉTODOS PARA ACTUALIZAR Y ELIMINAR ---
 
     @Override
@@ -195,9 +231,11 @@ public class PacienteServiceImpl implements PacienteService {
 
         // 3. Guardar los cambios en la base de datos.
         Cotizante cotizanteActualizado = cotizanteRepo.save(cotizante);
+        // Los beneficiarios no cambian: su resumen del cotizante solo lleva campos que aquí no se modifican
+        registrarCambio(numeroIdentificacion, TipoCambio.UPSERT);
 
         // 4. Devolver la versión actualizada.
-        return mapToCotizanteResponseDTO(cotizanteActualizado);
+        return pacienteMapper.toResponse(cotizanteActualizado);
     }
 
     @Override
@@ -232,9 +270,10 @@ public class PacienteServiceImpl implements PacienteService {
 
         // 3. Guardar los cambios.
         Beneficiario beneficiarioActualizado = beneficiarioRepo.save(beneficiario);
+        registrarCambio(numeroIdentificacion, TipoCambio.UPSERT);
 
         // 4. Devolver la versión actualizada.
-        return mapToBeneficiarioResponseDTO(beneficiarioActualizado);
+        return pacienteMapper.toResponse(beneficiarioActualizado);
     }
 
     @Override
@@ -243,7 +282,12 @@ public class PacienteServiceImpl implements PacienteService {
         // 1. Intentar buscar y eliminar como si fuera un cotizante.
         Optional<Cotizante> cotizanteOpt = cotizanteRepo.findByNumeroIdentificacion(numeroIdentificacion);
         if (cotizanteOpt.isPresent()) {
-            cotizanteRepo.delete(cotizanteOpt.get());
+            Cotizante cotizante = cotizanteOpt.get();
+            if (cotizante.getBeneficiarios() != null) {
+                cotizante.getBeneficiarios().forEach(b -> registrarCambio(b.getNumeroIdentificacion(), TipoCambio.DELETE));
+            }
+            registrarCambio(numeroIdentificacion, TipoCambio.DELETE);
+            cotizanteRepo.delete(cotizante);
             // Gracias a la configuración de cascada, al eliminar un cotizante,
             // se eliminarán automáticamente todos sus beneficiarios asociados.
             return; // Termina la ejecución si se encontró y eliminó.
@@ -252,6 +296,7 @@ public class PacienteServiceImpl implements PacienteService {
         // 2. Si no se encontró como cotizante, intentar buscar y eliminar como beneficiario.
         Optional<Beneficiario> beneficiarioOpt = beneficiarioRepo.findByNumeroIdentificacion(numeroIdentificacion);
         if (beneficiarioOpt.isPresent()) {
+            registrarCambio(numeroIdentificacion, TipoCambio.DELETE);
             beneficiarioRepo.delete(beneficiarioOpt.get());
             return; // Termina la ejecución.
         }
@@ -260,59 +305,10 @@ public class PacienteServiceImpl implements PacienteService {
         throw new EntityNotFoundException("No se encontró ningún paciente (cotizante o beneficiario) con el número de identificación: " + numeroIdentificacion);
     }
 
-    // Estos son los métodos que usan crearCotizante y crearBeneficiario para devolver la respuesta.
-
-    private CotizanteResponseDTO mapToCotizanteResponseDTO(Cotizante cotizante) {
-        CotizanteResponseDTO dto = new CotizanteResponseDTO();
-        dto.setId(cotizante.getId());
-        dto.setNombreCompleto(cotizante.getNombreCompleto());
-        dto.setTipoIdentificacion(cotizante.getTipoIdentificacion());
-        dto.setNumeroIdentificacion(cotizante.getNumeroIdentificacion());
-        dto.setFechaNacimiento(cotizante.getFechaNacimiento());
-        dto.setFechaExpedicion(cotizante.getFechaExpedicion());
-        dto.setCelular(cotizante.getCelular());
-        dto.setCorreo(cotizante.getCorreo());
-        dto.setDireccionResidencia(cotizante.getDireccionResidencia());
-        dto.setEstado(cotizante.getEstado());
-        dto.setParentesco(cotizante.getParentesco());
-        dto.setEps(cotizante.getEps());
-        dto.setInfoAdicional(cotizante.getInfoAdicional());
-
-        // Mapea la lista de beneficiarios si existen
-        if (cotizante.getBeneficiarios() != null) {
-            dto.setBeneficiarios(
-                    cotizante.getBeneficiarios().stream()
-                            .map(this::mapToBeneficiarioResponseDTO)
-                            .collect(Collectors.toList())
-            );
-        }
-        return dto;
-    }
-
-    private BeneficiarioResponseDTO mapToBeneficiarioResponseDTO(Beneficiario beneficiario) {
-        BeneficiarioResponseDTO dto = new BeneficiarioResponseDTO();
-        dto.setId(beneficiario.getId());
-        dto.setNombreCompleto(beneficiario.getNombreCompleto());
-        dto.setTipoIdentificacion(beneficiario.getTipoIdentificacion());
-        dto.setNumeroIdentificacion(beneficiario.getNumeroIdentificacion());
-        dto.setFechaNacimiento(beneficiario.getFechaNacimiento());
-        dto.setFechaExpedicion(beneficiario.getFechaExpedicion());
-        dto.setCelular(beneficiario.getCelular());
-        dto.setCorreo(beneficiario.getCorreo());
-        dto.setDireccionResidencia(beneficiario.getDireccionResidencia());
-        dto.setEstado(beneficiario.getEstado());
-        dto.setParentesco(beneficiario.getParentesco());
-        dto.setEps(beneficiario.getEps());
-        dto.setInfoAdicional(beneficiario.getInfoAdicional());
-
-        if (beneficiario.getCotizante() != null) {
-            CotizanteSummaryDTO summaryDTO = new CotizanteSummaryDTO();
-            summaryDTO.setId(beneficiario.getCotizante().getId());
-            summaryDTO.setNombreCompleto(beneficiario.getCotizante().getNombreCompleto());
-            summaryDTO.setTipoIdentificacion(beneficiario.getCotizante().getTipoIdentificacion());
-            summaryDTO.setNumeroIdentificacion(beneficiario.getCotizante().getNumeroIdentificacion());
-            dto.setCotizante(summaryDTO);
-        }
-        return dto;
+    // El cerrojo se toma antes de insertar y se suelta con el commit: mientras esta transacción no confirme,
+    // ninguna otra puede recibir un id posterior al suyo
+    private void registrarCambio(String numeroIdentificacion, TipoCambio tipo) {
+        cerrojoRepo.bloquear().orElseThrow(() -> new IllegalStateException("Falta la fila de paciente_cambios_cerrojo"));
+        cambioRepo.save(new PacienteCambio(numeroIdentificacion, tipo));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,136 @@
+package com.serviconli.patientservice;
+
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compara Tomcat con su pool de hilos de plataforma (200 por defecto) contra Tomcat con hilos virtuales,
+ * con muchas peticiones concurrentes que pasan la mayor parte del tiempo bloqueadas (como una consulta JDBC).
+ *
+ * <p>No corre con el build normal. Se lanza con: {@code mvn test -Pbenchmark}
+ */
+@Tag("benchmark")
+class VirtualThreadsBenchmarkTest {
+
+    private static final int CONCURRENCIA = 1000;
+    private static final int PETICIONES = 5000;
+    private static final Duration LATENCIA_BLOQUEANTE = Duration.ofMillis(200);
+
+    @Test
+    void hilosDePlataformaVsHilosVirtuales() throws Exception {
+        Resultado plataforma = medir(false);
+        Resultado virtuales = medir(true);
+
+        System.out.printf("%nBenchmark Tomcat (%d peticiones, %d concurrentes, %d ms bloqueado por petición)%n",
+                PETICIONES, CONCURRENCIA, LATENCIA_BLOQUEANTE.toMillis());
+        System.out.println("  hilos de plataforma: " + plataforma);
+        System.out.println("  hilos virtuales:     " + virtuales);
+    }
+
+    private Resultado medir(boolean hilosVirtuales) throws Exception {
+        TomcatServletWebServerFactory factory = new TomcatServletWebServerFactory(0);
+        if (hilosVirtuales) {
+            // Lo mismo que hace Spring Boot con spring.threads.virtual.enabled=true
+            factory.addProtocolHandlerCustomizers(handler -> handler.setExecutor(new VirtualThreadExecutor("tomcat-handler-")));
+        }
+        WebServer server = factory.getWebServer(context ->
+                context.addServlet("bloqueante", new ServletBloqueante()).addMapping("/*"));
+        server.start();
+
+        try (ExecutorService clientes = Executors.newVirtualThreadPerTaskExecutor()) {
+            HttpClient http = HttpClient.newBuilder().executor(clientes).version(HttpClient.Version.HTTP_1_1).build();
+            URI uri = URI.create("http://localhost:" + server.getPort() + "/api/v1/patients/1");
+
+            // Calentamiento: conexiones abiertas y JIT antes de medir
+            ejecutar(http, clientes, uri, CONCURRENCIA, new ArrayList<>());
+
+            List<Long> latencias = Collections.synchronizedList(new ArrayList<>());
+            long inicio = System.nanoTime();
+            int ok = ejecutar(http, clientes, uri, PETICIONES, latencias);
+            Duration total = Duration.ofNanos(System.nanoTime() - inicio);
+
+            assertEquals(PETICIONES, ok);
+            return new Resultado(total, latencias);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private int ejecutar(HttpClient http, ExecutorService clientes, URI uri, int peticiones, List<Long> latencias) throws Exception {
+        Semaphore enVuelo = new Semaphore(CONCURRENCIA);
+        AtomicInteger ok = new AtomicInteger();
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int i = 0; i < peticiones; i++) {
+            enVuelo.acquire();
+            futuros.add(clientes.submit(() -> {
+                long t0 = System.nanoTime();
+                try {
+                    HttpResponse<Void> response = http.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        ok.incrementAndGet();
+                    }
+                    latencias.add(System.nanoTime() - t0);
+                } finally {
+                    enVuelo.release();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get();
+        }
+        return ok.get();
+    }
+
+    private static class ServletBloqueante extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            try {
+                Thread.sleep(LATENCIA_BLOQUEANTE); // Simula la espera de MySQL
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            resp.setContentType("application/json");
+            resp.getWriter().write("{\"numeroIdentificacion\":\"1\"}");
+        }
+    }
+
+    private record Resultado(Duration total, List<Long> latencias) {
+        @Override
+        public String toString() {
+            List<Long> ordenadas = new ArrayList<>(latencias);
+            Collections.sort(ordenadas);
+            double rps = PETICIONES / (total.toNanos() / 1e9);
+            return String.format("%.0f req/s, p50 %d ms, p99 %d ms, total %d ms",
+                    rps, percentil(ordenadas, 0.50), percentil(ordenadas, 0.99), total.toMillis());
+        }
+
+        private static long percentil(List<Long> ordenadas, double p) {
+            int i = (int) Math.ceil(p * ordenadas.size()) - 1;
+            return ordenadas.get(Math.max(i, 0)) / 1_000_000;
+        }
+    }
+}
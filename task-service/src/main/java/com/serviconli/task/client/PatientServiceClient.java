@@ -0,0 +1,153 @@
+package com.serviconli.task.client;
+
+import com.serviconli.task.dto.CambiosPacienteDTO;
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.exception.PatientServiceUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.github.resilience4j.reactor.retry.RetryOperator;
+import io.github.resilience4j.reactor.timelimiter.TimeLimiterOperator;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Cliente HTTP de patient-service. Solo habla con la red: la caché vive en las capas que lo usan.
+ *
+ * <p>Cada llamada pasa por las protecciones de Resilience4j de la instancia {@code patient-service}
+ * (configuradas en {@code resilience4j.*} del application.yml), de dentro hacia fuera:
+ * <ul>
+ *   <li>bulkhead: máximo de llamadas en curso; si está lleno se rechaza al momento en lugar de hacer cola;</li>
+ *   <li>time limiter: tiempo máximo de cada intento;</li>
+ *   <li>circuit breaker: con demasiados fallos o llamadas lentas deja de llamar durante un rato;</li>
+ *   <li>retry con espera exponencial aleatoria: solo en los GET, que se pueden repetir sin efectos.</li>
+ * </ul>
+ * Cuando patient-service no contesta (breaker abierto, bulkhead lleno, timeout, error de red o 5xx) el error
+ * sale como {@link PatientServiceUnavailableException}. El estado del breaker está en /actuator/health y
+ * /actuator/circuitbreakers, y sus métricas (resilience4j.*) y las latencias (http.client.requests) en
+ * /actuator/metrics.
+ */
+@Component
+public class PatientServiceClient {
+
+    private static final String INSTANCIA = "patient-service";
+
+    private final WebClient webClient;
+    private final int batchSize;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final TimeLimiter timeLimiter;
+    private final Retry retry;
+
+    public PatientServiceClient(WebClient.Builder webClientBuilder,
+                                @Value("${patient.service.batch-size:200}") int batchSize,
+                                CircuitBreakerRegistry circuitBreakerRegistry,
+                                BulkheadRegistry bulkheadRegistry,
+                                TimeLimiterRegistry timeLimiterRegistry,
+                                RetryRegistry retryRegistry) {
+        // La URL base ya está en la configuración
+        this.webClient = webClientBuilder.build();
+        this.batchSize = batchSize;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker(INSTANCIA);
+        this.bulkhead = bulkheadRegistry.bulkhead(INSTANCIA);
+        this.timeLimiter = timeLimiterRegistry.timeLimiter(INSTANCIA);
+        this.retry = retryRegistry.retry(INSTANCIA);
+    }
+
+    /**
+     * GET /api/v1/patients/{id}. Un 404 se traduce en un Mono vacío.
+     */
+    public Mono<PatientInfoDTO> findPatientById(String id) {
+        return proteger(webClient.get()
+                .uri("/api/v1/patients/{id}", id)
+                .retrieve()
+                .bodyToMono(PatientInfoDTO.class)
+                .onErrorResume(WebClientResponseException.NotFound.class, e -> Mono.empty()), true);
+    }
+
+    /**
+     * Resuelve varios pacientes con la consulta por lotes de patient-service (POST /patients/batch).
+     * Los IDs se deduplican y se parten en bloques de {@code patient.service.batch-size},
+     * así que N tareas cuestan unas pocas llamadas en lugar de N. Al ser un POST no se reintenta.
+     */
+    public Mono<Map<String, PatientInfoDTO>> findPatientsByIds(Collection<String> ids) {
+        return Flux.fromIterable(ids)
+                .distinct()
+                .buffer(batchSize)
+                .flatMap(lote -> proteger(webClient.post()
+                        .uri("/api/v1/patients/batch")
+                        .bodyValue(lote)
+                        .retrieve()
+                        .bodyToFlux(PatientInfoDTO.class)
+                        .collectList(), false))
+                .flatMapIterable(pacientes -> pacientes)
+                .collectMap(PatientInfoDTO::getNumeroIdentificacion);
+    }
+
+    /**
+     * GET /api/v1/patients/search: los pacientes cuyo nombre contiene {@code name}, con todos sus datos, para que
+     * quien busca tareas por nombre pueda enriquecerlas sin volver a preguntar por cada paciente.
+     */
+    public Mono<List<PatientInfoDTO>> findPatientsByName(String name) {
+        return proteger(webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/v1/patients/search")
+                        .queryParam("nombre", name)
+                        .build())
+                .retrieve()
+                .bodyToFlux(PatientInfoDTO.class)
+                .collectList(), true);
+    }
+
+    /**
+     * GET /api/v1/patients/changes: una página del feed de cambios a partir de la versión {@code since}.
+     * USADO PARA: mantener la réplica paciente_resumen (PacienteResumenReplica).
+     */
+    public Mono<CambiosPacienteDTO> findChanges(long since, int limit) {
+        return proteger(webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/api/v1/patients/changes")
+                        .queryParam("since", since)
+                        .queryParam("limit", limit)
+                        .build())
+                .retrieve()
+                .bodyToMono(CambiosPacienteDTO.class), true);
+    }
+
+    private <T> Mono<T> proteger(Mono<T> llamada, boolean reintentable) {
+        Mono<T> protegida = llamada
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(TimeLimiterOperator.of(timeLimiter))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+        if (reintentable) {
+            protegida = protegida.transformDeferred(RetryOperator.of(retry));
+        }
+        return protegida.onErrorMap(PatientServiceClient::esNoDisponible,
+                e -> new PatientServiceUnavailableException("patient-service no está disponible: " + e.getMessage(), e));
+    }
+
+    private static boolean esNoDisponible(Throwable e) {
+        return e instanceof CallNotPermittedException
+                || e instanceof BulkheadFullException
+                || e instanceof TimeoutException
+                || e instanceof WebClientRequestException // Sin conexión, conexión rechazada...
+                || (e instanceof WebClientResponseException r && r.getStatusCode().is5xxServerError());
+    }
+}
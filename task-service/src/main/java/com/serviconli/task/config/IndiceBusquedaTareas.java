@@ -0,0 +1,55 @@
+package com.serviconli.task.config;
+
+import com.serviconli.task.repository.TareaRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Crea el índice FULLTEXT de la búsqueda de tareas si aún no existe. Hibernate ({@code ddl-auto: update}) no
+ * sabe crear índices FULLTEXT, así que se hace aquí, al arrancar y antes de aceptar peticiones.
+ *
+ * <p>La primera vez MySQL reconstruye la tabla y bloquea las escrituras mientras tanto: con muchas tareas
+ * conviene crearlo antes a mano con el mismo ALTER TABLE. En otras bases de datos (H2 en pruebas) no se hace nada.
+ */
+@Component
+public class IndiceBusquedaTareas {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndiceBusquedaTareas.class);
+    static final String NOMBRE_INDICE = "ft_tareas_texto";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Se inyecta el EntityManagerFactory solo para arrancar después de que Hibernate haya creado la tabla
+    public IndiceBusquedaTareas(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    void crearSiFalta() {
+        try {
+            String baseDatos = jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName());
+            if (!"MySQL".equalsIgnoreCase(baseDatos)) {
+                logger.info("Base de datos {}: no se crea el índice FULLTEXT de tareas", baseDatos);
+                return;
+            }
+            Integer existe = jdbcTemplate.queryForObject("""
+                    SELECT COUNT(*) FROM information_schema.statistics
+                    WHERE table_schema = DATABASE() AND table_name = 'tareas' AND index_name = ?
+                    """, Integer.class, NOMBRE_INDICE);
+            if (existe != null && existe > 0) {
+                return;
+            }
+            logger.info("Creando el índice FULLTEXT {} sobre tareas({})", NOMBRE_INDICE, TareaRepository.COLUMNAS_TEXTO);
+            jdbcTemplate.execute("ALTER TABLE tareas ADD FULLTEXT INDEX " + NOMBRE_INDICE + " (" + TareaRepository.COLUMNAS_TEXTO + ")");
+        } catch (DataAccessException e) {
+            // El resto del servicio funciona igual; solo GET /api/v1/tareas/buscar fallará hasta que exista
+            logger.error("No se pudo crear el índice FULLTEXT {}", NOMBRE_INDICE, e);
+        }
+    }
+}
@@ -1,18 +1,37 @@
 package com.serviconli.task.config;
 
+import io.micrometer.observation.ObservationRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.net.http.HttpClient;
+import java.time.Duration;
+
 @Configuration
 public class WebClientConfig {
 
     @Value("${PATIENT_SERVICE_URL:http://localhost:8080/api/v1}")
     private String patientServiceUrl;
 
+    @Value("${patient.service.connect-timeout:1s}")
+    private Duration connectTimeout;
+
+    // Tope de la conexión; el límite por llamada (más corto) lo pone el TimeLimiter de PatientServiceClient
+    @Value("${patient.service.read-timeout:5s}")
+    private Duration readTimeout;
+
     @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder().baseUrl(patientServiceUrl);
+    public WebClient.Builder webClientBuilder(ObservationRegistry observationRegistry) {
+        JdkClientHttpConnector connector = new JdkClientHttpConnector(
+                HttpClient.newBuilder().connectTimeout(connectTimeout).build());
+        connector.setReadTimeout(readTimeout);
+        return WebClient.builder()
+                .baseUrl(patientServiceUrl)
+                .clientConnector(connector)
+                // Publica http.client.requests en /actuator/metrics (el builder de Spring Boot lo haría solo)
+                .observationRegistry(observationRegistry);
     }
-}
\ No newline at end of file
+}
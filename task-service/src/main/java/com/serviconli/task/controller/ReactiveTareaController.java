@@ -0,0 +1,127 @@
+package com.serviconli.task.controller;
+
+import com.serviconli.task.dto.*;
+import com.serviconli.task.exception.*;
+import com.serviconli.task.model.*;
+import com.serviconli.task.service.*;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Misma API que {@link TareaController}, pero no bloqueante: los métodos devuelven {@code Mono}/{@code Flux}
+ * y el hilo de la petición se libera mientras se espera a la base de datos o a patient-service.
+ */
+@RestController
+@RequestMapping("/api/v2/tareas")
+@RequiredArgsConstructor
+public class ReactiveTareaController {
+
+    private final ReactiveTareaService tareaService;
+
+    @Value("${task.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${task.page.max-size:200}")
+    private int maxPageSize;
+
+    // --- ENDPOINTS CRUD ---
+
+    @PostMapping
+    public Mono<ResponseEntity<TaskResponseDTO>> crearTarea(@Valid @RequestBody CreateTaskRequestDTO createTaskRequestDTO) {
+        return tareaService.crearTarea(createTaskRequestDTO)
+                .map(nuevaTarea -> new ResponseEntity<>(nuevaTarea, HttpStatus.CREATED));
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<TaskResponseDTO>> obtenerTareaPorId(@PathVariable Long id) {
+        return tareaService.obtenerTareaPorId(id)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<TaskResponseDTO>> actualizarTarea(@PathVariable Long id, @Valid @RequestBody UpdateTaskDTO updateTaskDTO) {
+        return tareaService.actualizarTarea(id, updateTaskDTO).map(ResponseEntity::ok);
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> eliminarTarea(@PathVariable Long id) {
+        return tareaService.eliminarTarea(id).then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+
+    // --- ENDPOINTS DE BÚSQUEDA Y CONSULTA ---
+
+    @GetMapping
+    public Mono<ResponseEntity<List<TaskResponseDTO>>> buscarTareas(
+            @RequestParam(required = false) String numeroIdentificacion,
+            @RequestParam(required = false) String nombrePaciente,
+            @RequestParam(required = false) EstadoTarea estado,
+            @RequestParam(required = false) Prioridad prioridad,
+            @RequestParam(required = false) TipoCita tipoCita,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaCreacionDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaCreacionHasta,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaCitaDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaCitaHasta,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "DESC") Sort.Direction sort) {
+
+        TaskPageRequestDTO pagina = new TaskPageRequestDTO(
+                (cursor == null || cursor.isBlank()) ? null : TaskCursor.decode(cursor),
+                Math.min(Math.max(size == null ? defaultPageSize : size, 1), maxPageSize),
+                sort);
+
+        TaskFilterDTO filtro = TaskFilterDTO.builder()
+                .estado(estado)
+                .prioridad(prioridad)
+                .tipoCita(tipoCita)
+                .fechaCreacionDesde(fechaCreacionDesde)
+                .fechaCreacionHasta(fechaCreacionHasta)
+                .fechaCitaDesde(fechaCitaDesde)
+                .fechaCitaHasta(fechaCitaHasta)
+                .build();
+
+        Mono<CursorPageDTO<TaskResponseDTO>> tareas;
+
+        if (numeroIdentificacion != null && !numeroIdentificacion.isBlank()) {
+            tareas = tareaService.buscarPorNumeroIdentificacionPaciente(numeroIdentificacion, pagina);
+        } else if (nombrePaciente != null && !nombrePaciente.isBlank()) {
+            tareas = tareaService.buscarPorNombrePaciente(nombrePaciente, pagina);
+        } else if (!filtro.isEmpty()) {
+            tareas = tareaService.filtrarTareasPorAtributos(filtro, pagina);
+        } else {
+            tareas = tareaService.obtenerTodasLasTareas(pagina);
+        }
+
+        return tareas.map(page -> {
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+            if (page.getNextCursor() != null) {
+                response.header(TareaController.NEXT_CURSOR_HEADER, page.getNextCursor());
+            }
+            return response.body(page.getItems());
+        });
+    }
+
+    @GetMapping("/{tareaId}/historial")
+    public Flux<HistorialTareaResponseDTO> obtenerHistorialPorTarea(@PathVariable Long tareaId) {
+        return tareaService.obtenerHistorialPorTarea(tareaId);
+    }
+
+    // --- MANEJO DE EXCEPCIONES ESPECÍFICAS DEL CONTROLADOR ---
+
+    @ExceptionHandler(PatientNotFoundException.class)
+    public ResponseEntity<String> handlePatientNotFoundException(PatientNotFoundException ex) {
+        return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
+    }
+}
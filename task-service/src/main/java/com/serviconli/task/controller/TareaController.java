@@ -1,45 +1,132 @@
 package com.serviconli.task.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.serviconli.task.dto.*;
 import com.serviconli.task.exception.*;
 import com.serviconli.task.model.*;
 import com.serviconli.task.service.*;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/tareas")
 @RequiredArgsConstructor // Usa Lombok para inyectar las dependencias final
 public class TareaController {
 
-    private final TareaService tareaService; // Única dependencia necesaria
+    // Cabecera con el token de la página siguiente; el cuerpo sigue siendo la lista de tareas
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    private final TareaService tareaService;
+    private final TareaExportService tareaExportService;
+    private final TareaStatsService tareaStatsService;
+    private final TareaAnalyticsService tareaAnalyticsService;
+    private final TareaEventosService tareaEventosService;
+    private final TareaImportService tareaImportService;
+    private final TareaBusquedaService tareaBusquedaService;
+
+    @Value("${task.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${task.page.max-size:200}")
+    private int maxPageSize;
 
     // --- ENDPOINTS CRUD ---
 
     @PostMapping
     public ResponseEntity<TaskResponseDTO> crearTarea(@Valid @RequestBody CreateTaskRequestDTO createTaskRequestDTO) {
         TaskResponseDTO nuevaTarea = tareaService.crearTarea(createTaskRequestDTO);
-        return new ResponseEntity<>(nuevaTarea, HttpStatus.CREATED);
+        return ResponseEntity.status(HttpStatus.CREATED).eTag(TaskETag.of(nuevaTarea)).body(nuevaTarea);
+    }
+
+    /**
+     * Alta masiva desde un array JSON de tareas (los mismos campos que POST /api/v1/tareas). Las filas con
+     * error se rechazan una a una sin afectar a las demás; la respuesta trae el resultado de cada fila.
+     */
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<ImportacionTareasDTO> importarTareas(@RequestBody List<JsonNode> filas) {
+        return ResponseEntity.ok(tareaImportService.importar(filas));
+    }
+
+    // Lo mismo desde un CSV en UTF-8 con encabezados, como cuerpo de la petición...
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ImportacionTareasDTO> importarTareasCsv(InputStream cuerpo) throws IOException {
+        return ResponseEntity.ok(importarCsv(cuerpo));
+    }
+
+    // ...o subido como archivo de un formulario
+    @PostMapping(value = "/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<ImportacionTareasDTO> importarTareasArchivo(@RequestParam("archivo") MultipartFile archivo) throws IOException {
+        try (InputStream contenido = archivo.getInputStream()) {
+            return ResponseEntity.ok(importarCsv(contenido));
+        }
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<TaskResponseDTO> obtenerTareaPorId(@PathVariable Long id) {
+    public ResponseEntity<TaskResponseDTO> obtenerTareaPorId(
+            @PathVariable Long id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // If-None-Match se resuelve con una lectura de la versión, sin cargar la tarea ni el paciente
+        if (ifNoneMatch != null) {
+            String etag = tareaService.obtenerEtag(id).orElse(null);
+            if (TaskETag.matches(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+        }
         // Manejo elegante del Optional devuelto por el servicio
         return tareaService.obtenerTareaPorId(id)
-                .map(ResponseEntity::ok) // Si la tarea existe, devuelve 200 OK con la tarea
+                .map(tarea -> ResponseEntity.ok().eTag(TaskETag.of(tarea)).body(tarea)) // Si la tarea existe, devuelve 200 OK con la tarea
                 .orElse(ResponseEntity.notFound().build()); // Si no, devuelve 404 Not Found
     }
 
+    // Con If-Match (el ETag de la última lectura) el cambio solo se aplica si nadie ha modificado la tarea: si no, 412
     @PutMapping("/{id}")
-    public ResponseEntity<TaskResponseDTO> actualizarTarea(@PathVariable Long id, @Valid @RequestBody UpdateTaskDTO updateTaskDTO) {
-        TaskResponseDTO tareaActualizada = tareaService.actualizarTarea(id, updateTaskDTO);
-        return ResponseEntity.ok(tareaActualizada);
+    public ResponseEntity<TaskResponseDTO> actualizarTarea(
+            @PathVariable Long id,
+            @Valid @RequestBody UpdateTaskDTO updateTaskDTO,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        TaskResponseDTO tareaActualizada = tareaService.actualizarTarea(id, updateTaskDTO, ifMatch);
+        return ResponseEntity.ok().eTag(TaskETag.of(tareaActualizada)).body(tareaActualizada);
+    }
+
+    /**
+     * Cambio parcial con JSON Merge Patch: solo los campos presentes en el cuerpo ({@code null} borra el valor).
+     * La respuesta no incluye {@code paciente}, que un PATCH no puede cambiar.
+     */
+    @PatchMapping(value = "/{id}", consumes = {"application/merge-patch+json", MediaType.APPLICATION_JSON_VALUE})
+    public ResponseEntity<TaskResponseDTO> parchearTarea(
+            @PathVariable Long id,
+            @RequestBody JsonNode mergePatch,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        TaskResponseDTO tarea = tareaService.parchearTarea(id, mergePatch, ifMatch);
+        return ResponseEntity.ok().eTag(TaskETag.of(tarea)).body(tarea);
+    }
+
+    // Varias tareas a un mismo estado en una sola operación (p. ej. PENDIENTE -> EN_PROGRESO al empezar el día)
+    @PostMapping("/transitions")
+    public ResponseEntity<TransicionEstadoResultadoDTO> cambiarEstado(@Valid @RequestBody TransicionEstadoDTO transicion) {
+        return ResponseEntity.ok(tareaService.cambiarEstado(transicion));
     }
 
     @DeleteMapping("/{id}")
@@ -58,26 +145,128 @@ public class TareaController {
             // Filtros por atributos de la tarea
             @RequestParam(required = false) EstadoTarea estado,
             @RequestParam(required = false) Prioridad prioridad,
-            @RequestParam(required = false) TipoCita tipoCita) {
+            @RequestParam(required = false) TipoCita tipoCita,
+            // Rangos de fechas (yyyy-MM-dd, inclusivos)
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaCreacionDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaCreacionHasta,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaCitaDesde,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fechaCitaHasta,
+            // Paginación por cursor: el cursor es el valor de X-Next-Cursor de la respuesta anterior
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size,
+            @RequestParam(defaultValue = "DESC") Sort.Direction sort,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
 
-        List<TaskResponseDTO> tareas;
+        TaskPageRequestDTO pagina = new TaskPageRequestDTO(
+                (cursor == null || cursor.isBlank()) ? null : TaskCursor.decode(cursor),
+                Math.min(Math.max(size == null ? defaultPageSize : size, 1), maxPageSize),
+                sort,
+                ifNoneMatch);
+
+        TaskFilterDTO filtro = TaskFilterDTO.builder()
+                .estado(estado)
+                .prioridad(prioridad)
+                .tipoCita(tipoCita)
+                .fechaCreacionDesde(fechaCreacionDesde)
+                .fechaCreacionHasta(fechaCreacionHasta)
+                .fechaCitaDesde(fechaCitaDesde)
+                .fechaCitaHasta(fechaCitaHasta)
+                .build();
+
+        CursorPageDTO<TaskResponseDTO> tareas;
 
         if (numeroIdentificacion != null && !numeroIdentificacion.isBlank()) {
-            tareas = tareaService.buscarPorNumeroIdentificacionPaciente(numeroIdentificacion);
+            tareas = tareaService.buscarPorNumeroIdentificacionPaciente(numeroIdentificacion, pagina);
         } else if (nombrePaciente != null && !nombrePaciente.isBlank()) {
-            tareas = tareaService.buscarPorNombrePaciente(nombrePaciente);
-        } else if (estado != null || prioridad != null || tipoCita != null) {
-            tareas = tareaService.filtrarTareasPorAtributos(
-                    Optional.ofNullable(estado),
-                    Optional.ofNullable(prioridad),
-                    Optional.ofNullable(tipoCita)
-            );
+            tareas = tareaService.buscarPorNombrePaciente(nombrePaciente, pagina);
+        } else if (!filtro.isEmpty()) {
+            tareas = tareaService.filtrarTareasPorAtributos(filtro, pagina);
         } else {
-            // Si no hay ningún parámetro, devuelve todas las tareas
-            tareas = tareaService.obtenerTodasLasTareas();
+            // Si no hay ningún parámetro, devuelve todas las tareas (página a página)
+            tareas = tareaService.obtenerTodasLasTareas(pagina);
         }
 
-        return ResponseEntity.ok(tareas);
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(tareas.isNoModificada() ? HttpStatus.NOT_MODIFIED : HttpStatus.OK);
+        if (tareas.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, tareas.getNextCursor());
+        }
+        if (tareas.getEtag() != null) {
+            response.eTag(tareas.getEtag());
+        }
+        return tareas.isNoModificada() ? response.build() : response.body(tareas.getItems());
+    }
+
+    /**
+     * Búsqueda de texto por relevancia en especialidad, observación, especificaciones, información de la cita,
+     * doctor y radicado (sin distinguir tildes ni mayúsculas). Se pagina igual que el listado, con X-Next-Cursor.
+     */
+    @GetMapping("/buscar")
+    public ResponseEntity<List<TaskResponseDTO>> buscarTexto(
+            @RequestParam String q,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer size) {
+        CursorPageDTO<TaskResponseDTO> resultados = tareaBusquedaService.buscar(
+                q, cursor, Math.min(Math.max(size == null ? defaultPageSize : size, 1), maxPageSize));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (resultados.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, resultados.getNextCursor());
+        }
+        return response.body(resultados.getItems());
+    }
+
+    // Conteos del tablero desde memoria: no consulta la base de datos ni patient-service
+    @GetMapping("/stats")
+    public ResponseEntity<TaskStatsDTO> obtenerEstadisticas() {
+        return ResponseEntity.ok(tareaStatsService.obtenerEstadisticas());
+    }
+
+    // Tiempo en cada estado, completadas por día (últimos 'dias') y lead time p50/p90, por tipo de cita y prioridad
+    @GetMapping("/analytics")
+    public ResponseEntity<TaskAnalyticsDTO> obtenerAnalitica(@RequestParam(defaultValue = "30") int dias) {
+        return ResponseEntity.ok(tareaAnalyticsService.obtenerAnalitica(Math.min(Math.max(dias, 1), 366)));
+    }
+
+    /**
+     * Descarga todas las tareas enriquecidas como NDJSON o CSV, opcionalmente comprimidas con gzip.
+     * La respuesta se escribe mientras se lee la base de datos, así que su tamaño no afecta a la memoria.
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportarTareas(
+            @RequestParam(defaultValue = "ndjson") String formato,
+            @RequestParam(defaultValue = "false") boolean gzip) {
+
+        FormatoExportacion formatoExportacion = FormatoExportacion.parse(formato);
+        String archivo = "tareas." + formatoExportacion.getExtension() + (gzip ? ".gz" : "");
+
+        StreamingResponseBody body = salida -> {
+            if (gzip) {
+                GZIPOutputStream comprimida = new GZIPOutputStream(salida, 64 * 1024);
+                tareaExportService.exportar(formatoExportacion, comprimida);
+                comprimida.finish();
+            } else {
+                tareaExportService.exportar(formatoExportacion, salida);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : formatoExportacion.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(archivo).build().toString())
+                .body(body);
+    }
+
+    /**
+     * Cambios de tareas en tiempo real (Server-Sent Events): eventos {@code tarea}, {@code recordatorio} y
+     * {@code reset}. El navegador manda {@code Last-Event-ID} al reconectarse y recibe solo lo que se perdió;
+     * un cliente que abre una conexión nueva puede pasar el mismo id en {@code lastEventId}.
+     */
+    @GetMapping(value = "/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter suscribirEventos(
+            @RequestParam(required = false) EstadoTarea estado,
+            @RequestParam(required = false) String numeroIdentificacion,
+            @RequestParam(required = false) String lastEventId,
+            @RequestHeader(value = "Last-Event-ID", required = false) String lastEventIdHeader) {
+        return tareaEventosService.suscribir(estado, numeroIdentificacion,
+                lastEventIdHeader != null ? lastEventIdHeader : lastEventId);
     }
 
     @GetMapping("/{tareaId}/historial")
@@ -86,6 +275,11 @@ public class TareaController {
         return ResponseEntity.ok(historial);
     }
 
+    private ImportacionTareasDTO importarCsv(InputStream contenido) throws IOException {
+        Reader reader = new InputStreamReader(contenido, StandardCharsets.UTF_8);
+        return tareaImportService.importar(tareaImportService.leerCsv(reader));
+    }
+
     // --- MANEJO DE EXCEPCIONES ESPECÍFICAS DEL CONTROLADOR ---
 
     @ExceptionHandler(PatientNotFoundException.class)
@@ -93,4 +287,10 @@ public class TareaController {
         // Devuelve un 404 cuando el paciente no se encuentra en patient-service
         return new ResponseEntity<>(ex.getMessage(), HttpStatus.NOT_FOUND);
     }
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<String> handleOptimisticLockingFailure(ObjectOptimisticLockingFailureException ex) {
+        // Otra petición cambió la tarea entre la lectura y el commit
+        return new ResponseEntity<>("La tarea cambió mientras se actualizaba; vuelva a cargarla", HttpStatus.CONFLICT);
+    }
 }
\ No newline at end of file
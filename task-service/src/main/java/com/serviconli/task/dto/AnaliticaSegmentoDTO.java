@@ -0,0 +1,27 @@
+package com.serviconli.task.dto;
+
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.Prioridad;
+import com.serviconli.task.model.TipoCita;
+import lombok.*;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * Métricas de un segmento (tipoCita, prioridad). El segmento con ambos en null es el total.
+ */
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnaliticaSegmentoDTO {
+    private TipoCita tipoCita;
+    private Prioridad prioridad;
+    private Map<EstadoTarea, TiempoEnEstadoDTO> tiempoEnEstado;
+    private Map<LocalDate, Long> completadasPorDia;  // Throughput: tareas que llegaron a COMPLETADA cada día
+    private long completadas;
+    private Double leadTimeP50Horas;                 // Desde la creación (PENDIENTE) hasta COMPLETADA
+    private Double leadTimeP90Horas;
+}
@@ -0,0 +1,29 @@
+package com.serviconli.task.dto;
+
+import com.serviconli.task.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Posición dentro de una búsqueda de texto: la última (relevancia, id) entregada y cuántos resultados van.
+ * Viaja al cliente como un token opaco en Base64 URL-safe, como {@link TaskCursor}.
+ */
+public record BusquedaCursor(int entregados, double relevancia, long id) {
+
+    private static final String SEPARADOR = "|";
+
+    public String encode() {
+        String raw = entregados + SEPARADOR + relevancia + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static BusquedaCursor decode(String token) {
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\|");
+            return new BusquedaCursor(Integer.parseInt(partes[0]), Double.parseDouble(partes[1]), Long.parseLong(partes[2]));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new InvalidCursorException("Cursor de búsqueda inválido: " + token);
+        }
+    }
+}
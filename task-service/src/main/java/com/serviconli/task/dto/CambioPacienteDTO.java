@@ -0,0 +1,17 @@
+package com.serviconli.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambioPacienteDTO {
+    private Long version;
+    private String numeroIdentificacion;
+    private String tipo; // "UPSERT" o "DELETE"
+    private PatientInfoDTO paciente; // null en los DELETE
+}
@@ -0,0 +1,19 @@
+package com.serviconli.task.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+
+import java.util.List;
+
+// Una página de GET /api/v1/patients/changes de patient-service
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CambiosPacienteDTO {
+    private List<CambioPacienteDTO> cambios;
+    private Long siguiente; // since de la página siguiente
+    private boolean hayMas;
+}
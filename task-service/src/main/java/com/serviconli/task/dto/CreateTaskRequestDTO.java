@@ -50,5 +50,6 @@ public class CreateTaskRequestDTO {
         private String lugarCita;
         private String informacionCita;
         private String confirmacionCita;
+        private LocalDateTime fechaRecordatorio; // Cuándo avisar de la tarea (opcional)
 
     }
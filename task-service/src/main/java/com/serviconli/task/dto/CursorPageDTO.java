@@ -0,0 +1,21 @@
+package com.serviconli.task.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPageDTO<T> {
+    private List<T> items;
+    private String nextCursor; // null cuando no hay más páginas
+    private String etag;
+    private boolean noModificada; // la página coincide con If-None-Match: items es null
+
+    public CursorPageDTO(List<T> items, String nextCursor) {
+        this(items, nextCursor, null, false);
+    }
+}
@@ -0,0 +1,18 @@
+package com.serviconli.task.dto;
+
+import lombok.*;
+
+/**
+ * Resultado de una fila de POST /api/v1/tareas/import: el id de la tarea creada o el motivo del rechazo.
+ */
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class FilaImportacionDTO {
+
+    private int fila;       // Posición en el archivo, desde 1 (sin contar el encabezado del CSV)
+    private Long tareaId;   // null si la fila no se importó
+    private String error;   // null si la fila se importó
+}
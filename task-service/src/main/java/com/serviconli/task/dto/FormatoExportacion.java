@@ -0,0 +1,37 @@
+package com.serviconli.task.dto;
+
+import com.serviconli.task.exception.InvalidExportFormatException;
+
+/**
+ * Formatos de GET /api/v1/tareas/export.
+ */
+public enum FormatoExportacion {
+
+    NDJSON("application/x-ndjson", "ndjson"), // Un TaskResponseDTO en JSON por línea
+    CSV("text/csv", "csv");                  // Las mismas columnas que la hoja de Google Sheets
+
+    private final String contentType;
+    private final String extension;
+
+    FormatoExportacion(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static FormatoExportacion parse(String valor) {
+        for (FormatoExportacion formato : values()) {
+            if (formato.extension.equalsIgnoreCase(valor)) {
+                return formato;
+            }
+        }
+        throw new InvalidExportFormatException("Formato de exportación no soportado: " + valor + " (use ndjson o csv)");
+    }
+}
@@ -0,0 +1,18 @@
+package com.serviconli.task.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportacionTareasDTO {
+
+    private int total;
+    private int creadas;
+    private int rechazadas;
+    private List<FilaImportacionDTO> filas; // Una por fila, en el orden del archivo
+}
@@ -0,0 +1,18 @@
+package com.serviconli.task.dto;
+
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskAnalyticsDTO {
+    private AnaliticaSegmentoDTO total;
+    private List<AnaliticaSegmentoDTO> segmentos;  // Uno por cada (tipoCita, prioridad) con historial
+    private long ultimoHistorialId;                // Hasta dónde se ha procesado historial_tareas
+    private LocalDateTime calculadoEn;
+}
@@ -0,0 +1,37 @@
+package com.serviconli.task.dto;
+
+import com.serviconli.task.exception.InvalidCursorException;
+import com.serviconli.task.model.Tarea;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posición dentro del listado de tareas: la última (fechaCreacion, id) entregada.
+ * Viaja al cliente como un token opaco en Base64 URL-safe.
+ */
+public record TaskCursor(LocalDateTime fechaCreacion, Long id) {
+
+    private static final String SEPARADOR = "|";
+
+    public static TaskCursor of(Tarea tarea) {
+        return new TaskCursor(tarea.getFechaCreacion(), tarea.getId());
+    }
+
+    public String encode() {
+        String raw = fechaCreacion + SEPARADOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static TaskCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int i = raw.lastIndexOf(SEPARADOR);
+            return new TaskCursor(LocalDateTime.parse(raw.substring(0, i)), Long.parseLong(raw.substring(i + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new InvalidCursorException("Cursor de paginación inválido: " + token);
+        }
+    }
+}
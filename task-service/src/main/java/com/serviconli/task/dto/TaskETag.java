@@ -0,0 +1,75 @@
+package com.serviconli.task.dto;
+
+import com.serviconli.task.model.Tarea;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * ETags de las tareas, calculados solo con columnas de la tabla {@code tareas} ({@code version} y
+ * {@code fechaActualizacion}): se pueden comparar sin pedir nada a patient-service. Por lo mismo, un cambio
+ * en los datos del paciente no cambia el ETag de sus tareas.
+ */
+public final class TaskETag {
+
+    private TaskETag() {
+    }
+
+    // fechaActualizacion va en segundos: MySQL puede guardar menos decimales de los que tiene en memoria
+    public static String of(Long version, LocalDateTime fechaActualizacion) {
+        long segundos = fechaActualizacion == null ? 0 : fechaActualizacion.toEpochSecond(ZoneOffset.UTC);
+        return "\"" + version + "-" + Long.toHexString(segundos) + "\"";
+    }
+
+    public static String of(Tarea tarea) {
+        return of(tarea.getVersion(), tarea.getFechaActualizacion());
+    }
+
+    public static String of(TaskResponseDTO tarea) {
+        return of(tarea.getVersion(), tarea.getFechaActualizacion());
+    }
+
+    /**
+     * ETag de una página del listado: cambia si entra, sale o se modifica alguna tarea de la página.
+     */
+    public static String ofPage(List<Tarea> tareas, String nextCursor) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (Tarea tarea : tareas) {
+                digest.update((tarea.getId() + ":" + of(tarea) + ";").getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update(String.valueOf(nextCursor).getBytes(StandardCharsets.UTF_8));
+            return "\"p-" + HexFormat.of().formatHex(digest.digest(), 0, 12) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Comprueba una cabecera If-Match / If-None-Match ({@code *} o una lista de ETags separados por comas)
+     * contra el ETag actual. Los ETags débiles ({@code W/"..."}) se comparan por su valor.
+     */
+    public static boolean matches(String header, String etag) {
+        if (header == null || etag == null) {
+            return false;
+        }
+        for (String candidato : header.split(",")) {
+            String valor = candidato.trim();
+            if (valor.equals("*")) {
+                return true;
+            }
+            if (valor.startsWith("W/")) {
+                valor = valor.substring(2);
+            }
+            if (valor.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,34 @@
+package com.serviconli.task.dto;
+
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.Prioridad;
+import com.serviconli.task.model.TipoCita;
+import lombok.*;
+
+import java.time.LocalDate;
+
+/**
+ * Filtros por atributos de la tarea. Todos son opcionales y los rangos de fechas son inclusivos.
+ */
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class TaskFilterDTO {
+    private EstadoTarea estado;
+    private Prioridad prioridad;
+    private TipoCita tipoCita;
+
+    private LocalDate fechaCreacionDesde;
+    private LocalDate fechaCreacionHasta;
+    private LocalDate fechaCitaDesde;
+    private LocalDate fechaCitaHasta;
+
+    public boolean isEmpty() {
+        return estado == null && prioridad == null && tipoCita == null
+                && fechaCreacionDesde == null && fechaCreacionHasta == null
+                && fechaCitaDesde == null && fechaCitaHasta == null;
+    }
+}
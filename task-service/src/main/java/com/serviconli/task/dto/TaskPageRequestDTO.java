@@ -0,0 +1,23 @@
+package com.serviconli.task.dto;
+
+import lombok.*;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Parámetros de una página de tareas con paginación por cursor (keyset) sobre (fecha_creacion, id).
+ */
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskPageRequestDTO {
+    private TaskCursor cursor;      // null = primera página
+    private int size;
+    private Sort.Direction sort;    // orden por fecha de creación (y luego por id)
+    private String ifNoneMatch;     // cabecera If-None-Match: si la página no cambió no se enriquece
+
+    public TaskPageRequestDTO(TaskCursor cursor, int size, Sort.Direction sort) {
+        this(cursor, size, sort, null);
+    }
+}
@@ -29,6 +29,7 @@ public class TaskResponseDTO {
     private String observacion;
     private LocalDateTime fechaCreacion;
     private LocalDateTime fechaActualizacion;
+    private Long version; // Para If-Match en PUT
 
     // --- Info del Paciente (obtenida de patient-service) ---
     private PatientInfoDTO paciente;
@@ -42,4 +43,5 @@ public class TaskResponseDTO {
     private String lugarCita;
     private String informacionCita;
     private String confirmacionCita;
+    private LocalDateTime fechaRecordatorio;
 }
\ No newline at end of file
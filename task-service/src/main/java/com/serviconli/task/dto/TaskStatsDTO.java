@@ -0,0 +1,22 @@
+package com.serviconli.task.dto;
+
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.Prioridad;
+import com.serviconli.task.model.TipoCita;
+import lombok.*;
+
+import java.util.Map;
+
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TaskStatsDTO {
+    private long total;
+    private Map<EstadoTarea, Long> porEstado;     // Todos los estados, incluso los que tienen 0
+    private Map<Prioridad, Long> porPrioridad;
+    private Map<TipoCita, Long> porTipoCita;
+    private long citasHoy;                        // Tareas con fechaCita = hoy
+    private long recordatoriosVencidos;           // fechaRecordatorio ya pasó y la tarea no está COMPLETADA
+}
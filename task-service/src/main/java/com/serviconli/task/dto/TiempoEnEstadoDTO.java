@@ -0,0 +1,14 @@
+package com.serviconli.task.dto;
+
+import lombok.*;
+
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TiempoEnEstadoDTO {
+    private long estancias;        // Veces que una tarea salió de este estado
+    private double horasPromedio;
+    private double horasTotales;
+}
@@ -0,0 +1,25 @@
+package com.serviconli.task.dto;
+
+import com.serviconli.task.model.EstadoTarea;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.*;
+
+import java.util.Set;
+
+/**
+ * Cuerpo de POST /api/v1/tareas/transitions: pasar varias tareas a un mismo estado.
+ */
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransicionEstadoDTO {
+
+    @NotEmpty(message = "Debe indicar al menos una tarea.")
+    private Set<@NotNull Long> ids;
+
+    @NotNull(message = "El estado destino es obligatorio.")
+    private EstadoTarea estado;
+}
@@ -0,0 +1,19 @@
+package com.serviconli.task.dto;
+
+import com.serviconli.task.model.EstadoTarea;
+import lombok.*;
+
+import java.util.List;
+
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransicionEstadoResultadoDTO {
+
+    private EstadoTarea estado;
+    private List<Long> actualizadas;   // Cambiaron de estado
+    private List<Long> sinCambios;     // Ya estaban en ese estado: no se tocan
+    private List<Long> noEncontradas;
+}
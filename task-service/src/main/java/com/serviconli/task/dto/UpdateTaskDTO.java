@@ -6,6 +6,7 @@ import jakarta.validation.constraints.Size;
 import lombok.*;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Getter
 @Setter
@@ -53,4 +54,6 @@ public class UpdateTaskDTO {
 
     @Size(max = 255)
     private String confirmacionCita;
+
+    private LocalDateTime fechaRecordatorio;
 }
\ No newline at end of file
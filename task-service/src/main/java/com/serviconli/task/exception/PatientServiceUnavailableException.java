@@ -0,0 +1,11 @@
+package com.serviconli.task.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class PatientServiceUnavailableException extends RuntimeException {
+    public PatientServiceUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
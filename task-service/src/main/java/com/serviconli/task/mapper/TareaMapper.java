@@ -0,0 +1,79 @@
+package com.serviconli.task.mapper;
+
+import com.serviconli.task.dto.CreateTaskRequestDTO;
+import com.serviconli.task.dto.HistorialTareaResponseDTO;
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.dto.TaskResponseDTO;
+import com.serviconli.task.dto.UpdateTaskDTO;
+import com.serviconli.task.model.HistorialTarea;
+import com.serviconli.task.model.HistorialTareaRow;
+import com.serviconli.task.model.Tarea;
+import com.serviconli.task.model.TareaRow;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+import org.mapstruct.MappingConstants;
+import org.mapstruct.MappingTarget;
+import org.mapstruct.ReportingPolicy;
+
+/**
+ * Conversión de tareas e historial a sus DTOs de respuesta, y de los formularios a tareas. MapStruct genera la implementación al compilar
+ * (TareaMapperImpl, un bean de Spring) con getters y setters directos, sin reflexión en cada fila.
+ *
+ * <p>Con {@code unmappedTargetPolicy = ERROR}, un campo nuevo en un DTO que no tenga origen rompe la compilación
+ * en lugar de salir siempre a null.
+ */
+@Mapper(componentModel = MappingConstants.ComponentModel.SPRING, unmappedTargetPolicy = ReportingPolicy.ERROR)
+public interface TareaMapper {
+
+    @Mapping(target = "paciente", ignore = true)
+    TaskResponseDTO toResponse(Tarea tarea);
+
+    @Mapping(target = "paciente", ignore = true)
+    TaskResponseDTO toResponse(TareaRow tarea);
+
+    @Mapping(target = "tareaId", source = "tarea.id")
+    HistorialTareaResponseDTO toResponse(HistorialTarea historial);
+
+    HistorialTareaResponseDTO toResponse(HistorialTareaRow historial);
+
+    // Alta: el id, las fechas de creación, la versión y el recordatorio los pone el servidor
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "fechaCreacion", ignore = true)
+    @Mapping(target = "fechaActualizacion", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "recordatorioEnviado", ignore = true)
+    @Mapping(target = "historial", ignore = true)
+    Tarea toTarea(CreateTaskRequestDTO dto);
+
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "fechaCreacion", ignore = true)
+    @Mapping(target = "fechaActualizacion", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "recordatorioEnviado", ignore = true)
+    TareaRow toTareaRow(CreateTaskRequestDTO dto);
+
+    // PUT de la API v2: todos los campos del formulario se copian, también los que vienen a null
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "pacienteNumeroIdentificacion", ignore = true)
+    @Mapping(target = "fechaCreacion", ignore = true)
+    @Mapping(target = "fechaActualizacion", ignore = true)
+    @Mapping(target = "version", ignore = true)
+    @Mapping(target = "recordatorioEnviado", ignore = true)
+    void actualizar(UpdateTaskDTO dto, @MappingTarget TareaRow tarea);
+
+    // PATCH: el parche JSON se aplica sobre el formulario de actualización relleno con los valores actuales
+    UpdateTaskDTO toUpdate(Tarea tarea);
+
+    // El paciente viene de otro servicio (o de la réplica): se añade al DTO ya mapeado
+    default TaskResponseDTO toResponse(Tarea tarea, PatientInfoDTO paciente) {
+        TaskResponseDTO dto = toResponse(tarea);
+        dto.setPaciente(paciente);
+        return dto;
+    }
+
+    default TaskResponseDTO toResponse(TareaRow tarea, PatientInfoDTO paciente) {
+        TaskResponseDTO dto = toResponse(tarea);
+        dto.setPaciente(paciente);
+        return dto;
+    }
+}
@@ -0,0 +1,8 @@
+package com.serviconli.task.model;
+
+public enum EstadoOutbox {
+
+    PENDIENTE,
+    ENVIADO,
+    FALLIDO // dead-letter: agotó los reintentos y requiere revisión manual
+}
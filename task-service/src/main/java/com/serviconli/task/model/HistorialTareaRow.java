@@ -0,0 +1,41 @@
+package com.serviconli.task.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDateTime;
+
+/**
+ * Vista R2DBC de la tabla {@code historial_tareas} (ver {@link HistorialTarea}).
+ */
+@Table("historial_tareas")
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HistorialTareaRow {
+
+    @Id
+    private Long id;
+
+    @Column("tarea_id")
+    private Long tareaId;
+
+    @Column("estado_anterior")
+    private EstadoTarea estadoAnterior;
+
+    @Column("estado_nuevo")
+    private EstadoTarea estadoNuevo;
+
+    @Column("fecha_cambio")
+    private LocalDateTime fechaCambio;
+
+    @Column("usuario_cambio")
+    private String usuarioCambio;
+
+    @Column("descripcion_cambio")
+    private String descripcionCambio;
+}
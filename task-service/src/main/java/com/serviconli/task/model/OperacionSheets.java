@@ -0,0 +1,8 @@
+package com.serviconli.task.model;
+
+public enum OperacionSheets {
+
+    CREAR,
+    ACTUALIZAR,
+    ELIMINAR
+}
@@ -0,0 +1,77 @@
+package com.serviconli.task.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+/**
+ * Copia local del resumen de cada paciente (los campos de PatientInfoDTO), mantenida al día con el feed de
+ * cambios de patient-service. Permite enriquecer las tareas sin llamar a patient-service.
+ *
+ * <p>Esta entidad solo mantiene el esquema: las filas las escribe PacienteResumenWriter con JDBC y se leen
+ * con {@link PacienteResumenRow}.
+ */
+@Entity
+@Table(name = "paciente_resumen")
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PacienteResumen {
+
+    @Id
+    @Column(name = "numero_identificacion", length = 50)
+    private String numeroIdentificacion;
+
+    @Column(name = "tipo_paciente", length = 20)
+    private String tipoPaciente;
+
+    @Column(name = "paciente_id")
+    private Long pacienteId;
+
+    @Column(name = "nombre_completo")
+    private String nombreCompleto;
+
+    @Column(name = "tipo_identificacion", length = 50)
+    private String tipoIdentificacion;
+
+    @Column(name = "fecha_nacimiento")
+    private String fechaNacimiento;
+
+    @Column(name = "fecha_expedicion")
+    private String fechaExpedicion;
+
+    private String celular;
+
+    private String correo;
+
+    @Column(name = "direccion_residencia")
+    private String direccionResidencia;
+
+    @Column(length = 20)
+    private String estado;
+
+    @Column(length = 50)
+    private String parentesco;
+
+    @Column(length = 50)
+    private String eps;
+
+    @Column(name = "info_adicional", length = 1000)
+    private String infoAdicional;
+
+    @Column(name = "cotizante_id")
+    private Long cotizanteId;
+
+    @Column(name = "cotizante_nombre_completo")
+    private String cotizanteNombreCompleto;
+
+    @Column(name = "cotizante_tipo_identificacion", length = 50)
+    private String cotizanteTipoIdentificacion;
+
+    @Column(name = "cotizante_numero_identificacion", length = 50)
+    private String cotizanteNumeroIdentificacion;
+
+    @Column(nullable = false)
+    private Long version; // Cambio del feed que dejó la fila así
+}
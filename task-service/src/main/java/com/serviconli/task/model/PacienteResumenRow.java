@@ -0,0 +1,67 @@
+package com.serviconli.task.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Vista R2DBC de la tabla {@code paciente_resumen}. El esquema lo mantiene la entidad JPA {@link PacienteResumen}.
+ */
+@Table("paciente_resumen")
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PacienteResumenRow {
+
+    @Id
+    @Column("numero_identificacion")
+    private String numeroIdentificacion;
+
+    @Column("tipo_paciente")
+    private String tipoPaciente;
+
+    @Column("paciente_id")
+    private Long pacienteId;
+
+    @Column("nombre_completo")
+    private String nombreCompleto;
+
+    @Column("tipo_identificacion")
+    private String tipoIdentificacion;
+
+    @Column("fecha_nacimiento")
+    private String fechaNacimiento;
+
+    @Column("fecha_expedicion")
+    private String fechaExpedicion;
+
+    private String celular;
+    private String correo;
+
+    @Column("direccion_residencia")
+    private String direccionResidencia;
+
+    private String estado;
+    private String parentesco;
+    private String eps;
+
+    @Column("info_adicional")
+    private String infoAdicional;
+
+    @Column("cotizante_id")
+    private Long cotizanteId;
+
+    @Column("cotizante_nombre_completo")
+    private String cotizanteNombreCompleto;
+
+    @Column("cotizante_tipo_identificacion")
+    private String cotizanteTipoIdentificacion;
+
+    @Column("cotizante_numero_identificacion")
+    private String cotizanteNumeroIdentificacion;
+
+    private Long version;
+}
@@ -0,0 +1,30 @@
+package com.serviconli.task.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Hasta dónde se ha aplicado un feed de cambios de otro servicio (hoy solo el de pacientes).
+ * Es compartido por todas las instancias de task-service: la que lo avanza es la que aplica la página.
+ */
+@Entity
+@Table(name = "replica_cursores")
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReplicaCursor {
+
+    @Id
+    @Column(length = 50)
+    private String nombre;
+
+    @Column(nullable = false)
+    private Long version;
+
+    @Column(name = "fecha_actualizacion", nullable = false)
+    private LocalDateTime fechaActualizacion;
+}
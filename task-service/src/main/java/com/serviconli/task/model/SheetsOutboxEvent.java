@@ -0,0 +1,64 @@
+package com.serviconli.task.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Cambio pendiente de reflejar en Google Sheets. Se escribe en la misma transacción que la tarea
+ * y lo consume {@code SheetsOutboxDispatcher} en segundo plano.
+ */
+@Entity
+@Table(name = "sheets_outbox", indexes = {
+        @Index(name = "idx_sheets_outbox_estado_id", columnList = "estado, id"),
+        @Index(name = "idx_sheets_outbox_tarea_estado_id", columnList = "tarea_id, estado, id")
+})
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SheetsOutboxEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "tarea_id", nullable = false)
+    private Long tareaId; // Sin FK: el evento de ELIMINAR sobrevive a la tarea
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private OperacionSheets operacion;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private EstadoOutbox estado;
+
+    @Column(nullable = false)
+    private int intentos;
+
+    @Column(name = "proximo_intento", nullable = false)
+    private LocalDateTime proximoIntento;
+
+    @Column(name = "ultimo_error", length = 1000)
+    private String ultimoError;
+
+    @Column(name = "fecha_creacion", nullable = false)
+    private LocalDateTime fechaCreacion;
+
+    @Column(name = "fecha_procesado")
+    private LocalDateTime fechaProcesado;
+
+    @PrePersist
+    protected void onCreate() {
+        fechaCreacion = LocalDateTime.now();
+        if (proximoIntento == null) {
+            proximoIntento = fechaCreacion;
+        }
+        if (estado == null) {
+            estado = EstadoOutbox.PENDIENTE;
+        }
+    }
+}
@@ -4,13 +4,26 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
 import lombok.*;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "tareas")
+@Table(name = "tareas", indexes = {
+        // Paginación keyset del listado general y de las búsquedas por paciente
+        @Index(name = "idx_tareas_fecha_creacion_id", columnList = "fecha_creacion, id"),
+        @Index(name = "idx_tareas_paciente_fecha_creacion", columnList = "paciente_numero_identificacion, fecha_creacion, id"),
+        // Filtro por atributos (GET /api/v1/tareas?estado=&prioridad=&tipoCita=) ya en el orden keyset
+        // (fecha_creacion, id): la página sale del índice sin ordenar. Y por rango de fecha de cita
+        @Index(name = "idx_tareas_estado_prioridad_tipo_fecha", columnList = "estado, prioridad, tipo_cita, fecha_creacion, id"),
+        @Index(name = "idx_tareas_fecha_cita", columnList = "fecha_cita"),
+        // Carga por ventana de los próximos recordatorios (RecordatorioScheduler)
+        @Index(name = "idx_tareas_fecha_recordatorio", columnList = "fecha_recordatorio")
+})
+@DynamicUpdate // El UPDATE lleva solo las columnas que cambiaron
 @Data
 @Setter
 @Getter
@@ -71,6 +84,11 @@ public class Tarea {
     @Column(name = "fecha_actualizacion", nullable = false)
     private LocalDateTime fechaActualizacion; // se hace un cambio en la tarea
 
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version; // Bloqueo optimista; junto con fechaActualizacion forma el ETag
+
     // --- Datos de la Cita Asignada ---
     @Column(name = "fecha_cita")
     private LocalDate fechaCita;
@@ -96,6 +114,10 @@ public class Tarea {
     @Column(name = "fecha_recordatorio")
     private LocalDateTime fechaRecordatorio;
 
+    @ColumnDefault("false")
+    @Column(name = "recordatorio_enviado", nullable = false)
+    private boolean recordatorioEnviado; // Se vuelve a false cuando cambia fechaRecordatorio
+
     @OneToMany(mappedBy = "tarea", cascade = CascadeType.ALL, orphanRemoval = true)
     @JsonIgnore // Importante para evitar bucles infinitos al serializar a JSON
     private List<HistorialTarea> historial;
@@ -0,0 +1,79 @@
+package com.serviconli.task.model;
+
+import lombok.*;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Vista R2DBC de la tabla {@code tareas} para la API reactiva (/api/v2/tareas).
+ * El esquema lo sigue manteniendo la entidad JPA {@link Tarea}; aquí solo se mapean las mismas columnas.
+ */
+@Table("tareas")
+@Data
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TareaRow {
+
+    @Id
+    private Long id;
+
+    @Column("paciente_numero_identificacion")
+    private String pacienteNumeroIdentificacion;
+
+    @Column("tipo_cita")
+    private TipoCita tipoCita;
+
+    private String especialidad;
+    private String autorizacion;
+    private String orden;
+    private String radicado;
+    private Prioridad prioridad;
+    private String especificaciones;
+    private String observacion;
+    private EstadoTarea estado;
+
+    @Column("fecha_solicitud_serviconli")
+    private LocalDate fechaSolicitudServiconli;
+
+    @Column("fecha_creacion")
+    private LocalDateTime fechaCreacion;
+
+    @Column("fecha_actualizacion")
+    private LocalDateTime fechaActualizacion;
+
+    @Version
+    private Long version;
+
+    @Column("fecha_cita")
+    private LocalDate fechaCita;
+
+    @Column("hora_cita")
+    private String horaCita;
+
+    private String doctor;
+
+    @Column("direccion_cita")
+    private String direccionCita;
+
+    @Column("lugar_cita")
+    private String lugarCita;
+
+    @Column("informacion_cita")
+    private String informacionCita;
+
+    @Column("confirmacion_cita")
+    private String confirmacionCita;
+
+    @Column("fecha_recordatorio")
+    private LocalDateTime fechaRecordatorio;
+
+    @Column("recordatorio_enviado")
+    private boolean recordatorioEnviado;
+}
@@ -0,0 +1,13 @@
+package com.serviconli.task.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Tareas por día: de cita o de recordatorio (ver {@link TareaRepository#contarCitasPorFecha}).
+ */
+public interface ConteoPorFecha {
+
+    LocalDate getFecha();
+
+    long getTotal();
+}
@@ -0,0 +1,13 @@
+package com.serviconli.task.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Recordatorios activos con la misma fecha y hora (ver {@link TareaRepository#contarRecordatoriosEntre}).
+ */
+public interface ConteoPorMomento {
+
+    LocalDateTime getMomento();
+
+    long getTotal();
+}
@@ -0,0 +1,11 @@
+package com.serviconli.task.repository;
+
+/**
+ * Id y tarea de un evento pendiente de sheets_outbox (ver {@link SheetsOutboxRepository#findPendientesDeTareas}).
+ */
+public interface EventoOutboxPendiente {
+
+    Long getId();
+
+    Long getTareaId();
+}
@@ -0,0 +1,12 @@
+package com.serviconli.task.repository;
+
+import com.serviconli.task.model.HistorialTareaRow;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface HistorialTareaReactiveRepository extends R2dbcRepository<HistorialTareaRow, Long> {
+
+    Flux<HistorialTareaRow> findByTareaIdOrderByFechaCambioAsc(Long tareaId);
+}
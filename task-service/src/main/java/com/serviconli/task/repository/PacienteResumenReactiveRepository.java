@@ -0,0 +1,9 @@
+package com.serviconli.task.repository;
+
+import com.serviconli.task.model.PacienteResumenRow;
+import org.springframework.data.r2dbc.repository.R2dbcRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PacienteResumenReactiveRepository extends R2dbcRepository<PacienteResumenRow, String> {
+}
@@ -0,0 +1,13 @@
+package com.serviconli.task.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Un recordatorio que todavía no se ha disparado (ver {@link TareaRepository#findRecordatoriosPendientes}).
+ */
+public interface RecordatorioPendiente {
+
+    Long getTareaId();
+
+    LocalDateTime getFechaRecordatorio();
+}
@@ -0,0 +1,30 @@
+package com.serviconli.task.repository;
+
+import com.serviconli.task.model.ReplicaCursor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface ReplicaCursorRepository extends JpaRepository<ReplicaCursor, String> {
+
+    /**
+     * Avanza el cursor solo si sigue en {@code actual}. La fila queda bloqueada hasta el commit, así que
+     * dos instancias no aplican la misma página a la vez.
+     *
+     * @return 1 si esta transacción lo ha avanzado; 0 si otra instancia ya lo movió
+     */
+    @Modifying
+    @Query("""
+            update ReplicaCursor c set c.version = :nueva, c.fechaActualizacion = :ahora
+            where c.nombre = :nombre and c.version = :actual
+            """)
+    int avanzar(@Param("nombre") String nombre,
+                @Param("actual") Long actual,
+                @Param("nueva") Long nueva,
+                @Param("ahora") LocalDateTime ahora);
+}
@@ -0,0 +1,11 @@
+package com.serviconli.task.repository;
+
+/**
+ * Una tarea encontrada por la búsqueda de texto y su relevancia (ver {@link TareaRepository#buscarPorTexto}).
+ */
+public interface ResultadoBusqueda {
+
+    Long getId();
+
+    double getRelevancia();
+}
@@ -0,0 +1,43 @@
+package com.serviconli.task.repository;
+
+import com.serviconli.task.model.SheetsOutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SheetsOutboxRepository extends JpaRepository<SheetsOutboxEvent, Long> {
+
+    /**
+     * Eventos pendientes cuyo reintento ya toca, en orden de llegada (el orden por id es el que garantiza el
+     * orden por tarea). Se salta los de las tareas que tienen un evento anterior esperando su reintento o
+     * arrendado por otra instancia, para que esos no ocupen el lote, y los que otra instancia está reclamando
+     * ahora mismo (SKIP LOCKED): quedan bloqueados hasta el final de la transacción.
+     */
+    @Query(value = """
+            select e.* from sheets_outbox e
+            where e.estado = 'PENDIENTE' and e.proximo_intento <= :ahora
+              and not exists (select 1 from sheets_outbox a
+                              where a.tarea_id = e.tarea_id and a.estado = 'PENDIENTE'
+                                and a.id < e.id and a.proximo_intento > :ahora)
+            order by e.id
+            limit :limite
+            for update skip locked
+            """, nativeQuery = true)
+    List<SheetsOutboxEvent> reclamarListos(@Param("ahora") LocalDateTime ahora, @Param("limite") int limite);
+
+    /**
+     * Todos los eventos pendientes de esas tareas, en orden, incluidos los que tenga bloqueados otra instancia.
+     */
+    @Query("""
+            select e.id as id, e.tareaId as tareaId from SheetsOutboxEvent e
+            where e.estado = com.serviconli.task.model.EstadoOutbox.PENDIENTE and e.tareaId in :tareaIds
+            order by e.id
+            """)
+    List<EventoOutboxPendiente> findPendientesDeTareas(@Param("tareaIds") Collection<Long> tareaIds);
+}
@@ -0,0 +1,19 @@
+package com.serviconli.task.repository;
+
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.Prioridad;
+import com.serviconli.task.model.TipoCita;
+
+/**
+ * Una fila del GROUP BY con el que se siembran las estadísticas de tareas (ver {@link TareaRepository#contarAgrupado()}).
+ */
+public interface TareaConteo {
+
+    EstadoTarea getEstado();
+
+    Prioridad getPrioridad();
+
+    TipoCita getTipoCita();
+
+    long getTotal();
+}
@@ -0,0 +1,80 @@
+package com.serviconli.task.repository;
+
+import com.serviconli.task.dto.TaskCursor;
+import com.serviconli.task.dto.TaskFilterDTO;
+import com.serviconli.task.model.TareaRow;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.relational.core.query.Criteria;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Equivalente R2DBC de {@link TareaSpecifications}: los mismos filtros y la misma condición keyset
+ * sobre {@link TareaRow}, expresados como {@link Criteria}.
+ */
+public final class TareaCriterios {
+
+    private TareaCriterios() {
+    }
+
+    public static Criteria delPaciente(String numeroIdentificacion) {
+        return Criteria.where("pacienteNumeroIdentificacion").is(numeroIdentificacion);
+    }
+
+    public static Criteria dePacientes(Collection<String> numerosIdentificacion) {
+        return Criteria.where("pacienteNumeroIdentificacion").in(numerosIdentificacion);
+    }
+
+    /**
+     * Combina en un solo WHERE todos los filtros presentes en el DTO (los enums se comparan por nombre,
+     * igual que los guarda JPA).
+     */
+    public static Criteria conFiltro(TaskFilterDTO filtro) {
+        List<Criteria> condiciones = new ArrayList<>();
+        if (filtro.getEstado() != null) {
+            condiciones.add(Criteria.where("estado").is(filtro.getEstado().name()));
+        }
+        if (filtro.getPrioridad() != null) {
+            condiciones.add(Criteria.where("prioridad").is(filtro.getPrioridad().name()));
+        }
+        if (filtro.getTipoCita() != null) {
+            condiciones.add(Criteria.where("tipoCita").is(filtro.getTipoCita().name()));
+        }
+        if (filtro.getFechaCreacionDesde() != null) {
+            condiciones.add(Criteria.where("fechaCreacion").greaterThanOrEquals(filtro.getFechaCreacionDesde().atStartOfDay()));
+        }
+        if (filtro.getFechaCreacionHasta() != null) {
+            condiciones.add(Criteria.where("fechaCreacion").lessThan(filtro.getFechaCreacionHasta().plusDays(1).atStartOfDay()));
+        }
+        if (filtro.getFechaCitaDesde() != null) {
+            condiciones.add(Criteria.where("fechaCita").greaterThanOrEquals(filtro.getFechaCitaDesde()));
+        }
+        if (filtro.getFechaCitaHasta() != null) {
+            condiciones.add(Criteria.where("fechaCita").lessThanOrEquals(filtro.getFechaCitaHasta()));
+        }
+        return Criteria.from(condiciones);
+    }
+
+    // Combina con AND las condiciones no vacías (Criteria.from no descarta las vacías)
+    public static Criteria todas(Criteria... condiciones) {
+        return Criteria.from(Arrays.stream(condiciones).filter(c -> c != null && !c.isEmpty()).toList());
+    }
+
+    /**
+     * Condición keyset: filas estrictamente posteriores al cursor en el orden (fechaCreacion, id).
+     */
+    public static Criteria despuesDe(TaskCursor cursor, Sort.Direction direccion) {
+        if (cursor == null) {
+            return Criteria.empty();
+        }
+        if (direccion == Sort.Direction.ASC) {
+            return Criteria.where("fechaCreacion").greaterThan(cursor.fechaCreacion())
+                    .or(Criteria.where("fechaCreacion").is(cursor.fechaCreacion()).and("id").greaterThan(cursor.id()));
+        }
+        return Criteria.where("fechaCreacion").lessThan(cursor.fechaCreacion())
+                .or(Criteria.where("fechaCreacion").is(cursor.fechaCreacion()).and("id").lessThan(cursor.id()));
+    }
+}
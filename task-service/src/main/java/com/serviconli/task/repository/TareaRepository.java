@@ -4,13 +4,31 @@ import com.serviconli.task.model.EstadoTarea;
 import com.serviconli.task.model.Prioridad;
 import com.serviconli.task.model.Tarea;
 import com.serviconli.task.model.TipoCita;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface TareaRepository extends JpaRepository<Tarea, Long> {
+public interface TareaRepository extends JpaRepository<Tarea, Long>, JpaSpecificationExecutor<Tarea> {
+
+    // Columnas del índice FULLTEXT ft_tareas_texto (lo crea IndiceBusquedaTareas); MATCH debe nombrarlas todas
+    String COLUMNAS_TEXTO = "especialidad, observacion, especificaciones, informacion_cita, doctor, radicado";
 
     // --- Búsquedas por VINCULACIÓN CON PACIENTE ---
 
@@ -42,7 +60,192 @@ public interface TareaRepository extends JpaRepository<Tarea, Long> {
     /**
      * Busca tareas por el texto de la especialidad.
      * EJEMPLO: Traer todas las tareas de "Cardiología", sin importar su estado o tipo.
+     * Es un LIKE '%x%' que recorre toda la tabla: para buscar texto, mejor buscarPorTexto.
      */
     List<Tarea> findByEspecialidadContainingIgnoreCase(String especialidad);
 
-}
\ No newline at end of file
+
+    // --- Búsqueda de texto ---
+
+    /**
+     * Búsqueda por relevancia en los campos de texto con el índice FULLTEXT, en modo booleano: ids y relevancia
+     * de la primera página. {@code consulta} ya viene armada por TareaBusquedaService (+termino* por cada palabra).
+     * MATCH puntúa todas las filas que coinciden antes de ordenar, así que el coste crece con las coincidencias
+     * aunque la página sea corta.
+     * USADO PARA: GET /api/v1/tareas/buscar?q=
+     */
+    @Query(value = "select t.id as id, match(" + COLUMNAS_TEXTO + ") against (:consulta in boolean mode) as relevancia"
+            + " from tareas t"
+            + " where match(" + COLUMNAS_TEXTO + ") against (:consulta in boolean mode)"
+            + " order by relevancia desc, t.id desc"
+            + " limit :limite", nativeQuery = true)
+    List<ResultadoBusqueda> buscarPorTexto(@Param("consulta") String consulta,
+                                           @Param("limite") int limite);
+
+    /**
+     * Como {@link #buscarPorTexto}, pero las páginas siguientes: solo lo posterior a (relevancia, id) en ese
+     * orden, sin OFFSET, así que no se vuelven a leer ni ordenar las páginas ya entregadas.
+     */
+    @Query(value = "select t.id as id, match(" + COLUMNAS_TEXTO + ") against (:consulta in boolean mode) as relevancia"
+            + " from tareas t"
+            + " where match(" + COLUMNAS_TEXTO + ") against (:consulta in boolean mode)"
+            + " and (match(" + COLUMNAS_TEXTO + ") against (:consulta in boolean mode) < :relevancia"
+            + "   or (match(" + COLUMNAS_TEXTO + ") against (:consulta in boolean mode) = :relevancia and t.id < :id))"
+            + " order by relevancia desc, t.id desc"
+            + " limit :limite", nativeQuery = true)
+    List<ResultadoBusqueda> buscarPorTextoDespuesDe(@Param("consulta") String consulta,
+                                                    @Param("relevancia") double relevancia,
+                                                    @Param("id") long id,
+                                                    @Param("limite") int limite);
+
+
+    // --- Estadísticas ---
+
+    // Las consultas de siembra de TareaStatsService. Se lanzan juntas en una transacción de solo lectura para que
+    // vean la misma foto, y ninguna devuelve más filas que días o combinaciones de enums.
+
+    /**
+     * Conteo de tareas por estado, prioridad y tipo de cita.
+     */
+    @Query("""
+            select t.estado as estado, t.prioridad as prioridad, t.tipoCita as tipoCita, count(t) as total
+            from Tarea t
+            group by t.estado, t.prioridad, t.tipoCita
+            """)
+    List<TareaConteo> contarAgrupado();
+
+    /**
+     * Citas por día desde {@code desde} (las pasadas no cuentan para el tablero).
+     */
+    @Query("""
+            select t.fechaCita as fecha, count(t) as total
+            from Tarea t
+            where t.fechaCita >= :desde
+            group by t.fechaCita
+            """)
+    List<ConteoPorFecha> contarCitasPorFecha(@Param("desde") LocalDate desde);
+
+    /**
+     * Recordatorios activos (tarea no COMPLETADA) que vencen hasta {@code hasta}, incluido.
+     */
+    @Query("""
+            select count(t) from Tarea t
+            where t.estado <> com.serviconli.task.model.EstadoTarea.COMPLETADA and t.fechaRecordatorio <= :hasta
+            """)
+    long contarRecordatoriosHasta(@Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Recordatorios activos en {@code (desde, hasta)}, agrupados por fecha y hora. Se usa solo para lo que queda
+     * del día en curso.
+     */
+    @Query("""
+            select t.fechaRecordatorio as momento, count(t) as total
+            from Tarea t
+            where t.estado <> com.serviconli.task.model.EstadoTarea.COMPLETADA
+              and t.fechaRecordatorio > :desde and t.fechaRecordatorio < :hasta
+            group by t.fechaRecordatorio
+            """)
+    List<ConteoPorMomento> contarRecordatoriosEntre(@Param("desde") LocalDateTime desde,
+                                                    @Param("hasta") LocalDateTime hasta);
+
+    /**
+     * Recordatorios activos desde {@code desde}, agrupados por día.
+     */
+    @Query("""
+            select cast(t.fechaRecordatorio as LocalDate) as fecha, count(t) as total
+            from Tarea t
+            where t.estado <> com.serviconli.task.model.EstadoTarea.COMPLETADA and t.fechaRecordatorio >= :desde
+            group by cast(t.fechaRecordatorio as LocalDate)
+            """)
+    List<ConteoPorFecha> contarRecordatoriosPorDia(@Param("desde") LocalDateTime desde);
+
+
+    // --- Exportación ---
+
+    /**
+     * Todas las tareas en orden de id, leídas fila a fila desde un cursor de MySQL.
+     * Con fetch size Integer.MIN_VALUE Connector/J no carga el resultado completo en memoria.
+     * USADO PARA: GET /api/v1/tareas/export. Debe consumirse dentro de una transacción y cerrarse al terminar.
+     */
+    @Query("select t from Tarea t order by t.id")
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<Tarea> streamAllOrderById();
+
+
+
+    // --- ETags ---
+
+    @Query("select t.version as version, t.fechaActualizacion as fechaActualizacion from Tarea t where t.id = :id")
+    Optional<TareaVersion> findVersionById(@Param("id") Long id);
+
+
+    // --- Recordatorios ---
+
+    /**
+     * Recordatorios sin disparar con fecha en (desde, hasta], en orden de fecha. Recorre solo ese rango del
+     * índice idx_tareas_fecha_recordatorio.
+     * USADO PARA: cargar en RecordatorioScheduler la siguiente ventana de recordatorios.
+     */
+    @Query("""
+            select t.id as tareaId, t.fechaRecordatorio as fechaRecordatorio
+            from Tarea t
+            where t.fechaRecordatorio > :desde and t.fechaRecordatorio <= :hasta
+              and t.recordatorioEnviado = false
+              and t.estado <> com.serviconli.task.model.EstadoTarea.COMPLETADA
+            order by t.fechaRecordatorio
+            """)
+    List<RecordatorioPendiente> findRecordatoriosPendientes(@Param("desde") LocalDateTime desde,
+                                                            @Param("hasta") LocalDateTime hasta);
+
+    @Query("""
+            select t.id as tareaId, t.fechaRecordatorio as fechaRecordatorio
+            from Tarea t
+            where t.id = :id and t.fechaRecordatorio is not null
+              and t.recordatorioEnviado = false
+              and t.estado <> com.serviconli.task.model.EstadoTarea.COMPLETADA
+            """)
+    Optional<RecordatorioPendiente> findRecordatorioPendiente(@Param("id") Long id);
+
+    /**
+     * Marca el recordatorio como enviado solo si sigue pendiente y con la misma fecha.
+     *
+     * @return 1 si esta llamada lo ha marcado; 0 si ya estaba enviado, se reprogramó o la tarea no existe
+     */
+    @Modifying
+    @Transactional
+    @Query("""
+            update Tarea t set t.recordatorioEnviado = true
+            where t.id = :id and t.fechaRecordatorio = :fecha
+              and t.recordatorioEnviado = false
+              and t.estado <> com.serviconli.task.model.EstadoTarea.COMPLETADA
+            """)
+    int marcarRecordatorioEnviado(@Param("id") Long id, @Param("fecha") LocalDateTime fecha);
+
+
+    // --- Cambios de estado en lote ---
+
+    /**
+     * Tareas de un cambio de estado en lote, bloqueadas (SELECT ... FOR UPDATE) hasta el commit: así el
+     * estado anterior que va al historial es el mismo que sustituye el UPDATE.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select t from Tarea t where t.id in :ids")
+    List<Tarea> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Un solo UPDATE para todas las tareas. Con {@code versioned} sube también la versión, que forma parte
+     * del ETag; fechaActualizacion va explícita porque un UPDATE masivo no pasa por @PreUpdate.
+     */
+    @Modifying(clearAutomatically = true)
+    @Query("""
+            update versioned Tarea t set t.estado = :estado, t.fechaActualizacion = :ahora
+            where t.id in :ids
+            """)
+    int actualizarEstado(@Param("ids") Collection<Long> ids,
+                         @Param("estado") EstadoTarea estado,
+                         @Param("ahora") LocalDateTime ahora);
+
+}
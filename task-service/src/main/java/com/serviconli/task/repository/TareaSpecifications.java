@@ -0,0 +1,98 @@
+package com.serviconli.task.repository;
+
+import com.serviconli.task.dto.TaskCursor;
+import com.serviconli.task.dto.TaskFilterDTO;
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.Prioridad;
+import com.serviconli.task.model.Tarea;
+import com.serviconli.task.model.TipoCita;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.Collection;
+
+/**
+ * Predicados reutilizables para construir consultas dinámicas sobre {@link Tarea}.
+ */
+public final class TareaSpecifications {
+
+    private TareaSpecifications() {
+    }
+
+    public static Specification<Tarea> delPaciente(String numeroIdentificacion) {
+        return (root, query, cb) -> cb.equal(root.get("pacienteNumeroIdentificacion"), numeroIdentificacion);
+    }
+
+    public static Specification<Tarea> dePacientes(Collection<String> numerosIdentificacion) {
+        return (root, query, cb) -> root.get("pacienteNumeroIdentificacion").in(numerosIdentificacion);
+    }
+
+    // Los filtros de atributos devuelven null cuando no se piden, y Specification los ignora al combinarlos
+
+    public static Specification<Tarea> conEstado(EstadoTarea estado) {
+        return estado == null ? null : (root, query, cb) -> cb.equal(root.get("estado"), estado);
+    }
+
+    public static Specification<Tarea> conPrioridad(Prioridad prioridad) {
+        return prioridad == null ? null : (root, query, cb) -> cb.equal(root.get("prioridad"), prioridad);
+    }
+
+    public static Specification<Tarea> conTipoCita(TipoCita tipoCita) {
+        return tipoCita == null ? null : (root, query, cb) -> cb.equal(root.get("tipoCita"), tipoCita);
+    }
+
+    // fecha_creacion es DATETIME: el rango [desde, hasta] en días se traduce a [desde 00:00, hasta + 1 00:00)
+
+    public static Specification<Tarea> creadaDesde(LocalDate desde) {
+        return desde == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("fechaCreacion"), desde.atStartOfDay());
+    }
+
+    public static Specification<Tarea> creadaHasta(LocalDate hasta) {
+        return hasta == null ? null : (root, query, cb) -> cb.lessThan(root.get("fechaCreacion"), hasta.plusDays(1).atStartOfDay());
+    }
+
+    public static Specification<Tarea> conCitaDesde(LocalDate desde) {
+        return desde == null ? null : (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("fechaCita"), desde);
+    }
+
+    public static Specification<Tarea> conCitaHasta(LocalDate hasta) {
+        return hasta == null ? null : (root, query, cb) -> cb.lessThanOrEqualTo(root.get("fechaCita"), hasta);
+    }
+
+    /**
+     * Combina en un solo WHERE todos los filtros presentes en el DTO.
+     */
+    public static Specification<Tarea> conFiltro(TaskFilterDTO filtro) {
+        return Specification.allOf(
+                conEstado(filtro.getEstado()),
+                conPrioridad(filtro.getPrioridad()),
+                conTipoCita(filtro.getTipoCita()),
+                creadaDesde(filtro.getFechaCreacionDesde()),
+                creadaHasta(filtro.getFechaCreacionHasta()),
+                conCitaDesde(filtro.getFechaCitaDesde()),
+                conCitaHasta(filtro.getFechaCitaHasta()));
+    }
+
+    /**
+     * Condición keyset: filas estrictamente posteriores al cursor en el orden (fechaCreacion, id).
+     * Con el índice sobre (fecha_creacion, id) cualquier página cuesta lo mismo que la primera.
+     */
+    public static Specification<Tarea> despuesDe(TaskCursor cursor, Sort.Direction direccion) {
+        if (cursor == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            if (direccion == Sort.Direction.ASC) {
+                return cb.or(
+                        cb.greaterThan(root.get("fechaCreacion"), cursor.fechaCreacion()),
+                        cb.and(cb.equal(root.get("fechaCreacion"), cursor.fechaCreacion()),
+                                cb.greaterThan(root.get("id"), cursor.id())));
+            }
+            return cb.or(
+                    cb.lessThan(root.get("fechaCreacion"), cursor.fechaCreacion()),
+                    cb.and(cb.equal(root.get("fechaCreacion"), cursor.fechaCreacion()),
+                            cb.lessThan(root.get("id"), cursor.id())));
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.serviconli.task.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Lo justo para calcular el ETag de una tarea sin cargarla (ver {@link TareaRepository#findVersionById}).
+ */
+public interface TareaVersion {
+
+    Long getVersion();
+
+    LocalDateTime getFechaActualizacion();
+}
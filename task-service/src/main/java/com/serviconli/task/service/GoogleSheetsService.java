@@ -1,21 +1,40 @@
 package com.serviconli.task.service;
 
 import com.google.api.client.googleapis.javanet.GoogleNetHttpTransport;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
 import com.google.api.client.json.JsonFactory;
 import com.google.api.client.json.jackson2.JacksonFactory;
 import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.SheetsScopes;
+import com.google.api.services.sheets.v4.model.AppendValuesResponse;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesRequest;
 import com.google.api.services.sheets.v4.model.ValueRange;
 import com.google.auth.http.HttpCredentialsAdapter;
 import com.google.auth.oauth2.GoogleCredentials;
 import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Service
 public class GoogleSheetsService {
@@ -28,6 +47,51 @@ public class GoogleSheetsService {
     private static final String SPREADSHEET_ID = "1R38f4eoCI0iLBhJCWHXnrTrToRbJZo5cGk2Cm2oSrjQ";
     private static final String HOJA = "CITAS ARMENIA"; // Nombre exacto de la hoja
     private static final String RANGE = HOJA + "!A1:V"; // Rango que cubre todas las columnas
+    private static final String COLUMNA_ID = "V"; // Última columna: ID de la tarea
+    private static final String VALUE_INPUT_OPTION = "USER_ENTERED";
+    private static final Pattern FILAS_EN_RANGO = Pattern.compile("![A-Z]+(\\d+)(?::[A-Z]+(\\d+))?");
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+
+    // Índice tareaId -> número de fila. Se llena con las respuestas de append y se reconstruye cuando se desincroniza;
+    // la reconstrucción arma un mapa nuevo y lo cambia de una vez
+    private volatile Map<String, Integer> filaPorTarea = new ConcurrentHashMap<>();
+    private volatile int ultimaFila = -1; // Última fila ocupada según el índice; -1 si no se sabe
+    private volatile boolean indiceValido;
+    private volatile long indiceLeidoEn; // System.nanoTime() de la última reconstrucción
+    // Tareas que la última reconstrucción no encontró: no se vuelve a leer la hoja por ellas en cada pasada
+    private final Set<String> ausentes = ConcurrentHashMap.newKeySet();
+    // Tareas de un append que falló sin respuesta clara (p. ej. un timeout): puede que sí llegaran a la hoja
+    private final Set<String> dudosas = ConcurrentHashMap.newKeySet();
+
+    // Cuota de la API: cada llamada consume un token; un 429 se reintenta con backoff exponencial
+    private final String rootUrl;
+    private final TokenBucket tokenBucket;
+    private final int maxAttempts;
+    private final Duration backoffBase;
+    private final Duration maxEdadIndice;
+
+    @Autowired
+    public GoogleSheetsService(@Value("${sheets.root-url:}") String rootUrl,
+                               @Value("${sheets.rate-limit.requests-per-minute:60}") int requestsPerMinute,
+                               @Value("${sheets.retry.max-attempts:5}") int maxAttempts,
+                               @Value("${sheets.retry.backoff-base:1s}") Duration backoffBase,
+                               @Value("${sheets.index.max-age:10m}") Duration maxEdadIndice) {
+        this.rootUrl = rootUrl;
+        this.tokenBucket = TokenBucket.perMinute(requestsPerMinute);
+        this.maxAttempts = maxAttempts;
+        this.backoffBase = backoffBase;
+        this.maxEdadIndice = maxEdadIndice;
+    }
+
+    // Para pruebas: recibe un cliente ya construido (p. ej. apuntando a un servidor HTTP local)
+    GoogleSheetsService(Sheets sheetsService, TokenBucket tokenBucket, int maxAttempts, Duration backoffBase) {
+        this.sheetsService = sheetsService;
+        this.rootUrl = null;
+        this.tokenBucket = tokenBucket;
+        this.maxAttempts = maxAttempts;
+        this.backoffBase = backoffBase;
+        this.maxEdadIndice = Duration.ofMinutes(10);
+    }
 
     @PostConstruct
     public void init() throws IOException, GeneralSecurityException {
@@ -43,93 +107,267 @@ public class GoogleSheetsService {
         GoogleCredentials credentials = GoogleCredentials.fromStream(in)
                 .createScoped(Collections.singleton(SheetsScopes.SPREADSHEETS));
 
-        return new Sheets.Builder(
+        Sheets.Builder builder = new Sheets.Builder(
                 GoogleNetHttpTransport.newTrustedTransport(),
-
-                
                 JSON_FACTORY,
                 new HttpCredentialsAdapter(credentials)
-        ).setApplicationName(APPLICATION_NAME).build();
+        ).setApplicationName(APPLICATION_NAME);
+        if (rootUrl != null && !rootUrl.isBlank()) {
+            builder.setRootUrl(rootUrl); // Permite apuntar a un sustituto local de la API
+        }
+        return builder.build();
     }
 
     // 1️⃣ Agregar nueva fila
     public void appendRow(List<Object> values) throws IOException {
-        ValueRange body = new ValueRange().setValues(Collections.singletonList(values));
-        sheetsService.spreadsheets().values()
-                .append(SPREADSHEET_ID, RANGE, body)
-                .setValueInputOption("USER_ENTERED")
-                .execute();
+        appendRows(List.of(values));
     }
 
-    // 2️⃣ Actualizar fila completa por ID
-    public void updateRow(String tareaId, List<Object> values) throws IOException {
-        List<List<Object>> rows = getAllRows();
-        if (rows == null) return;
+    /**
+     * 1️⃣ bis: Agregar varias filas en una sola llamada. El ID de la tarea va en la última columna.
+     *
+     * <p>Si un append anterior de alguna de estas tareas falló sin saber si llegó a escribirse, antes se relee la
+     * columna de IDs: las que ya están en la hoja se actualizan en su fila en lugar de duplicarse.
+     */
+    public void appendRows(List<List<Object>> rows) throws IOException {
+        if (rows.isEmpty()) return;
 
-        for (int i = 0; i < rows.size(); i++) {
-            List<Object> row = rows.get(i);
-            if (!row.isEmpty()) {
-                // Verifica el último valor de la fila (ID en columna U)
-                String lastValue = row.get(row.size() - 1).toString();
-                if (tareaId.equals(lastValue)) {
-                    String updateRange = HOJA + "!A" + (i + 1) + ":V" + (i + 1);
-                    ValueRange body = new ValueRange().setValues(List.of(values));
-                    sheetsService.spreadsheets().values()
-                            .update(SPREADSHEET_ID, updateRange, body)
-                            .setValueInputOption("USER_ENTERED")
-                            .execute();
-                    break;
-                }
+        Map<String, List<Object>> porTarea = new LinkedHashMap<>();
+        rows.forEach(row -> porTarea.put(idDeFila(row), row));
+        if (porTarea.keySet().stream().noneMatch(dudosas::contains)) {
+            agregar(rows);
+            return;
+        }
+        Map<String, Integer> enHoja = resolverFilas(porTarea.keySet());
+        Map<String, List<Object>> existentes = new LinkedHashMap<>();
+        List<List<Object>> nuevas = new ArrayList<>();
+        porTarea.forEach((tareaId, row) -> {
+            if (enHoja.containsKey(tareaId)) {
+                existentes.put(tareaId, row);
+            } else {
+                nuevas.add(row);
+            }
+        });
+        escribirEnFilas(enHoja, existentes, List.of());
+        agregar(nuevas);
+    }
+
+    private void agregar(List<List<Object>> rows) throws IOException {
+        if (rows.isEmpty()) return;
+
+        List<String> ids = rows.stream().map(GoogleSheetsService::idDeFila).toList();
+        ValueRange body = new ValueRange().setValues(rows);
+        AppendValuesResponse response;
+        try {
+            response = ejecutar(sheetsService.spreadsheets().values()
+                    .append(SPREADSHEET_ID, RANGE, body)
+                    .setValueInputOption(VALUE_INPUT_OPTION));
+        } catch (IOException e) {
+            // Un 4xx es un rechazo: no se escribió nada. Cualquier otro fallo pudo llegar a escribir las filas
+            if (!(e instanceof GoogleJsonResponseException g && g.getStatusCode() >= 400 && g.getStatusCode() < 500)) {
+                dudosas.addAll(ids);
             }
+            throw e;
+        }
+        ids.forEach(ausentes::remove);
+        ids.forEach(dudosas::remove);
+
+        // La respuesta dice en qué filas quedaron (p. ej. 'CITAS ARMENIA'!A15:V17): las guardamos en el índice
+        int[] filas = response.getUpdates() == null ? null : filasDeRango(response.getUpdates().getUpdatedRange());
+        if (filas == null || filas[1] - filas[0] + 1 != rows.size()) {
+            indiceValido = false; // Respuesta inesperada: el índice se reconstruirá antes de la próxima escritura
+            return;
+        }
+        // Si las filas no caen justo detrás de la última conocida, alguien insertó o borró filas a mano
+        if (ultimaFila >= 0 && filas[0] != ultimaFila + 1) {
+            indiceValido = false;
         }
+        ultimaFila = filas[1];
+        Map<String, Integer> indice = filaPorTarea;
+        for (int i = 0; i < rows.size(); i++) {
+            indice.put(ids.get(i), filas[0] + i);
+        }
+    }
+
+    // 2️⃣ Actualizar fila completa por ID
+    public void updateRow(String tareaId, List<Object> values) throws IOException {
+        batchWrite(Map.of(tareaId, values), List.of());
     }
 
 
     // 3️⃣ Actualizar celda específica (columna empieza en 1)
     public void updateCell(String tareaId, int columnIndex, String newValue) throws IOException {
-        List<List<Object>> rows = getAllRows();
-        if (rows == null) return;
+        Integer fila = resolverFilas(Set.of(tareaId)).get(tareaId);
+        if (fila == null) return;
 
-        for (int i = 0; i < rows.size(); i++) {
-            if (!rows.get(i).isEmpty() && tareaId.equals(rows.get(i).get(0).toString())) {
-                String columnLetter = String.valueOf((char) ('A' + columnIndex - 1));
-                String updateRange = HOJA + "!" + columnLetter + (i + 1);
-                ValueRange body = new ValueRange().setValues(List.of(List.of(newValue)));
-                sheetsService.spreadsheets().values()
-                        .update(SPREADSHEET_ID, updateRange, body)
-                        .setValueInputOption("USER_ENTERED")
-                        .execute();
-                break;
+        String columnLetter = String.valueOf((char) ('A' + columnIndex - 1));
+        String updateRange = HOJA + "!" + columnLetter + fila;
+        ValueRange body = new ValueRange().setValues(List.of(List.of(newValue)));
+        ejecutar(sheetsService.spreadsheets().values()
+                .update(SPREADSHEET_ID, updateRange, body)
+                .setValueInputOption(VALUE_INPUT_OPTION));
+    }
+
+    // 4️⃣ Eliminar (marcar como eliminada): se sobrescribe la celda del ID con "ELIMINADA"
+    public void deleteRowById(String tareaId) throws IOException {
+        batchWrite(Map.of(), List.of(tareaId));
+    }
+
+    /**
+     * 5️⃣ Escribe en un solo {@code spreadsheets.values.batchUpdate} varias filas completas y varias
+     * marcas de eliminación. Una fila de una tarea que no está en la hoja (p. ej. porque su alta acabó en
+     * dead-letter) se añade al final con un append; una baja de una tarea que no está no tiene nada que marcar.
+     */
+    public void batchWrite(Map<String, List<Object>> filasPorTarea, Collection<String> eliminadas) throws IOException {
+        Set<String> ids = new HashSet<>(filasPorTarea.keySet());
+        ids.addAll(eliminadas);
+        if (ids.isEmpty()) return;
+
+        Map<String, Integer> filas = resolverFilas(ids);
+        List<List<Object>> nuevas = new ArrayList<>();
+        filasPorTarea.forEach((tareaId, values) -> {
+            if (!filas.containsKey(tareaId)) {
+                nuevas.add(values);
+            }
+        });
+        escribirEnFilas(filas, filasPorTarea, eliminadas);
+        agregar(nuevas);
+    }
+
+    // Las tareas sin fila en "filas" se saltan
+    private void escribirEnFilas(Map<String, Integer> filas, Map<String, List<Object>> filasPorTarea,
+                                 Collection<String> eliminadas) throws IOException {
+        List<ValueRange> data = new ArrayList<>();
+        filasPorTarea.forEach((tareaId, values) -> {
+            Integer fila = filas.get(tareaId);
+            if (fila != null) {
+                data.add(new ValueRange().setRange(HOJA + "!A" + fila + ":V" + fila).setValues(List.of(values)));
+            }
+        });
+        for (String tareaId : eliminadas) {
+            Integer fila = filas.get(tareaId);
+            if (fila != null) {
+                data.add(new ValueRange().setRange(HOJA + "!" + COLUMNA_ID + fila).setValues(List.of(List.of("ELIMINADA"))));
             }
         }
+        if (data.isEmpty()) return;
+
+        ejecutar(sheetsService.spreadsheets().values()
+                .batchUpdate(SPREADSHEET_ID, new BatchUpdateValuesRequest()
+                        .setValueInputOption(VALUE_INPUT_OPTION)
+                        .setData(data)));
+        eliminadas.forEach(filaPorTarea::remove);
+        ausentes.addAll(eliminadas); // Su celda de ID ya dice ELIMINADA
     }
 
-    // 4️⃣ Eliminar (marcar como eliminada)
-    public void deleteRowById(String tareaId) throws IOException {
-        List<List<Object>> rows = getAllRows();
-        if (rows == null) return;
+    // ========================= ÍNDICE tareaId -> fila =========================
 
-        for (int i = 0; i < rows.size(); i++) {
-            if (!rows.get(i).isEmpty() && tareaId.equals(rows.get(i).get(0).toString())) {
-                if (!rows.get(i).isEmpty()) {
-                    rows.get(i).set(rows.get(i).size() - 1, "ELIMINADA");
+    /**
+     * Devuelve la fila (1-based) de cada tarea que está en la hoja.
+     *
+     * <p>Se confía en el índice sin volver a leer la hoja. Se reconstruye (leyendo solo la columna de IDs) cuando
+     * falta alguna tarea, cuando un append cae en una fila inesperada (alguien insertó o borró filas a mano) y,
+     * por si alguien ordenó la hoja, cuando tiene más de {@code sheets.index.max-age}.
+     */
+    private Map<String, Integer> resolverFilas(Set<String> tareaIds) throws IOException {
+        Map<String, Integer> conocidas = buscarEnIndice(tareaIds);
+        boolean releer = !indiceVigente() || tareaIds.stream().anyMatch(id ->
+                dudosas.contains(id) || (!conocidas.containsKey(id) && !ausentes.contains(id)));
+        if (!releer) {
+            return conocidas;
+        }
+        reconstruirIndice();
+        Map<String, Integer> resueltas = buscarEnIndice(tareaIds);
+        tareaIds.forEach(id -> {
+            if (!resueltas.containsKey(id)) ausentes.add(id);
+        });
+        tareaIds.forEach(dudosas::remove);
+        return resueltas;
+    }
+
+    private Map<String, Integer> buscarEnIndice(Set<String> tareaIds) {
+        Map<String, Integer> indice = filaPorTarea;
+        Map<String, Integer> filas = new HashMap<>();
+        tareaIds.forEach(id -> {
+            Integer fila = indice.get(id);
+            if (fila != null) filas.put(id, fila);
+        });
+        return filas;
+    }
+
+    private boolean indiceVigente() {
+        return indiceValido && System.nanoTime() - indiceLeidoEn < maxEdadIndice.toNanos();
+    }
+
+    private synchronized void reconstruirIndice() throws IOException {
+        ValueRange response = ejecutar(sheetsService.spreadsheets().values()
+                .get(SPREADSHEET_ID, HOJA + "!" + COLUMNA_ID + "1:" + COLUMNA_ID));
+        List<List<Object>> ids = response.getValues();
+
+        Map<String, Integer> nuevo = new HashMap<>();
+        if (ids != null) {
+            for (int i = 0; i < ids.size(); i++) {
+                if (!ids.get(i).isEmpty()) {
+                    nuevo.put(ids.get(i).get(0).toString(), i + 1);
                 }
-                String updateRange = HOJA + "!A" + (i + 1) + ":V" + (i + 1);
-                ValueRange body = new ValueRange().setValues(List.of(rows.get(i)));
-                sheetsService.spreadsheets().values()
-                        .update(SPREADSHEET_ID, updateRange, body)
-                        .setValueInputOption("USER_ENTERED")
-                        .execute();
-                break;
             }
         }
+        filaPorTarea = new ConcurrentHashMap<>(nuevo);
+        ausentes.clear();
+        ultimaFila = ids == null ? 0 : ids.size();
+        indiceLeidoEn = System.nanoTime();
+        indiceValido = true;
     }
 
-    // Método helper para obtener todas las filas
-    private List<List<Object>> getAllRows() throws IOException {
-        ValueRange response = sheetsService.spreadsheets().values()
-                .get(SPREADSHEET_ID, RANGE)
-                .execute();
-        return response.getValues();
+    private static String idDeFila(List<Object> row) {
+        return row.get(row.size() - 1).toString();
+    }
+
+    // 'CITAS ARMENIA'!A15:V17 -> {15, 17}; 'CITAS ARMENIA'!A15:V15 o A15 -> {15, 15}
+    static int[] filasDeRango(String rango) {
+        if (rango == null) {
+            return null;
+        }
+        Matcher m = FILAS_EN_RANGO.matcher(rango);
+        if (!m.find()) {
+            return null;
+        }
+        int desde = Integer.parseInt(m.group(1));
+        int hasta = m.group(2) == null ? desde : Integer.parseInt(m.group(2));
+        return new int[]{desde, hasta};
+    }
+
+    // ========================= CUOTA Y REINTENTOS =========================
+
+    private <T> T ejecutar(AbstractGoogleClientRequest<T> request) throws IOException {
+        for (int intento = 1; ; intento++) {
+            try {
+                tokenBucket.acquire();
+                return request.execute();
+            } catch (GoogleJsonResponseException e) {
+                if (e.getStatusCode() != HTTP_TOO_MANY_REQUESTS || intento >= maxAttempts) {
+                    throw e;
+                }
+                dormir(backoff(intento));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrumpido esperando cuota de Google Sheets");
+            }
+        }
+    }
+
+    // Backoff exponencial con jitter: base * 2^(intento-1) * [0.5, 1.5)
+    private Duration backoff(int intento) {
+        long base = backoffBase.toMillis() << Math.min(intento - 1, 16);
+        return Duration.ofMillis((long) (base * (0.5 + ThreadLocalRandom.current().nextDouble())));
+    }
+
+    private static void dormir(Duration espera) throws InterruptedIOException {
+        try {
+            Thread.sleep(espera.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrumpido durante el backoff de Google Sheets");
+        }
     }
 }
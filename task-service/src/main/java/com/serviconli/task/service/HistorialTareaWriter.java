@@ -0,0 +1,128 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.model.EstadoTarea;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Escritura diferida del historial de tareas.
+ *
+ * <p>Las entradas no se insertan una a una al registrarse: se acumulan en la transacción en curso y se
+ * escriben todas juntas justo antes del commit, con un único {@code JdbcTemplate.batchUpdate} (que con
+ * {@code rewriteBatchedStatements=true} Connector/J convierte en INSERTs multi-fila). Como se escriben dentro
+ * de la misma transacción que la tarea, el historial se confirma o se descarta con ella.
+ *
+ * <p>Métricas en /actuator/metrics:
+ * <ul>
+ *   <li>{@code historial.writer.pending}: entradas acumuladas en transacciones abiertas.</li>
+ *   <li>{@code historial.writer.flush}: duración de cada escritura en lote.</li>
+ *   <li>{@code historial.writer.rows}: filas escritas.</li>
+ * </ul>
+ */
+@Component
+public class HistorialTareaWriter {
+
+    private static final String INSERT = "INSERT INTO historial_tareas "
+            + "(tarea_id, estado_anterior, estado_nuevo, fecha_cambio, usuario_cambio, descripcion_cambio) "
+            + "VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String USUARIO_POR_DEFECTO = "Sistema"; // Cambiar cuando tengas seguridad
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicInteger pendientes = new AtomicInteger();
+    private final Timer flushTimer;
+    private final Counter filasEscritas;
+
+    // Clave con la que se guarda el buffer de la transacción actual en TransactionSynchronizationManager
+    private final Object claveBuffer = new Object();
+
+    @Value("${historial.writer.batch-size:500}")
+    private int batchSize;
+
+    public HistorialTareaWriter(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        Gauge.builder("historial.writer.pending", pendientes, AtomicInteger::get)
+                .description("Entradas de historial pendientes de escribir")
+                .register(meterRegistry);
+        this.flushTimer = Timer.builder("historial.writer.flush")
+                .description("Duración de cada escritura en lote del historial")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.filasEscritas = Counter.builder("historial.writer.rows")
+                .description("Filas de historial escritas")
+                .register(meterRegistry);
+    }
+
+    public record Entrada(Long tareaId, EstadoTarea estadoAnterior, EstadoTarea estadoNuevo,
+                          LocalDateTime fechaCambio, String usuarioCambio, String descripcionCambio) {
+    }
+
+    public void registrar(Long tareaId, EstadoTarea estadoAnterior, EstadoTarea estadoNuevo, String descripcion) {
+        Entrada entrada = new Entrada(tareaId, estadoAnterior, estadoNuevo, LocalDateTime.now(), USUARIO_POR_DEFECTO, descripcion);
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            escribir(List.of(entrada)); // Sin transacción no hay a qué esperar
+            return;
+        }
+        Buffer buffer = (Buffer) TransactionSynchronizationManager.getResource(claveBuffer);
+        if (buffer == null) {
+            buffer = new Buffer();
+            TransactionSynchronizationManager.bindResource(claveBuffer, buffer);
+            TransactionSynchronizationManager.registerSynchronization(buffer);
+        }
+        buffer.entradas.add(entrada);
+        pendientes.incrementAndGet();
+    }
+
+    private void escribir(List<Entrada> entradas) {
+        if (entradas.isEmpty()) {
+            return;
+        }
+        flushTimer.record(() -> jdbcTemplate.batchUpdate(INSERT, entradas, batchSize, (ps, e) -> {
+            ps.setLong(1, e.tareaId());
+            if (e.estadoAnterior() == null) {
+                ps.setNull(2, Types.VARCHAR);
+            } else {
+                ps.setString(2, e.estadoAnterior().name());
+            }
+            ps.setString(3, e.estadoNuevo().name());
+            ps.setTimestamp(4, Timestamp.valueOf(e.fechaCambio()));
+            ps.setString(5, e.usuarioCambio());
+            ps.setString(6, e.descripcionCambio());
+        }));
+        filasEscritas.increment(entradas.size());
+    }
+
+    /**
+     * Entradas de una transacción. Se escriben en beforeCommit (aún dentro de la transacción) y se
+     * descuentan de la cola al terminar, haya commit o rollback.
+     */
+    private class Buffer implements TransactionSynchronization {
+
+        private final List<Entrada> entradas = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            escribir(entradas);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(claveBuffer);
+            pendientes.addAndGet(-entradas.size());
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.client.PatientServiceClient;
+import com.serviconli.task.dto.CambiosPacienteDTO;
+import com.serviconli.task.dto.CotizanteSummaryDTO;
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.exception.PatientServiceUnavailableException;
+import com.serviconli.task.model.PacienteResumenRow;
+import com.serviconli.task.model.ReplicaCursor;
+import com.serviconli.task.repository.PacienteResumenReactiveRepository;
+import com.serviconli.task.repository.ReplicaCursorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+
+/**
+ * Réplica local de los pacientes (tabla {@code paciente_resumen}) para enriquecer tareas sin llamar a patient-service.
+ *
+ * <p>Cada {@code patient.replica.poll-interval} se recorre el feed GET /api/v1/patients/changes desde el cursor
+ * guardado en {@code replica_cursores} hasta llegar al final, en páginas de {@code patient.replica.batch-size}.
+ * Todas las instancias leen el feed, pero cada página la aplica solo la que consigue avanzar el cursor
+ * ({@link PacienteResumenWriter}); las demás siguen desde donde quedó.
+ *
+ * <p>{@link PatientInfoCache} empieza a leer de aquí cuando esta instancia ha llegado una vez al final del feed;
+ * hasta entonces, o con {@code patient.replica.enabled=false}, sigue preguntando a patient-service. Si después
+ * patient-service cae, se siguen sirviendo los últimos datos recibidos: {@code patient.replica.lag} (segundos
+ * desde la última vez que se llegó al final del feed) dice cuánto se ha quedado atrás la réplica.
+ */
+@Service
+public class PacienteResumenReplica {
+
+    private static final Logger logger = LoggerFactory.getLogger(PacienteResumenReplica.class);
+
+    private final PatientServiceClient patientServiceClient;
+    private final PacienteResumenWriter writer;
+    private final ReplicaCursorRepository cursorRepository;
+    private final PacienteResumenReactiveRepository resumenRepository;
+    private final Counter aplicados;
+
+    private volatile Instant ultimaSincronizacion; // null hasta llegar al final del feed por primera vez
+
+    @Value("${patient.replica.enabled:true}")
+    private boolean habilitada;
+
+    @Value("${patient.replica.batch-size:500}")
+    private int batchSize;
+
+    public PacienteResumenReplica(PatientServiceClient patientServiceClient,
+                                  PacienteResumenWriter writer,
+                                  ReplicaCursorRepository cursorRepository,
+                                  PacienteResumenReactiveRepository resumenRepository,
+                                  MeterRegistry meterRegistry) {
+        this.patientServiceClient = patientServiceClient;
+        this.writer = writer;
+        this.cursorRepository = cursorRepository;
+        this.resumenRepository = resumenRepository;
+        this.aplicados = Counter.builder("patient.replica.changes")
+                .description("Cambios de pacientes aplicados a paciente_resumen por esta instancia")
+                .register(meterRegistry);
+        Gauge.builder("patient.replica.lag", this, PacienteResumenReplica::segundosDesdeSincronizacion)
+                .description("Segundos desde que la réplica de pacientes estuvo al día por última vez")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * true si la réplica se puede usar para leer en lugar de patient-service.
+     */
+    public boolean lista() {
+        return habilitada && ultimaSincronizacion != null;
+    }
+
+    /**
+     * Los pacientes de la colección que están en la réplica, en una sola consulta. No llama a patient-service.
+     */
+    public Mono<Map<String, PatientInfoDTO>> buscar(Collection<String> numerosIdentificacion) {
+        return resumenRepository.findAllById(new HashSet<>(numerosIdentificacion))
+                .collectMap(PacienteResumenRow::getNumeroIdentificacion, PacienteResumenReplica::aPatientInfo);
+    }
+
+    @Scheduled(fixedDelayString = "${patient.replica.poll-interval:5s}")
+    public void sincronizar() {
+        if (!habilitada) {
+            return;
+        }
+        try {
+            long desde = versionActual();
+            boolean hayMas = true;
+            while (hayMas) {
+                CambiosPacienteDTO pagina = patientServiceClient.findChanges(desde, batchSize).block();
+                if (pagina == null || pagina.getCambios() == null || pagina.getCambios().isEmpty()) {
+                    break;
+                }
+                if (!writer.aplicar(desde, pagina)) {
+                    desde = versionActual(); // Otra instancia la aplicó antes: se sigue desde donde la dejó
+                    continue;
+                }
+                aplicados.increment(pagina.getCambios().size());
+                desde = pagina.getSiguiente();
+                hayMas = pagina.isHayMas();
+            }
+            ultimaSincronizacion = Instant.now();
+        } catch (PatientServiceUnavailableException e) {
+            logger.debug("Réplica de pacientes sin sincronizar: {}", e.getMessage());
+        } catch (RuntimeException e) {
+            logger.warn("Error sincronizando la réplica de pacientes: {}", e.getMessage());
+        }
+    }
+
+    private long versionActual() {
+        return cursorRepository.findById(PacienteResumenWriter.CURSOR)
+                .orElseGet(() -> cursorRepository.save(new ReplicaCursor(PacienteResumenWriter.CURSOR, 0L, LocalDateTime.now())))
+                .getVersion();
+    }
+
+    private double segundosDesdeSincronizacion() {
+        Instant ultima = ultimaSincronizacion;
+        return ultima == null ? Double.NaN : Duration.between(ultima, Instant.now()).toMillis() / 1000.0;
+    }
+
+    private static PatientInfoDTO aPatientInfo(PacienteResumenRow fila) {
+        CotizanteSummaryDTO cotizante = null;
+        if (fila.getCotizanteNumeroIdentificacion() != null) {
+            cotizante = new CotizanteSummaryDTO();
+            cotizante.setId(fila.getCotizanteId());
+            cotizante.setNombreCompleto(fila.getCotizanteNombreCompleto());
+            cotizante.setTipoIdentificacion(fila.getCotizanteTipoIdentificacion());
+            cotizante.setNumeroIdentificacion(fila.getCotizanteNumeroIdentificacion());
+        }
+        return PatientInfoDTO.builder()
+                .tipoPaciente(fila.getTipoPaciente())
+                .id(fila.getPacienteId())
+                .nombreCompleto(fila.getNombreCompleto())
+                .tipoIdentificacion(fila.getTipoIdentificacion())
+                .numeroIdentificacion(fila.getNumeroIdentificacion())
+                .fechaNacimiento(fila.getFechaNacimiento())
+                .fechaExpedicion(fila.getFechaExpedicion())
+                .celular(fila.getCelular())
+                .correo(fila.getCorreo())
+                .direccionResidencia(fila.getDireccionResidencia())
+                .estado(fila.getEstado())
+                .parentesco(fila.getParentesco())
+                .eps(fila.getEps())
+                .infoAdicional(fila.getInfoAdicional())
+                .cotizante(cotizante)
+                .build();
+    }
+}
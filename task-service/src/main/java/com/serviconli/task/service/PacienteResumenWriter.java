@@ -0,0 +1,95 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.CambioPacienteDTO;
+import com.serviconli.task.dto.CambiosPacienteDTO;
+import com.serviconli.task.dto.CotizanteSummaryDTO;
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.repository.ReplicaCursorRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Aplica una página del feed de cambios de pacientes a {@code paciente_resumen} en una sola transacción:
+ * avanza el cursor, inserta o actualiza los UPSERT y borra los DELETE, cada grupo con un batchUpdate.
+ */
+@Component
+public class PacienteResumenWriter {
+
+    static final String CURSOR = "pacientes";
+
+    private static final String UPSERT = "INSERT INTO paciente_resumen (numero_identificacion, tipo_paciente, paciente_id, "
+            + "nombre_completo, tipo_identificacion, fecha_nacimiento, fecha_expedicion, celular, correo, direccion_residencia, "
+            + "estado, parentesco, eps, info_adicional, cotizante_id, cotizante_nombre_completo, cotizante_tipo_identificacion, "
+            + "cotizante_numero_identificacion, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) "
+            + "ON DUPLICATE KEY UPDATE tipo_paciente = VALUES(tipo_paciente), paciente_id = VALUES(paciente_id), "
+            + "nombre_completo = VALUES(nombre_completo), tipo_identificacion = VALUES(tipo_identificacion), "
+            + "fecha_nacimiento = VALUES(fecha_nacimiento), fecha_expedicion = VALUES(fecha_expedicion), "
+            + "celular = VALUES(celular), correo = VALUES(correo), direccion_residencia = VALUES(direccion_residencia), "
+            + "estado = VALUES(estado), parentesco = VALUES(parentesco), eps = VALUES(eps), info_adicional = VALUES(info_adicional), "
+            + "cotizante_id = VALUES(cotizante_id), cotizante_nombre_completo = VALUES(cotizante_nombre_completo), "
+            + "cotizante_tipo_identificacion = VALUES(cotizante_tipo_identificacion), "
+            + "cotizante_numero_identificacion = VALUES(cotizante_numero_identificacion), version = VALUES(version)";
+
+    private static final String DELETE = "DELETE FROM paciente_resumen WHERE numero_identificacion = ?";
+
+    private final ReplicaCursorRepository cursorRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    public PacienteResumenWriter(ReplicaCursorRepository cursorRepository, JdbcTemplate jdbcTemplate) {
+        this.cursorRepository = cursorRepository;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return false si el cursor ya no estaba en {@code desde} (otra instancia aplicó la página) y no se ha escrito nada
+     */
+    @Transactional
+    public boolean aplicar(long desde, CambiosPacienteDTO pagina) {
+        // Primero el cursor: bloquea su fila, así que la otra instancia espera aquí y después no lo encuentra en desde
+        if (cursorRepository.avanzar(CURSOR, desde, pagina.getSiguiente(), LocalDateTime.now()) == 0) {
+            return false;
+        }
+        List<CambioPacienteDTO> upserts = pagina.getCambios().stream().filter(c -> c.getPaciente() != null).toList();
+        List<CambioPacienteDTO> bajas = pagina.getCambios().stream().filter(c -> c.getPaciente() == null).toList();
+
+        if (!upserts.isEmpty()) {
+            jdbcTemplate.batchUpdate(UPSERT, upserts, upserts.size(), PacienteResumenWriter::asignar);
+        }
+        if (!bajas.isEmpty()) {
+            jdbcTemplate.batchUpdate(DELETE, bajas, bajas.size(),
+                    (ps, cambio) -> ps.setString(1, cambio.getNumeroIdentificacion()));
+        }
+        return true;
+    }
+
+    private static void asignar(PreparedStatement ps, CambioPacienteDTO cambio) throws SQLException {
+        PatientInfoDTO p = cambio.getPaciente();
+        CotizanteSummaryDTO c = p.getCotizante();
+        ps.setString(1, cambio.getNumeroIdentificacion());
+        ps.setString(2, p.getTipoPaciente());
+        ps.setObject(3, p.getId(), Types.BIGINT);
+        ps.setString(4, p.getNombreCompleto());
+        ps.setString(5, p.getTipoIdentificacion());
+        ps.setString(6, p.getFechaNacimiento());
+        ps.setString(7, p.getFechaExpedicion());
+        ps.setString(8, p.getCelular());
+        ps.setString(9, p.getCorreo());
+        ps.setString(10, p.getDireccionResidencia());
+        ps.setString(11, p.getEstado());
+        ps.setString(12, p.getParentesco());
+        ps.setString(13, p.getEps());
+        ps.setString(14, p.getInfoAdicional());
+        ps.setObject(15, c == null ? null : c.getId(), Types.BIGINT);
+        ps.setString(16, c == null ? null : c.getNombreCompleto());
+        ps.setString(17, c == null ? null : c.getTipoIdentificacion());
+        ps.setString(18, c == null ? null : c.getNumeroIdentificacion());
+        ps.setLong(19, cambio.getVersion());
+    }
+}
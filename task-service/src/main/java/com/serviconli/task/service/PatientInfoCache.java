@@ -0,0 +1,200 @@
+package com.serviconli.task.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.serviconli.task.client.PatientServiceClient;
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.exception.PatientServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Caché en memoria de {@link PatientInfoDTO} delante de patient-service.
+ *
+ * <ul>
+ *   <li>{@code patient.cache.max-size}: número máximo de pacientes (desalojo W-TinyLFU de Caffeine).</li>
+ *   <li>{@code patient.cache.ttl}: edad a partir de la cual una entrada se refresca en segundo plano.
+ *       Mientras tanto se sigue sirviendo el valor viejo (stale-while-revalidate).</li>
+ *   <li>{@code patient.cache.max-stale}: edad máxima absoluta. Si patient-service está caído el refresco
+ *       falla, Caffeine conserva el último valor conocido y se sigue sirviendo hasta este límite.</li>
+ * </ul>
+ *
+ * Las métricas (cache.gets, cache.evictions, cache.size...) se publican en /actuator/metrics con el tag
+ * {@code cache=patientInfo}.
+ *
+ * <p>Las consultas concurrentes de un mismo paciente se agrupan (single-flight): mientras hay una llamada
+ * a patient-service en curso para un {@code numeroIdentificacion}, Caffeine guarda su futuro en la entrada y
+ * los demás que lo piden, por {@link #get} o dentro de un {@link #getAll}, esperan ese mismo resultado en lugar
+ * de lanzar otra llamada. Cada petición ahorrada así suma en {@code patient.lookups.coalesced}. El futuro se
+ * comparte con {@code Mono.fromFuture(..., true)}: si un cliente cancela, la llamada sigue para los demás.
+ *
+ * <p>Para enriquecer respuestas están {@link #getSiDisponible} y {@link #getAllSiDisponible}. En cuanto la réplica
+ * local ({@link PacienteResumenReplica}) está al día leen de ella, con una consulta a MySQL y sin llamar a
+ * patient-service. Mientras no lo está, van a patient-service, y si no está disponible devuelven vacío y la respuesta
+ * sale sin paciente (métrica {@code patient.enrichment.degraded}). {@link #get} y {@link #getAll} no usan la réplica
+ * y propagan el error, para lo que necesita validar el paciente. {@link #getAllDesdeReplica} es para lo que escribe
+ * filas completas (exportación, Google Sheets): lee de la réplica y solo pide a patient-service los que no están.
+ */
+@Service
+public class PatientInfoCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientInfoCache.class);
+    private static final String CACHE_NAME = "patientInfo";
+
+    private final AsyncLoadingCache<String, PatientInfoDTO> cache;
+    private final PacienteResumenReplica replica;
+    private final Counter degradadas;
+    private final Counter agrupadas;
+
+    public PatientInfoCache(PatientServiceClient patientServiceClient,
+                            PacienteResumenReplica replica,
+                            MeterRegistry meterRegistry,
+                            @Value("${patient.cache.max-size:10000}") long maxSize,
+                            @Value("${patient.cache.ttl:10m}") Duration ttl,
+                            @Value("${patient.cache.max-stale:24h}") Duration maxStale) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .refreshAfterWrite(ttl)
+                .expireAfterWrite(maxStale)
+                .recordStats()
+                .buildAsync(new PatientLoader(patientServiceClient));
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        this.replica = replica;
+        this.degradadas = Counter.builder("patient.enrichment.degraded")
+                .description("Consultas de pacientes respondidas sin paciente porque patient-service no estaba disponible")
+                .register(meterRegistry);
+        this.agrupadas = Counter.builder("patient.lookups.coalesced")
+                .description("Consultas de pacientes que esperaron una llamada a patient-service ya en curso en lugar de hacer otra")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Devuelve el paciente, desde memoria si es posible. Vacío si patient-service no lo conoce.
+     */
+    public Mono<PatientInfoDTO> get(String numeroIdentificacion) {
+        contarAgrupadas(List.of(numeroIdentificacion));
+        return Mono.fromFuture(cache.get(numeroIdentificacion), true);
+    }
+
+    /**
+     * Devuelve los pacientes conocidos de la colección. Los que faltan en memoria se piden en una sola
+     * consulta por lotes; los que no existen no aparecen en el mapa.
+     */
+    public Mono<Map<String, PatientInfoDTO>> getAll(Collection<String> numerosIdentificacion) {
+        contarAgrupadas(numerosIdentificacion);
+        return Mono.fromFuture(cache.getAll(numerosIdentificacion), true);
+    }
+
+    /**
+     * Como {@link #get}, pero desde la réplica si está al día, y vacío si patient-service no está disponible.
+     */
+    public Mono<PatientInfoDTO> getSiDisponible(String numeroIdentificacion) {
+        if (replica.lista()) {
+            return deReplica(List.of(numeroIdentificacion)).mapNotNull(pacientes -> pacientes.get(numeroIdentificacion));
+        }
+        return get(numeroIdentificacion)
+                .onErrorResume(PatientServiceUnavailableException.class, e -> degradar(e, Mono.empty()));
+    }
+
+    /**
+     * Como {@link #getAll}, pero desde la réplica si está al día, y con los pacientes que ya estén en memoria si
+     * patient-service no está disponible.
+     */
+    public Mono<Map<String, PatientInfoDTO>> getAllSiDisponible(Collection<String> numerosIdentificacion) {
+        if (replica.lista()) {
+            return deReplica(numerosIdentificacion);
+        }
+        return getAll(numerosIdentificacion)
+                .onErrorResume(PatientServiceUnavailableException.class,
+                        e -> degradar(e, Mono.just(cache.synchronous().getAllPresent(numerosIdentificacion))));
+    }
+
+    /**
+     * Como {@link #getAll}, pero desde la réplica si está al día. Los pacientes que no están en la réplica ni en
+     * memoria se piden con {@link #getAll}, que propaga el error si patient-service no está disponible.
+     */
+    public Mono<Map<String, PatientInfoDTO>> getAllDesdeReplica(Collection<String> numerosIdentificacion) {
+        if (!replica.lista()) {
+            return getAll(numerosIdentificacion);
+        }
+        return deReplica(numerosIdentificacion).flatMap(locales -> {
+            Set<String> faltan = numerosIdentificacion.stream()
+                    .filter(id -> !locales.containsKey(id))
+                    .collect(Collectors.toSet());
+            if (faltan.isEmpty()) {
+                return Mono.just(locales);
+            }
+            return getAll(faltan).map(remotos -> {
+                Map<String, PatientInfoDTO> pacientes = new HashMap<>(locales);
+                pacientes.putAll(remotos);
+                return pacientes;
+            });
+        });
+    }
+
+    // Un paciente que aún no ha llegado a la réplica (dado de alta hace unos segundos) se completa con lo que haya
+    // en memoria, que es donde lo dejó la validación al crear su tarea; tampoco aquí se llama a patient-service
+    private Mono<Map<String, PatientInfoDTO>> deReplica(Collection<String> numerosIdentificacion) {
+        return replica.buscar(numerosIdentificacion).map(locales -> {
+            Set<String> faltan = numerosIdentificacion.stream()
+                    .filter(id -> !locales.containsKey(id))
+                    .collect(Collectors.toSet());
+            if (faltan.isEmpty()) {
+                return locales;
+            }
+            Map<String, PatientInfoDTO> pacientes = new HashMap<>(locales);
+            pacientes.putAll(cache.synchronous().getAllPresent(faltan));
+            return pacientes;
+        });
+    }
+
+    // Las claves con una carga ya en curso se resolverán con ella (la cuenta es aproximada: solo es una métrica)
+    private void contarAgrupadas(Collection<String> numerosIdentificacion) {
+        long enCurso = numerosIdentificacion.stream()
+                .distinct()
+                .map(cache.asMap()::get) // asMap() no cuenta aciertos ni fallos en cache.gets
+                .filter(futuro -> futuro != null && !futuro.isDone())
+                .count();
+        if (enCurso > 0) {
+            agrupadas.increment(enCurso);
+        }
+    }
+
+    private <T> Mono<T> degradar(PatientServiceUnavailableException e, Mono<T> respuesta) {
+        degradadas.increment();
+        logger.debug("Respuesta sin datos de paciente: {}", e.getMessage());
+        return respuesta;
+    }
+
+    // Carga individual y por lotes contra patient-service. Un null (paciente inexistente) no se guarda.
+    private record PatientLoader(PatientServiceClient client) implements AsyncCacheLoader<String, PatientInfoDTO> {
+
+        @Override
+        public CompletableFuture<? extends PatientInfoDTO> asyncLoad(String key, Executor executor) {
+            return client.findPatientById(key).toFuture();
+        }
+
+        @Override
+        public CompletableFuture<? extends Map<? extends String, ? extends PatientInfoDTO>> asyncLoadAll(
+                Set<? extends String> keys, Executor executor) {
+            return client.findPatientsByIds(Set.copyOf(keys)).toFuture();
+        }
+    }
+}
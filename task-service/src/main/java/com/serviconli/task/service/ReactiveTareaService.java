@@ -0,0 +1,26 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Variante no bloqueante de {@link TareaService}: mismas operaciones, pero sobre R2DBC y con el
+ * enriquecimiento de pacientes compuesto de forma reactiva. La expone /api/v2/tareas.
+ */
+public interface ReactiveTareaService {
+
+    // --- Operaciones CRUD básicas ---
+    Mono<TaskResponseDTO> crearTarea(CreateTaskRequestDTO createTaskRequestDTO);
+    Mono<TaskResponseDTO> obtenerTareaPorId(Long id); // Vacío si no existe
+    Mono<CursorPageDTO<TaskResponseDTO>> obtenerTodasLasTareas(TaskPageRequestDTO pagina);
+    Mono<TaskResponseDTO> actualizarTarea(Long id, UpdateTaskDTO updateTaskDTO);
+    Mono<Void> eliminarTarea(Long id);
+
+    // --- Búsquedas Específicas (paginadas por cursor sobre (fechaCreacion, id)) ---
+    Mono<CursorPageDTO<TaskResponseDTO>> buscarPorNumeroIdentificacionPaciente(String numeroIdentificacion, TaskPageRequestDTO pagina);
+    Mono<CursorPageDTO<TaskResponseDTO>> buscarPorNombrePaciente(String nombre, TaskPageRequestDTO pagina);
+    Mono<CursorPageDTO<TaskResponseDTO>> filtrarTareasPorAtributos(TaskFilterDTO filtro, TaskPageRequestDTO pagina);
+
+    Flux<HistorialTareaResponseDTO> obtenerHistorialPorTarea(Long tareaId);
+}
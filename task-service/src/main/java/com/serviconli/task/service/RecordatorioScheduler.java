@@ -0,0 +1,248 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.Tarea;
+import com.serviconli.task.model.TareaRow;
+import com.serviconli.task.repository.RecordatorioPendiente;
+import com.serviconli.task.repository.TareaRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dispara los recordatorios de las tareas ({@code Tarea.fechaRecordatorio}) en su momento exacto.
+ *
+ * <p>En memoria solo están los recordatorios de la ventana {@code (ahora, ahora + task.reminders.horizon]},
+ * en una cola ordenada por (fecha, id) más un mapa id → entrada: programar, reprogramar o cancelar el de una
+ * tarea cuesta O(log n). Un único hilo duerme hasta el primero de la cola y, al despertar, dispara todos los
+ * que ya han vencido publicando un {@link RecordatorioVencidoEvent}.
+ *
+ * <p>La ventana se amplía cada {@code task.reminders.reload-interval} leyendo de MySQL solo el tramo nuevo,
+ * por el índice de {@code fecha_recordatorio}. Al disparar un recordatorio se marca {@code recordatorio_enviado}
+ * con un UPDATE condicional, así que tras un reinicio basta con cargar los pendientes desde
+ * {@code ahora - task.reminders.catch-up}: los que vencieron con el servicio parado se disparan al arrancar y
+ * los ya enviados no se repiten. Con varias instancias, el UPDATE condicional hace que solo una lo publique.
+ *
+ * <p>Métricas: {@code recordatorios.programados} (en memoria) y {@code recordatorios.disparados}.
+ */
+@Service
+public class RecordatorioScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(RecordatorioScheduler.class);
+    private static final Duration REINTENTO = Duration.ofSeconds(30);
+
+    private record Entrada(LocalDateTime cuando, long tareaId) {
+    }
+
+    private static final Comparator<Entrada> ORDEN =
+            Comparator.comparing(Entrada::cuando).thenComparingLong(Entrada::tareaId);
+
+    private final TareaRepository tareaRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final Counter disparados;
+
+    // Protegidos por "this"
+    private final TreeSet<Entrada> cola = new TreeSet<>(ORDEN);
+    private final Map<Long, Entrada> porTarea = new HashMap<>();
+    private ScheduledFuture<?> despertador;
+    private LocalDateTime despertadorEn;
+    private LocalDateTime cargadoHasta; // null hasta la primera carga: antes de eso no se acepta nada
+
+    private final ScheduledExecutorService reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "recordatorios");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    @Value("${task.reminders.horizon:1h}")
+    private Duration horizonte;
+
+    @Value("${task.reminders.catch-up:24h}")
+    private Duration recuperacion;
+
+    public RecordatorioScheduler(TareaRepository tareaRepository,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry) {
+        this.tareaRepository = tareaRepository;
+        this.eventPublisher = eventPublisher;
+        Gauge.builder("recordatorios.programados", this, RecordatorioScheduler::programados)
+                .description("Recordatorios cargados en memoria a la espera de su hora")
+                .register(meterRegistry);
+        this.disparados = Counter.builder("recordatorios.disparados")
+                .description("Recordatorios publicados")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Carga el siguiente tramo de la ventana. La primera vez, también los pendientes que vencieron con el
+     * servicio parado (hasta {@code task.reminders.catch-up} atrás).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${task.reminders.reload-interval:15m}", fixedDelayString = "${task.reminders.reload-interval:15m}")
+    public void cargarVentana() {
+        LocalDateTime hasta = LocalDateTime.now().plus(horizonte);
+        LocalDateTime desde;
+        synchronized (this) {
+            desde = cargadoHasta != null ? cargadoHasta : hasta.minus(horizonte).minus(recuperacion);
+            // Se adelanta antes de consultar: lo que se confirme mientras tanto entra por reprogramar()
+            cargadoHasta = hasta;
+        }
+        List<RecordatorioPendiente> pendientes = tareaRepository.findRecordatoriosPendientes(desde, hasta);
+        synchronized (this) {
+            // Lo que ya está en memoria llegó por reprogramar() y es al menos tan reciente como esta lectura
+            pendientes.forEach(p -> {
+                if (!porTarea.containsKey(p.getTareaId())) {
+                    poner(p.getTareaId(), p.getFechaRecordatorio());
+                }
+            });
+            rearmar();
+        }
+        logger.debug("Recordatorios cargados hasta {}: {} nuevos, {} en memoria", hasta, pendientes.size(), programados());
+    }
+
+    /**
+     * Programa, mueve o cancela el recordatorio de una tarea tras un alta o un cambio.
+     * Si hay una transacción activa, se aplica solo cuando se confirma.
+     */
+    public void reprogramar(Tarea tarea) {
+        alConfirmar(tarea.getId(), pendiente(tarea.getFechaRecordatorio(), tarea.getEstado(), tarea.isRecordatorioEnviado()));
+    }
+
+    public void reprogramar(TareaRow tarea) {
+        alConfirmar(tarea.getId(), pendiente(tarea.getFechaRecordatorio(), tarea.getEstado(), tarea.isRecordatorioEnviado()));
+    }
+
+    /**
+     * Quita el recordatorio de una tarea eliminada.
+     */
+    public void cancelar(Long tareaId) {
+        alConfirmar(tareaId, null);
+    }
+
+    @PreDestroy
+    void detener() {
+        reloj.shutdownNow();
+    }
+
+    private static LocalDateTime pendiente(LocalDateTime fecha, EstadoTarea estado, boolean enviado) {
+        return enviado || estado == EstadoTarea.COMPLETADA ? null : fecha;
+    }
+
+    private void alConfirmar(Long tareaId, LocalDateTime fecha) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(tareaId, fecha);
+                }
+            });
+        } else {
+            aplicar(tareaId, fecha);
+        }
+    }
+
+    private synchronized void aplicar(Long tareaId, LocalDateTime fecha) {
+        quitar(tareaId);
+        // Fuera de la ventana cargada no se guarda nada: ya lo traerá cargarVentana() cuando toque
+        if (fecha != null && cargadoHasta != null && !fecha.isAfter(cargadoHasta)) {
+            poner(tareaId, fecha);
+        }
+        rearmar();
+    }
+
+    private void poner(long tareaId, LocalDateTime fecha) {
+        Entrada entrada = new Entrada(fecha, tareaId);
+        porTarea.put(tareaId, entrada);
+        cola.add(entrada);
+    }
+
+    private void quitar(long tareaId) {
+        Entrada anterior = porTarea.remove(tareaId);
+        if (anterior != null) {
+            cola.remove(anterior);
+        }
+    }
+
+    private synchronized int programados() {
+        return porTarea.size();
+    }
+
+    // Deja el despertador a la hora del primero de la cola (si ya lo está, no lo toca)
+    private void rearmar() {
+        LocalDateTime primero = cola.isEmpty() ? null : cola.first().cuando();
+        if (primero != null && primero.equals(despertadorEn)) {
+            return;
+        }
+        if (despertador != null) {
+            despertador.cancel(false);
+            despertador = null;
+        }
+        despertadorEn = primero;
+        if (primero != null && !reloj.isShutdown()) {
+            long espera = Math.max(0, Duration.between(LocalDateTime.now(), primero).toMillis());
+            despertador = reloj.schedule(this::despertar, espera, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void despertar() {
+        List<Entrada> vencidos = new ArrayList<>();
+        synchronized (this) {
+            despertadorEn = null;
+            despertador = null;
+            LocalDateTime ahora = LocalDateTime.now();
+            while (!cola.isEmpty() && !cola.first().cuando().isAfter(ahora)) {
+                Entrada entrada = cola.pollFirst();
+                porTarea.remove(entrada.tareaId());
+                vencidos.add(entrada);
+            }
+        }
+        vencidos.forEach(this::disparar);
+        synchronized (this) {
+            rearmar();
+        }
+    }
+
+    private void disparar(Entrada entrada) {
+        try {
+            if (tareaRepository.marcarRecordatorioEnviado(entrada.tareaId(), entrada.cuando()) == 1) {
+                logger.info("Recordatorio de la tarea {} ({})", entrada.tareaId(), entrada.cuando());
+                disparados.increment();
+                eventPublisher.publishEvent(new RecordatorioVencidoEvent(entrada.tareaId(), entrada.cuando()));
+                return;
+            }
+            // Otra instancia ya lo envió, o la entrada venía de una lectura anterior a una reprogramación
+            tareaRepository.findRecordatorioPendiente(entrada.tareaId())
+                    .filter(p -> !p.getFechaRecordatorio().equals(entrada.cuando()))
+                    .ifPresent(p -> aplicar(p.getTareaId(), p.getFechaRecordatorio()));
+        } catch (Exception e) {
+            logger.warn("No se pudo disparar el recordatorio de la tarea {}; se reintenta en {}", entrada.tareaId(), REINTENTO, e);
+            if (!reloj.isShutdown()) {
+                reloj.schedule(() -> disparar(entrada), REINTENTO.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+}
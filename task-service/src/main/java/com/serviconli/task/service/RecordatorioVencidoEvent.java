@@ -0,0 +1,10 @@
+package com.serviconli.task.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * Se publica (como evento de Spring) cuando llega la fecha de recordatorio de una tarea.
+ * Cada recordatorio se publica una sola vez, aunque haya varias instancias de task-service.
+ */
+public record RecordatorioVencidoEvent(Long tareaId, LocalDateTime fechaRecordatorio) {
+}
@@ -0,0 +1,99 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.model.OperacionSheets;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Write-behind de Google Sheets: recibe todos los cambios acumulados en una ventana de envío y los escribe
+ * con el mínimo de llamadas.
+ *
+ * <p>Los cambios de una misma tarea se fusionan en uno solo:
+ * <ul>
+ *     <li>CREAR seguido de ACTUALIZAR → CREAR con la última fila.</li>
+ *     <li>CREAR seguido (en algún momento) de ELIMINAR → nada; la tarea nunca llegó a la hoja.</li>
+ *     <li>varios ACTUALIZAR → un ACTUALIZAR con la última fila.</li>
+ *     <li>cualquier secuencia que termina en ELIMINAR → ELIMINAR.</li>
+ * </ul>
+ * Después, todas las altas van en un único {@code values.append} y todas las actualizaciones y bajas en un
+ * único {@code values.batchUpdate}.
+ */
+@Component
+public class SheetsBatchWriter {
+
+    private final GoogleSheetsService googleSheetsService;
+
+    public SheetsBatchWriter(GoogleSheetsService googleSheetsService) {
+        this.googleSheetsService = googleSheetsService;
+    }
+
+    /**
+     * Un cambio pendiente. {@code fila} es la fila completa a escribir (null para ELIMINAR, o si la tarea ya
+     * no existe y no hay nada que escribir).
+     */
+    public record Cambio(String tareaId, OperacionSheets operacion, List<Object> fila) {
+    }
+
+    /**
+     * Escribe los cambios, que deben venir en el orden en que ocurrieron.
+     *
+     * @return las tareas cuyo cambio no se pudo escribir, con el error correspondiente
+     */
+    public Map<String, Exception> escribir(List<Cambio> cambios) {
+        Map<String, Cambio> fusionados = fusionar(cambios);
+
+        List<List<Object>> altas = new ArrayList<>();
+        List<String> idsAltas = new ArrayList<>();
+        Map<String, List<Object>> actualizaciones = new LinkedHashMap<>();
+        List<String> bajas = new ArrayList<>();
+        fusionados.values().forEach(cambio -> {
+            switch (cambio.operacion()) {
+                case CREAR -> {
+                    altas.add(cambio.fila());
+                    idsAltas.add(cambio.tareaId());
+                }
+                case ACTUALIZAR -> actualizaciones.put(cambio.tareaId(), cambio.fila());
+                case ELIMINAR -> bajas.add(cambio.tareaId());
+            }
+        });
+
+        Map<String, Exception> fallos = new HashMap<>();
+        try {
+            googleSheetsService.appendRows(altas);
+        } catch (Exception e) {
+            idsAltas.forEach(id -> fallos.put(id, e));
+        }
+        try {
+            googleSheetsService.batchWrite(actualizaciones, bajas);
+        } catch (Exception e) {
+            actualizaciones.keySet().forEach(id -> fallos.put(id, e));
+            bajas.forEach(id -> fallos.put(id, e));
+        }
+        return fallos;
+    }
+
+    static Map<String, Cambio> fusionar(List<Cambio> cambios) {
+        Map<String, Cambio> fusionados = new LinkedHashMap<>();
+        Map<String, Boolean> creadas = new HashMap<>();
+
+        for (Cambio cambio : cambios) {
+            String id = cambio.tareaId();
+            boolean creada = creadas.computeIfAbsent(id, k -> cambio.operacion() == OperacionSheets.CREAR);
+            if (cambio.operacion() == OperacionSheets.ELIMINAR) {
+                if (creada) {
+                    fusionados.remove(id);
+                } else {
+                    fusionados.put(id, cambio);
+                }
+            } else if (cambio.fila() != null) {
+                fusionados.put(id, new Cambio(id, creada ? OperacionSheets.CREAR : OperacionSheets.ACTUALIZAR, cambio.fila()));
+            }
+        }
+        return fusionados;
+    }
+}
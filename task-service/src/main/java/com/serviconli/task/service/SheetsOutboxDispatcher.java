@@ -0,0 +1,223 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.model.EstadoOutbox;
+import com.serviconli.task.model.OperacionSheets;
+import com.serviconli.task.model.SheetsOutboxEvent;
+import com.serviconli.task.model.Tarea;
+import com.serviconli.task.repository.EventoOutboxPendiente;
+import com.serviconli.task.repository.SheetsOutboxRepository;
+import com.serviconli.task.repository.TareaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Vacía la tabla sheets_outbox hacia Google Sheets fuera de las peticiones HTTP.
+ *
+ * <p>Los eventos se procesan por orden de id. Si un evento de una tarea falla o espera su reintento,
+ * los eventos posteriores de esa misma tarea esperan también, así que el orden por tarea se mantiene.
+ * Tras {@code sheets.outbox.max-attempts} intentos el evento pasa a FALLIDO (dead-letter).
+ *
+ * <p>Cada pasada reclama sus eventos en una transacción corta (SELECT ... FOR UPDATE SKIP LOCKED) que los
+ * arrienda adelantando su {@code proximo_intento} {@code sheets.outbox.lease}, y la confirma antes de llamar a
+ * Sheets: el envío puede esperar cuota o reintentos de 429 y no debe retener la conexión ni los bloqueos. El
+ * resultado se anota después en otra transacción corta. Así puede haber varias instancias despachando: cada una
+ * se lleva eventos distintos, y de una tarea solo se envía lo que va seguido desde su primer evento pendiente.
+ * Si una instancia cae a mitad de envío, sus eventos vuelven a estar listos cuando vence el arriendo.
+ *
+ * <p>La fila se construye con el estado actual de la tarea en el momento del envío, así que reenviar
+ * un evento es idempotente y el último cambio nunca se pierde.
+ *
+ * <p>Cada pasada es una ventana de envío: todos los eventos listos se entregan juntos a
+ * {@link SheetsBatchWriter}, que fusiona los de una misma tarea y los escribe en lote.
+ */
+@Component
+public class SheetsOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(SheetsOutboxDispatcher.class);
+
+    private final SheetsOutboxRepository outboxRepository;
+    private final TareaRepository tareaRepository;
+    private final PatientInfoCache patientInfoCache;
+    private final SheetsBatchWriter batchWriter;
+    private final TareaSheetRowMapper rowMapper;
+    private final TransactionTemplate transaccion;
+
+    @Value("${sheets.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${sheets.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${sheets.outbox.backoff-base:2s}")
+    private Duration backoffBase;
+
+    @Value("${sheets.outbox.backoff-max:10m}")
+    private Duration backoffMax;
+
+    @Value("${sheets.outbox.lease:5m}")
+    private Duration lease;
+
+    public SheetsOutboxDispatcher(SheetsOutboxRepository outboxRepository,
+                                  TareaRepository tareaRepository,
+                                  PatientInfoCache patientInfoCache,
+                                  SheetsBatchWriter batchWriter,
+                                  TareaSheetRowMapper rowMapper,
+                                  PlatformTransactionManager transactionManager) {
+        this.outboxRepository = outboxRepository;
+        this.tareaRepository = tareaRepository;
+        this.patientInfoCache = patientInfoCache;
+        this.batchWriter = batchWriter;
+        this.rowMapper = rowMapper;
+        this.transaccion = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${sheets.outbox.poll-interval-ms:5000}")
+    public void despachar() {
+        Map<Long, List<SheetsOutboxEvent>> eventosPorTarea = transaccion.execute(estado -> reclamar());
+        if (eventosPorTarea == null || eventosPorTarea.isEmpty()) {
+            return;
+        }
+
+        // Fuera de toda transacción: aquí se espera la cuota de la API y el backoff de los 429
+        Map<String, Exception> fallos;
+        try {
+            fallos = batchWriter.escribir(construirCambios(eventosPorTarea));
+        } catch (Exception e) {
+            fallos = new HashMap<>();
+            for (Long tareaId : eventosPorTarea.keySet()) {
+                fallos.put(tareaId.toString(), e);
+            }
+        }
+
+        Map<String, Exception> resultado = fallos;
+        transaccion.executeWithoutResult(estado -> registrarResultado(eventosPorTarea, resultado));
+    }
+
+    // Bloquea los eventos listos, los arrienda y suelta los bloqueos al confirmar: mientras dure el arriendo
+    // ninguna instancia los vuelve a reclamar, ni tampoco los posteriores de sus tareas
+    private Map<Long, List<SheetsOutboxEvent>> reclamar() {
+        LocalDateTime ahora = LocalDateTime.now();
+        List<SheetsOutboxEvent> listos = outboxRepository.reclamarListos(ahora, batchSize);
+        if (listos.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, List<SheetsOutboxEvent>> eventosPorTarea = seguidosPorTarea(listos);
+
+        LocalDateTime finArriendo = ahora.plus(lease);
+        List<SheetsOutboxEvent> arrendados = new ArrayList<>();
+        eventosPorTarea.values().forEach(arrendados::addAll);
+        arrendados.forEach(evento -> evento.setProximoIntento(finArriendo));
+        outboxRepository.saveAll(arrendados);
+        return eventosPorTarea;
+    }
+
+    // Se releen los eventos para no pisar los que otra instancia haya procesado si el arriendo llegó a vencer
+    private void registrarResultado(Map<Long, List<SheetsOutboxEvent>> eventosPorTarea, Map<String, Exception> fallos) {
+        List<Long> ids = new ArrayList<>();
+        eventosPorTarea.values().forEach(eventos -> eventos.forEach(evento -> ids.add(evento.getId())));
+
+        List<SheetsOutboxEvent> procesados = new ArrayList<>();
+        for (SheetsOutboxEvent evento : outboxRepository.findAllById(ids)) {
+            if (evento.getEstado() != EstadoOutbox.PENDIENTE) {
+                continue;
+            }
+            Exception fallo = fallos.get(evento.getTareaId().toString());
+            if (fallo == null) {
+                evento.setEstado(EstadoOutbox.ENVIADO);
+                evento.setFechaProcesado(LocalDateTime.now());
+                evento.setUltimoError(null);
+            } else {
+                registrarFallo(evento, fallo);
+            }
+            procesados.add(evento);
+        }
+        outboxRepository.saveAll(procesados);
+    }
+
+    // Otra instancia puede tener bloqueado un evento anterior (o intermedio) de la misma tarea: de cada tarea se
+    // toman solo los eventos seguidos desde su primer pendiente, y el resto espera a la siguiente pasada
+    private Map<Long, List<SheetsOutboxEvent>> seguidosPorTarea(List<SheetsOutboxEvent> listos) {
+        Map<Long, SheetsOutboxEvent> reclamados = new HashMap<>();
+        listos.forEach(evento -> reclamados.put(evento.getId(), evento));
+
+        Map<Long, List<SheetsOutboxEvent>> eventosPorTarea = new LinkedHashMap<>();
+        Set<Long> cortadas = new HashSet<>();
+        List<Long> tareaIds = listos.stream().map(SheetsOutboxEvent::getTareaId).distinct().toList();
+        for (EventoOutboxPendiente pendiente : outboxRepository.findPendientesDeTareas(tareaIds)) {
+            Long tareaId = pendiente.getTareaId();
+            SheetsOutboxEvent evento = reclamados.get(pendiente.getId());
+            if (evento == null) {
+                cortadas.add(tareaId);
+            } else if (!cortadas.contains(tareaId)) {
+                eventosPorTarea.computeIfAbsent(tareaId, id -> new ArrayList<>()).add(evento);
+            }
+        }
+        return eventosPorTarea;
+    }
+
+    // La fila se arma una sola vez por tarea, con su estado actual y los pacientes en una sola consulta a la réplica
+    private List<SheetsBatchWriter.Cambio> construirCambios(Map<Long, List<SheetsOutboxEvent>> eventosPorTarea) {
+        Map<Long, Tarea> tareas = new HashMap<>();
+        tareaRepository.findAllById(eventosPorTarea.keySet()).forEach(t -> tareas.put(t.getId(), t));
+        Set<String> identificaciones = new HashSet<>();
+        tareas.values().forEach(t -> identificaciones.add(t.getPacienteNumeroIdentificacion()));
+        Map<String, PatientInfoDTO> pacientes = identificaciones.isEmpty()
+                ? Map.of()
+                : patientInfoCache.getAllDesdeReplica(identificaciones).blockOptional().orElse(Map.of());
+
+        List<SheetsBatchWriter.Cambio> cambios = new ArrayList<>();
+        eventosPorTarea.forEach((tareaId, eventos) -> {
+            Tarea tarea = tareas.get(tareaId);
+            // Si la tarea ya no existe no hay fila que escribir; su evento de ELIMINAR viene detrás
+            List<Object> fila = tarea == null ? null
+                    : rowMapper.toRow(tarea, pacientes.get(tarea.getPacienteNumeroIdentificacion()));
+            for (SheetsOutboxEvent evento : eventos) {
+                boolean conFila = evento.getOperacion() != OperacionSheets.ELIMINAR;
+                cambios.add(new SheetsBatchWriter.Cambio(tareaId.toString(), evento.getOperacion(), conFila ? fila : null));
+            }
+        });
+        return cambios;
+    }
+
+    private void registrarFallo(SheetsOutboxEvent evento, Exception e) {
+        int intentos = evento.getIntentos() + 1;
+        evento.setIntentos(intentos);
+        evento.setUltimoError(truncar(e.toString()));
+
+        if (intentos >= maxAttempts) {
+            evento.setEstado(EstadoOutbox.FALLIDO);
+            logger.error("Evento de Sheets {} ({} tarea {}) enviado a dead-letter tras {} intentos: {}",
+                    evento.getId(), evento.getOperacion(), evento.getTareaId(), intentos, e.getMessage());
+            return;
+        }
+        // Backoff exponencial: base * 2^(intentos-1), con tope
+        long factor = 1L << Math.min(intentos - 1, 20);
+        Duration espera = backoffBase.multipliedBy(factor);
+        if (espera.compareTo(backoffMax) > 0) {
+            espera = backoffMax;
+        }
+        evento.setProximoIntento(LocalDateTime.now().plus(espera));
+        logger.warn("Fallo enviando a Google Sheets el evento {} ({} tarea {}), intento {}: {}",
+                evento.getId(), evento.getOperacion(), evento.getTareaId(), intentos, e.getMessage());
+    }
+
+    private static String truncar(String mensaje) {
+        return mensaje.length() <= 1000 ? mensaje : mensaje.substring(0, 1000);
+    }
+}
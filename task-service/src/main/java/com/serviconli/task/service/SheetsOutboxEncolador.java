@@ -0,0 +1,46 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.model.EstadoOutbox;
+import com.serviconli.task.model.OperacionSheets;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Encola en {@code sheets_outbox} los eventos de muchas tareas a la vez, con un {@code JdbcTemplate.batchUpdate}
+ * en lugar de un {@code save} por evento (SheetsOutboxEvent usa IDENTITY, así que Hibernate no los agrupa).
+ * Escribe las mismas filas que la entidad y en la transacción en curso; las consume SheetsOutboxDispatcher.
+ */
+@Component
+public class SheetsOutboxEncolador {
+
+    private static final String INSERT = "INSERT INTO sheets_outbox "
+            + "(tarea_id, operacion, estado, intentos, proximo_intento, fecha_creacion) VALUES (?, ?, ?, 0, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${sheets.outbox.insert-batch-size:500}")
+    private int batchSize;
+
+    public SheetsOutboxEncolador(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void encolar(List<Long> tareaIds, OperacionSheets operacion) {
+        if (tareaIds.isEmpty()) {
+            return;
+        }
+        Timestamp ahora = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT, tareaIds, batchSize, (ps, tareaId) -> {
+            ps.setLong(1, tareaId);
+            ps.setString(2, operacion.name());
+            ps.setString(3, EstadoOutbox.PENDIENTE.name());
+            ps.setTimestamp(4, ahora);
+            ps.setTimestamp(5, ahora);
+        });
+    }
+}
@@ -0,0 +1,282 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.AnaliticaSegmentoDTO;
+import com.serviconli.task.dto.TaskAnalyticsDTO;
+import com.serviconli.task.dto.TiempoEnEstadoDTO;
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.Prioridad;
+import com.serviconli.task.model.TipoCita;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Analítica de flujo sobre historial_tareas: tiempo en cada estado, tareas completadas por día y lead time
+ * (p50/p90) de creación a COMPLETADA, por (tipoCita, prioridad).
+ *
+ * <p>El historial se lee en una sola pasada, en streaming y en orden de id, y los acumulados se quedan en
+ * memoria. Cada consulta posterior solo lee las filas nuevas y las que faltaban la vez anterior.
+ *
+ * <ul>
+ *   <li>El tiempo en un estado se cuenta cuando la tarea sale de él; la estancia actual aún no cuenta.</li>
+ *   <li>Los segmentos usan el tipoCita y la prioridad actuales de la tarea.</li>
+ *   <li>Los ids de historial que faltan entre los ya leídos (una transacción que aún no ha confirmado, o un
+ *       rollback) se apuntan como huecos y se vuelven a buscar en cada consulta. Un hueco se da por perdido
+ *       cuando la fila siguiente tiene más de {@code task.analytics.hueco-max}: ninguna transacción dura tanto.
+ *       Las filas ya aplicadas se saltan, así que releer el tramo no cuenta nada dos veces.</li>
+ *   <li>Las tareas borradas dejan de seguirse al recibir su baja o, si se borraron desde otra instancia, en la
+ *       purga de {@code task.analytics.purge-interval}.</li>
+ * </ul>
+ */
+@Service
+public class TareaAnalyticsService {
+
+    private static final String SQL_HISTORIAL_NUEVO = """
+            SELECT h.id, h.tarea_id, h.estado_nuevo, h.fecha_cambio, t.tipo_cita, t.prioridad, t.fecha_creacion
+            FROM historial_tareas h
+            LEFT JOIN tareas t ON t.id = h.tarea_id
+            WHERE h.id > ?
+            ORDER BY h.id
+            """;
+
+    private static final int PURGA_LOTE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${task.analytics.hueco-max:10m}")
+    private Duration huecoMax;
+
+    // Bajas recibidas; se aplican al principio de la siguiente consulta para no esperar al monitor
+    private final Queue<Long> eliminadas = new ConcurrentLinkedQueue<>();
+
+    // --- Estado incremental (protegido por el monitor de este servicio) ---
+    private long ultimoHistorialId;
+    private final TreeMap<Long, LocalDateTime> huecos = new TreeMap<>(); // id que falta -> fecha de la fila siguiente
+    private final Map<Long, Estancia> estanciasAbiertas = new HashMap<>(); // tareaId -> estado actual y desde cuándo
+    private final Acumulado total = new Acumulado();
+    private final Map<Segmento, Acumulado> porSegmento = new HashMap<>();
+
+    public TareaAnalyticsService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    private record Segmento(TipoCita tipoCita, Prioridad prioridad) {
+    }
+
+    private record Estancia(EstadoTarea estado, LocalDateTime desde) {
+    }
+
+    /**
+     * Incorpora el historial nuevo y devuelve las métricas, con el throughput de los últimos {@code dias} días.
+     */
+    public synchronized TaskAnalyticsDTO obtenerAnalitica(int dias) {
+        actualizar();
+
+        LocalDate desde = LocalDate.now().minusDays(dias - 1L);
+        List<AnaliticaSegmentoDTO> segmentos = porSegmento.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(Comparator
+                        .comparing((Segmento s) -> s.tipoCita() == null ? "" : s.tipoCita().name())
+                        .thenComparing(s -> s.prioridad() == null ? "" : s.prioridad().name())))
+                .map(e -> e.getValue().toDto(e.getKey().tipoCita(), e.getKey().prioridad(), desde))
+                .toList();
+        return new TaskAnalyticsDTO(total.toDto(null, null, desde), segmentos, ultimoHistorialId, LocalDateTime.now());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTareaCambiada(TareaCambiadaEvent cambio) {
+        if (cambio.tipo() == TareaCambiadaEvent.Tipo.ELIMINADA) {
+            eliminadas.add(cambio.tareaId());
+        }
+    }
+
+    /**
+     * Deja de seguir las tareas que ya no existen, en lotes de {@value #PURGA_LOTE} ids.
+     */
+    @Scheduled(initialDelayString = "${task.analytics.purge-interval:1h}", fixedDelayString = "${task.analytics.purge-interval:1h}")
+    public synchronized void purgarEliminadas() {
+        List<Long> seguidas = new ArrayList<>(estanciasAbiertas.keySet());
+        for (int i = 0; i < seguidas.size(); i += PURGA_LOTE) {
+            List<Long> lote = seguidas.subList(i, Math.min(i + PURGA_LOTE, seguidas.size()));
+            Set<Long> existentes = new HashSet<>(jdbcTemplate.queryForList(
+                    "SELECT id FROM tareas WHERE id IN (" + String.join(",", Collections.nCopies(lote.size(), "?")) + ")",
+                    Long.class, lote.toArray()));
+            lote.stream().filter(id -> !existentes.contains(id)).forEach(estanciasAbiertas::remove);
+        }
+    }
+
+    private void actualizar() {
+        for (Long tareaId; (tareaId = eliminadas.poll()) != null; ) {
+            estanciasAbiertas.remove(tareaId);
+        }
+        LocalDateTime limite = LocalDateTime.now().minus(huecoMax);
+        // Todo lo anterior al primer hueco ya está aplicado
+        long desde = huecos.isEmpty() ? ultimoHistorialId : huecos.firstKey() - 1;
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(SQL_HISTORIAL_NUEVO, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Integer.MIN_VALUE); // Streaming fila a fila en Connector/J
+            ps.setLong(1, desde);
+            return ps;
+        }, new Procesador(limite));
+        huecos.values().removeIf(siguiente -> siguiente.isBefore(limite));
+    }
+
+    /**
+     * Aplica cada transición nueva a los acumulados y apunta los ids que faltan. De las filas ya vistas solo
+     * aplica las que cubren un hueco.
+     */
+    private class Procesador implements RowCallbackHandler {
+
+        private final LocalDateTime limite;
+
+        Procesador(LocalDateTime limite) {
+            this.limite = limite;
+        }
+
+        @Override
+        public void processRow(ResultSet rs) throws SQLException {
+            long id = rs.getLong("id");
+            LocalDateTime fecha = rs.getTimestamp("fecha_cambio").toLocalDateTime();
+            if (id <= ultimoHistorialId) {
+                if (huecos.remove(id) == null) {
+                    return; // Ya aplicada
+                }
+            } else {
+                // Si la fila siguiente ya es más vieja que hueco-max, el hueco nació perdido (p. ej. al arrancar)
+                for (long falta = ultimoHistorialId + 1; falta < id && !fecha.isBefore(limite); falta++) {
+                    huecos.put(falta, fecha);
+                }
+                ultimoHistorialId = id;
+            }
+            long tareaId = rs.getLong("tarea_id");
+            EstadoTarea nuevo = EstadoTarea.valueOf(rs.getString("estado_nuevo"));
+            Segmento segmento = new Segmento(enumOrNull(TipoCita.class, rs.getString("tipo_cita")),
+                    enumOrNull(Prioridad.class, rs.getString("prioridad")));
+            Timestamp creacion = rs.getTimestamp("fecha_creacion");
+
+            aplicar(tareaId, nuevo, fecha, creacion == null ? null : creacion.toLocalDateTime(),
+                    porSegmento.computeIfAbsent(segmento, s -> new Acumulado()));
+        }
+    }
+
+    private void aplicar(long tareaId, EstadoTarea nuevo, LocalDateTime fecha, LocalDateTime creacion, Acumulado segmento) {
+        Estancia anterior = estanciasAbiertas.get(tareaId);
+        if (anterior != null && anterior.estado() == nuevo) {
+            return; // Actualización sin cambio de estado
+        }
+        if (anterior != null) {
+            Duration enEstado = Duration.between(anterior.desde(), fecha);
+            total.registrarEstancia(anterior.estado(), enEstado);
+            segmento.registrarEstancia(anterior.estado(), enEstado);
+        }
+
+        if (nuevo == EstadoTarea.COMPLETADA) {
+            Duration leadTime = creacion == null ? null : Duration.between(creacion, fecha);
+            total.registrarCompletada(fecha.toLocalDate(), leadTime);
+            segmento.registrarCompletada(fecha.toLocalDate(), leadTime);
+            estanciasAbiertas.remove(tareaId); // Estado final: no hace falta seguir la tarea
+        } else {
+            estanciasAbiertas.put(tareaId, new Estancia(nuevo, fecha));
+        }
+    }
+
+    private static <E extends Enum<E>> E enumOrNull(Class<E> tipo, String valor) {
+        return valor == null ? null : Enum.valueOf(tipo, valor);
+    }
+
+    /**
+     * Acumulados de un segmento.
+     */
+    private static final class Acumulado {
+
+        private final Map<EstadoTarea, long[]> estancias = new EnumMap<>(EstadoTarea.class); // {veces, segundos}
+        private final TreeMap<LocalDate, Long> completadasPorDia = new TreeMap<>();
+        private final HistogramaLog leadTimes = new HistogramaLog();
+        private long completadas;
+
+        void registrarEstancia(EstadoTarea estado, Duration duracion) {
+            long[] acumulado = estancias.computeIfAbsent(estado, e -> new long[2]);
+            acumulado[0]++;
+            acumulado[1] += Math.max(0, duracion.toSeconds());
+        }
+
+        void registrarCompletada(LocalDate dia, Duration leadTime) {
+            completadas++;
+            completadasPorDia.merge(dia, 1L, Long::sum);
+            if (leadTime != null) {
+                leadTimes.registrar(Math.max(0, leadTime.toSeconds()));
+            }
+        }
+
+        AnaliticaSegmentoDTO toDto(TipoCita tipoCita, Prioridad prioridad, LocalDate desde) {
+            Map<EstadoTarea, TiempoEnEstadoDTO> tiempos = new EnumMap<>(EstadoTarea.class);
+            estancias.forEach((estado, a) -> tiempos.put(estado,
+                    new TiempoEnEstadoDTO(a[0], horas(a[1]) / a[0], horas(a[1]))));
+            return new AnaliticaSegmentoDTO(tipoCita, prioridad, tiempos,
+                    new TreeMap<>(completadasPorDia.tailMap(desde, true)), completadas,
+                    leadTimes.percentilHoras(0.50), leadTimes.percentilHoras(0.90));
+        }
+
+        private static double horas(long segundos) {
+            return segundos / 3600d;
+        }
+    }
+
+    /**
+     * Histograma logarítmico de duraciones en segundos: cubos de ancho relativo del 2%, así que los percentiles
+     * tienen como mucho ese error y la memoria es fija sin importar cuántas tareas se completen.
+     */
+    static final class HistogramaLog {
+
+        private static final double BASE = 1.02;
+        private static final double LOG_BASE = Math.log(BASE);
+        private static final int CUBOS = 1200; // 1.02^1200 s cubre de sobra cualquier lead time
+
+        private final long[] cubos = new long[CUBOS];
+        private long total;
+
+        void registrar(long segundos) {
+            int cubo = segundos <= 1 ? 0 : (int) Math.min(CUBOS - 1, Math.floor(Math.log(segundos) / LOG_BASE));
+            cubos[cubo]++;
+            total++;
+        }
+
+        Double percentilHoras(double p) {
+            if (total == 0) {
+                return null;
+            }
+            long rango = (long) Math.ceil(p * total);
+            long acumulado = 0;
+            for (int i = 0; i < CUBOS; i++) {
+                acumulado += cubos[i];
+                if (acumulado >= rango) {
+                    // Punto medio (geométrico) del cubo
+                    return Math.pow(BASE, i + 0.5) / 3600d;
+                }
+            }
+            return Math.pow(BASE, CUBOS) / 3600d;
+        }
+    }
+}
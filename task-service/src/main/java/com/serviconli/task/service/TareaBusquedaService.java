@@ -0,0 +1,130 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.BusquedaCursor;
+import com.serviconli.task.dto.CursorPageDTO;
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.dto.TaskResponseDTO;
+import com.serviconli.task.exception.InvalidCursorException;
+import com.serviconli.task.exception.InvalidSearchException;
+import com.serviconli.task.mapper.TareaMapper;
+import com.serviconli.task.model.Tarea;
+import com.serviconli.task.repository.ResultadoBusqueda;
+import com.serviconli.task.repository.TareaRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Búsqueda de texto en las tareas (especialidad, observación, especificaciones, información de la cita, doctor y
+ * radicado) con el índice FULLTEXT de MySQL, ordenada por relevancia.
+ *
+ * <p>El texto se parte en palabras y cada una se busca como prefijo obligatorio ({@code +palabra*}), así que
+ * "cardio control" encuentra "Cardiología ... control". Las tildes se quitan de la consulta, y la
+ * intercalación de la tabla (utf8mb4_general_ci) ya compara sin tildes ni mayúsculas: "cardiologia" encuentra
+ * "Cardiología" y al revés. Las palabras más cortas que {@code innodb_ft_min_token_size} (3 por defecto) no
+ * están en el índice y se ignoran.
+ *
+ * <p>Las páginas siguen el orden de (relevancia, id) y el cursor es la última pareja entregada (keyset, sin
+ * OFFSET). No se pasa de {@code task.search.max-results} resultados: más allá, conviene afinar la búsqueda.
+ */
+@Service
+public class TareaBusquedaService {
+
+    private static final int MAX_PALABRAS = 10;
+
+    private final TareaRepository tareaRepository;
+    private final PatientInfoCache patientInfoCache;
+    private final TareaMapper tareaMapper;
+
+    @Value("${task.search.max-results:1000}")
+    private int maxResultados;
+
+    @Value("${task.search.min-word-length:3}")
+    private int longitudMinima;
+
+    public TareaBusquedaService(TareaRepository tareaRepository, PatientInfoCache patientInfoCache, TareaMapper tareaMapper) {
+        this.tareaRepository = tareaRepository;
+        this.patientInfoCache = patientInfoCache;
+        this.tareaMapper = tareaMapper;
+    }
+
+    public CursorPageDTO<TaskResponseDTO> buscar(String texto, String cursor, int size) {
+        String consulta = consultaBooleana(texto);
+        BusquedaCursor anterior = decodificar(cursor);
+        int entregados = anterior == null ? 0 : anterior.entregados();
+        int limite = Math.min(size, maxResultados - entregados);
+        if (limite <= 0) {
+            return new CursorPageDTO<>(List.of(), null);
+        }
+
+        // Una fila de más para saber si hay página siguiente sin contar
+        List<ResultadoBusqueda> resultados = anterior == null
+                ? tareaRepository.buscarPorTexto(consulta, limite + 1)
+                : tareaRepository.buscarPorTextoDespuesDe(consulta, anterior.relevancia(), anterior.id(), limite + 1);
+        String nextCursor = null;
+        if (resultados.size() > limite) {
+            resultados = resultados.subList(0, limite);
+            ResultadoBusqueda ultimo = resultados.get(limite - 1);
+            nextCursor = entregados + limite < maxResultados
+                    ? new BusquedaCursor(entregados + limite, ultimo.getRelevancia(), ultimo.getId()).encode()
+                    : null;
+        }
+        return new CursorPageDTO<>(enriquecer(cargar(resultados)), nextCursor);
+    }
+
+    // Las tareas de la página por id, en el orden de los resultados
+    private List<Tarea> cargar(List<ResultadoBusqueda> resultados) {
+        Map<Long, Tarea> porId = tareaRepository.findAllById(resultados.stream().map(ResultadoBusqueda::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Tarea::getId, Function.identity()));
+        return resultados.stream().map(r -> porId.get(r.getId())).filter(Objects::nonNull).toList();
+    }
+
+    // "Cardiología  control-2024" -> "+cardiologia* +control* +2024*"
+    String consultaBooleana(String texto) {
+        String sinTildes = Normalizer.normalize(texto == null ? "" : texto, Normalizer.Form.NFD)
+                .replaceAll("\\p{M}", "")
+                .toLowerCase(Locale.ROOT);
+        String consulta = Arrays.stream(sinTildes.split("[^\\p{L}\\p{N}]+"))
+                .filter(palabra -> palabra.length() >= longitudMinima)
+                .distinct()
+                .limit(MAX_PALABRAS)
+                .map(palabra -> "+" + palabra + "*")
+                .collect(Collectors.joining(" "));
+        if (consulta.isEmpty()) {
+            throw new InvalidSearchException("La búsqueda necesita al menos una palabra de " + longitudMinima + " o más letras");
+        }
+        return consulta;
+    }
+
+    private BusquedaCursor decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        BusquedaCursor decodificado = BusquedaCursor.decode(cursor);
+        if (decodificado.entregados() <= 0 || decodificado.entregados() >= maxResultados) {
+            throw new InvalidCursorException("Cursor de búsqueda inválido: " + cursor);
+        }
+        return decodificado;
+    }
+
+    // Los pacientes de toda la página en una sola consulta a la caché
+    private List<TaskResponseDTO> enriquecer(List<Tarea> tareas) {
+        if (tareas.isEmpty()) {
+            return List.of();
+        }
+        Map<String, PatientInfoDTO> pacientes = patientInfoCache.getAllSiDisponible(
+                tareas.stream().map(Tarea::getPacienteNumeroIdentificacion).collect(Collectors.toSet())).block();
+        return tareas.stream()
+                .map(tarea -> tareaMapper.toResponse(tarea, pacientes == null ? null : pacientes.get(tarea.getPacienteNumeroIdentificacion())))
+                .toList();
+    }
+}
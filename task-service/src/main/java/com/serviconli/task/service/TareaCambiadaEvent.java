@@ -0,0 +1,37 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.TaskResponseDTO;
+import com.serviconli.task.model.EstadoTarea;
+
+/**
+ * Se publica (como evento de Spring) por cada alta, cambio o baja de una tarea; los oyentes lo reciben
+ * una vez confirmada la transacción. Es también el cuerpo de los eventos {@code tarea} de GET /eventos.
+ *
+ * @param estadoAnterior null en un alta
+ * @param estado         null en una baja
+ * @param tarea          la tarea tal como queda; null en una baja
+ */
+public record TareaCambiadaEvent(Tipo tipo, Long tareaId, String pacienteNumeroIdentificacion,
+                                 EstadoTarea estadoAnterior, EstadoTarea estado, TaskResponseDTO tarea) {
+
+    public enum Tipo {
+        CREADA,
+        ACTUALIZADA,
+        ELIMINADA
+    }
+
+    public static TareaCambiadaEvent creada(String pacienteNumeroIdentificacion, TaskResponseDTO tarea) {
+        return new TareaCambiadaEvent(Tipo.CREADA, tarea.getId(), pacienteNumeroIdentificacion,
+                null, tarea.getEstado(), tarea);
+    }
+
+    public static TareaCambiadaEvent actualizada(String pacienteNumeroIdentificacion, EstadoTarea estadoAnterior,
+                                                 TaskResponseDTO tarea) {
+        return new TareaCambiadaEvent(Tipo.ACTUALIZADA, tarea.getId(), pacienteNumeroIdentificacion,
+                estadoAnterior, tarea.getEstado(), tarea);
+    }
+
+    public static TareaCambiadaEvent eliminada(Long tareaId, String pacienteNumeroIdentificacion, EstadoTarea estado) {
+        return new TareaCambiadaEvent(Tipo.ELIMINADA, tareaId, pacienteNumeroIdentificacion, estado, null, null);
+    }
+}
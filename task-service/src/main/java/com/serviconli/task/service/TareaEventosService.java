@@ -0,0 +1,305 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.repository.TareaRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Canal de cambios de tareas por Server-Sent Events (GET /api/v1/tareas/eventos).
+ *
+ * <p>Cada cambio confirmado ({@link TareaCambiadaEvent}) y cada recordatorio disparado
+ * ({@link RecordatorioVencidoEvent}) se guarda en un buffer circular con un id creciente y se envía a los
+ * clientes suscritos cuyo filtro (estado y/o paciente) encaja. Un cambio de estado le llega a quien filtra
+ * por el estado anterior y a quien filtra por el nuevo, para que pueda sacar la tarea de su lista.
+ *
+ * <p>Los ids llevan delante el arranque de esta instancia. Un cliente que se reconecta con
+ * {@code Last-Event-ID} recibe lo que se perdió si sigue en el buffer; si no (buffer desbordado, otra
+ * instancia o un reinicio) recibe un evento {@code reset} y debe volver a cargar la lista una vez.
+ *
+ * <p>Un único hilo numera y reparte los eventos, así que cada cliente los recibe en orden y sin huecos. La
+ * escritura en la conexión va aparte, con una cola por cliente: un cliente lento no frena a los demás, y si
+ * acumula más pendientes que el buffer se le cierra la conexión (al reconectarse recibe lo perdido o un reset).
+ */
+@Service
+public class TareaEventosService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TareaEventosService.class);
+
+    static final String EVENTO_TAREA = "tarea";
+    static final String EVENTO_RECORDATORIO = "recordatorio";
+    static final String EVENTO_RESET = "reset";
+
+    private record Evento(long secuencia, String nombre, EstadoTarea estadoAnterior, EstadoTarea estado,
+                          String paciente, Object datos) {
+    }
+
+    private static final class Suscripcion {
+        final SseEmitter emitter;
+        final EstadoTarea estado;
+        final String paciente;
+        // Solo desde el hilo de envíos
+        long ultimaEncolada;
+        // Protegidos por la propia suscripción
+        final Deque<SseEmitter.SseEventBuilder> pendientes = new ArrayDeque<>();
+        boolean escribiendo;
+
+        Suscripcion(SseEmitter emitter, EstadoTarea estado, String paciente) {
+            this.emitter = emitter;
+            this.estado = estado;
+            this.paciente = paciente;
+        }
+
+        boolean acepta(Evento evento) {
+            return (estado == null || estado == evento.estado() || estado == evento.estadoAnterior())
+                    && (paciente == null || paciente.equals(evento.paciente()));
+        }
+    }
+
+    private final TareaRepository tareaRepository;
+    private final String instancia = Long.toString(System.currentTimeMillis(), 36);
+    private final ExecutorService envios = Executors.newSingleThreadExecutor(r -> {
+        Thread hilo = new Thread(r, "tareas-sse");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+    // Un hilo por cliente con escrituras pendientes; uno bloqueado en un cliente lento no afecta al resto
+    private final ExecutorService escrituras = Executors.newCachedThreadPool(r -> {
+        Thread hilo = new Thread(r, "tareas-sse-escritura");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // El latido va en su propio hilo: en el scheduler de Spring esperaría detrás de tareas lentas (Sheets, réplica)
+    private final ScheduledExecutorService reloj = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread hilo = new Thread(r, "tareas-sse-latido");
+        hilo.setDaemon(true);
+        return hilo;
+    });
+
+    // Se añaden desde el hilo de envíos; se quitan también desde los de escritura y la métrica la lee desde fuera
+    private final List<Suscripcion> suscripciones = new CopyOnWriteArrayList<>();
+
+    // Protegidos por "buffer"
+    private final Deque<Evento> buffer = new ArrayDeque<>();
+    private long secuencia;
+
+    @Value("${task.events.buffer-size:1000}")
+    private int bufferSize;
+
+    @Value("${task.events.timeout:30m}")
+    private Duration timeout;
+
+    @Value("${task.events.heartbeat:25s}")
+    private Duration intervaloLatido;
+
+    public TareaEventosService(TareaRepository tareaRepository, MeterRegistry meterRegistry) {
+        this.tareaRepository = tareaRepository;
+        Gauge.builder("tareas.eventos.suscriptores", suscripciones, List::size)
+                .description("Clientes conectados al canal de eventos de tareas")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Abre una suscripción. {@code ultimoId} es la cabecera Last-Event-ID del navegador al reconectarse.
+     */
+    public SseEmitter suscribir(EstadoTarea estado, String paciente, String ultimoId) {
+        SseEmitter emitter = crearEmitter(timeout);
+        Suscripcion suscripcion = new Suscripcion(emitter, estado, paciente);
+        emitter.onCompletion(() -> ejecutar(() -> suscripciones.remove(suscripcion)));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> emitter.complete());
+
+        ejecutar(() -> {
+            List<Evento> pendientes;
+            boolean reset = false;
+            synchronized (buffer) {
+                long desde = secuenciaDe(ultimoId);
+                long primera = buffer.isEmpty() ? secuencia + 1 : buffer.peekFirst().secuencia();
+                if (desde < 0 || (ultimoId != null && desde + 1 < primera)) {
+                    reset = ultimoId != null; // Se perdió algo que ya no está en el buffer
+                    desde = secuencia;
+                }
+                long ultima = desde;
+                pendientes = buffer.stream().filter(e -> e.secuencia() > ultima).toList();
+                suscripcion.ultimaEncolada = desde;
+            }
+            encolar(suscripcion, SseEmitter.event().comment("conectado")); // Abre el flujo en el cliente
+            if (reset) {
+                encolar(suscripcion, SseEmitter.event().id(id(suscripcion.ultimaEncolada)).name(EVENTO_RESET).data(""));
+            }
+            pendientes.forEach(evento -> repartir(suscripcion, evento));
+            suscripciones.add(suscripcion);
+        });
+        return emitter;
+    }
+
+    SseEmitter crearEmitter(Duration timeout) {
+        return new SseEmitter(timeout.toMillis());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTareaCambiada(TareaCambiadaEvent cambio) {
+        publicar(EVENTO_TAREA, cambio.estadoAnterior(), cambio.estado(), cambio.pacienteNumeroIdentificacion(), cambio);
+    }
+
+    @EventListener
+    public void onRecordatorio(RecordatorioVencidoEvent recordatorio) {
+        // Lo dispara el scheduler fuera de cualquier petición: se busca la tarea solo para poder filtrar
+        tareaRepository.findById(recordatorio.tareaId()).ifPresent(tarea ->
+                publicar(EVENTO_RECORDATORIO, null, tarea.getEstado(), tarea.getPacienteNumeroIdentificacion(),
+                        Map.of("tareaId", recordatorio.tareaId(),
+                                "fechaRecordatorio", recordatorio.fechaRecordatorio())));
+    }
+
+    @PostConstruct
+    void iniciar() {
+        long intervalo = intervaloLatido.toMillis();
+        reloj.scheduleWithFixedDelay(this::latido, intervalo, intervalo, TimeUnit.MILLISECONDS);
+    }
+
+    // Un comentario cada poco mantiene abiertas las conexiones a través de proxies y del gateway
+    void latido() {
+        ejecutar(() -> suscripciones.forEach(s -> {
+            synchronized (s) {
+                if (!s.pendientes.isEmpty()) {
+                    return; // Ya se está escribiendo en esa conexión
+                }
+            }
+            encolar(s, SseEmitter.event().comment("latido"));
+        }));
+    }
+
+    @PreDestroy
+    void detener() {
+        reloj.shutdownNow();
+        envios.execute(() -> suscripciones.forEach(s -> s.emitter.complete()));
+        envios.shutdown();
+        escrituras.shutdown();
+    }
+
+    private void publicar(String nombre, EstadoTarea estadoAnterior, EstadoTarea estado, String paciente, Object datos) {
+        synchronized (buffer) {
+            Evento evento = new Evento(++secuencia, nombre, estadoAnterior, estado, paciente, datos);
+            buffer.addLast(evento);
+            if (buffer.size() > bufferSize) {
+                buffer.removeFirst();
+            }
+            // Dentro del mismo bloqueo: el hilo de envíos recibe los eventos en el orden de su secuencia
+            ejecutar(() -> suscripciones.forEach(s -> {
+                if (!repartir(s, evento)) {
+                    logger.debug("Cliente de eventos demasiado lento; se cierra su conexión");
+                    cerrar(s);
+                }
+            }));
+        }
+    }
+
+    // En el hilo de envíos. false si el cliente tiene ya un buffer entero sin escribir
+    private boolean repartir(Suscripcion suscripcion, Evento evento) {
+        // Un evento puede llegar aquí después de haberse reenviado al suscribirse
+        if (evento.secuencia() <= suscripcion.ultimaEncolada) {
+            return true;
+        }
+        suscripcion.ultimaEncolada = evento.secuencia();
+        if (!suscripcion.acepta(evento)) {
+            return true;
+        }
+        synchronized (suscripcion) {
+            if (suscripcion.pendientes.size() >= bufferSize) {
+                return false;
+            }
+        }
+        encolar(suscripcion, SseEmitter.event()
+                .id(id(evento.secuencia()))
+                .name(evento.nombre())
+                .data(evento.datos(), MediaType.APPLICATION_JSON));
+        return true;
+    }
+
+    private void encolar(Suscripcion suscripcion, SseEmitter.SseEventBuilder envio) {
+        synchronized (suscripcion) {
+            suscripcion.pendientes.addLast(envio);
+            if (suscripcion.escribiendo) {
+                return;
+            }
+            suscripcion.escribiendo = true;
+        }
+        if (!escrituras.isShutdown()) {
+            escrituras.execute(() -> escribir(suscripcion));
+        }
+    }
+
+    // En un hilo de escritura; solo hay uno a la vez por suscripción, así que se mantiene el orden
+    private void escribir(Suscripcion suscripcion) {
+        while (true) {
+            SseEmitter.SseEventBuilder envio;
+            synchronized (suscripcion) {
+                envio = suscripcion.pendientes.pollFirst();
+                if (envio == null) {
+                    suscripcion.escribiendo = false;
+                    return;
+                }
+            }
+            try {
+                suscripcion.emitter.send(envio);
+            } catch (IOException | IllegalStateException e) {
+                cerrar(suscripcion);
+                return;
+            }
+        }
+    }
+
+    private void cerrar(Suscripcion suscripcion) {
+        logger.debug("Cliente de eventos desconectado");
+        suscripciones.remove(suscripcion);
+        synchronized (suscripcion) {
+            suscripcion.pendientes.clear();
+        }
+        suscripcion.emitter.complete();
+    }
+
+    private void ejecutar(Runnable tarea) {
+        if (!envios.isShutdown()) {
+            envios.execute(tarea);
+        }
+    }
+
+    private String id(long secuencia) {
+        return instancia + "-" + secuencia;
+    }
+
+    // -1 si el id no es de esta instancia (o no es válido)
+    private long secuenciaDe(String id) {
+        if (id == null || !id.startsWith(instancia + "-")) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(id.substring(instancia.length() + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.serviconli.task.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.serviconli.task.dto.FormatoExportacion;
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.mapper.TareaMapper;
+import com.serviconli.task.model.Tarea;
+import com.serviconli.task.repository.TareaRepository;
+import jakarta.persistence.EntityManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Exporta todas las tareas enriquecidas sin cargarlas en memoria: las filas salen de un cursor de MySQL,
+ * los pacientes se resuelven por bloques de {@code task.export.chunk-size} tareas (de la réplica local si está
+ * al día) y cada bloque se escribe y se suelta antes de leer el siguiente. La memoria usada depende del
+ * tamaño del bloque, no del total.
+ */
+@Service
+public class TareaExportService {
+
+    // Encabezados de la hoja de Google Sheets, en el orden de TareaSheetRowMapper
+    private static final List<String> COLUMNAS_CSV = List.of(
+            "fecha_solicitud_afiliado", "cotizante_tipo_identificacion", "cotizante_numero_identificacion",
+            "cotizante_nombre", "parentesco", "paciente_tipo_identificacion", "paciente_numero_identificacion",
+            "paciente_nombre", "paciente_celular", "paciente_correo", "eps", "tipo_cita", "radicado",
+            "autorizacion", "fecha_solicitud_serviconli", "fecha_cita", "confirmacion_cita", "especificaciones",
+            "estado", "observacion", "prioridad", "id");
+
+    private final TareaRepository tareaRepository;
+    private final PatientInfoCache patientInfoCache;
+    private final TareaSheetRowMapper rowMapper;
+    private final EntityManager entityManager;
+    private final ObjectWriter jsonWriter;
+    private final TareaMapper tareaMapper;
+
+    @Value("${task.export.chunk-size:500}")
+    private int chunkSize;
+
+    public TareaExportService(TareaRepository tareaRepository,
+                              PatientInfoCache patientInfoCache,
+                              TareaSheetRowMapper rowMapper,
+                              EntityManager entityManager,
+                              ObjectMapper objectMapper,
+                              TareaMapper tareaMapper) {
+        this.tareaRepository = tareaRepository;
+        this.patientInfoCache = patientInfoCache;
+        this.rowMapper = rowMapper;
+        this.entityManager = entityManager;
+        // El writer no debe cerrar el stream de salida después de cada línea
+        this.jsonWriter = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.tareaMapper = tareaMapper;
+    }
+
+    @Transactional(readOnly = true)
+    public void exportar(FormatoExportacion formato, OutputStream salida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        if (formato == FormatoExportacion.CSV) {
+            escribirCsv(writer, COLUMNAS_CSV);
+        }
+
+        try (Stream<Tarea> tareas = tareaRepository.streamAllOrderById()) {
+            Iterator<Tarea> it = tareas.iterator();
+            List<Tarea> bloque = new ArrayList<>(chunkSize);
+            while (it.hasNext()) {
+                bloque.add(it.next());
+                if (bloque.size() == chunkSize || !it.hasNext()) {
+                    escribirBloque(bloque, formato, writer);
+                    bloque.clear();
+                }
+            }
+        }
+        writer.flush();
+    }
+
+    private void escribirBloque(List<Tarea> bloque, FormatoExportacion formato, Writer writer) throws IOException {
+        List<String> ids = bloque.stream().map(Tarea::getPacienteNumeroIdentificacion).toList();
+        Map<String, PatientInfoDTO> pacientes = patientInfoCache.getAllDesdeReplica(ids).blockOptional().orElse(Map.of());
+
+        for (Tarea tarea : bloque) {
+            PatientInfoDTO paciente = pacientes.get(tarea.getPacienteNumeroIdentificacion());
+            if (formato == FormatoExportacion.CSV) {
+                escribirCsv(writer, rowMapper.toRow(tarea, paciente));
+            } else {
+                writer.write(jsonWriter.writeValueAsString(tareaMapper.toResponse(tarea, paciente)));
+                writer.write('\n');
+            }
+            // Sin esto el contexto de persistencia retendría todas las tareas leídas
+            entityManager.detach(tarea);
+        }
+        writer.flush();
+    }
+
+    private static void escribirCsv(Writer writer, List<?> valores) throws IOException {
+        for (int i = 0; i < valores.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(escaparCsv(valores.get(i) == null ? "" : valores.get(i).toString()));
+        }
+        writer.write("\r\n");
+    }
+
+    // RFC 4180: entre comillas si lleva coma, comillas o saltos de línea; las comillas se duplican
+    private static String escaparCsv(String valor) {
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,378 @@
+package com.serviconli.task.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.serviconli.task.dto.CreateTaskRequestDTO;
+import com.serviconli.task.dto.FilaImportacionDTO;
+import com.serviconli.task.dto.ImportacionTareasDTO;
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.dto.TaskResponseDTO;
+import com.serviconli.task.exception.InvalidImportException;
+import com.serviconli.task.mapper.TareaMapper;
+import com.serviconli.task.model.OperacionSheets;
+import com.serviconli.task.model.Tarea;
+import jakarta.validation.Validator;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.beans.PropertyDescriptor;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Alta masiva de tareas (POST /api/v1/tareas/import) desde un array JSON o un CSV.
+ *
+ * <p>Cada fila se valida por separado con las mismas reglas que POST /api/v1/tareas, y los pacientes de todas
+ * se comprueban con una sola consulta a {@link PatientInfoCache} (que pide a patient-service, en una llamada,
+ * los que no tenga). Las filas válidas se insertan juntas en una transacción con JDBC en lotes: primero
+ * {@code tareas}, recuperando las claves generadas, y después {@code sheets_outbox} (con
+ * {@link SheetsOutboxEncolador}); el historial va por
+ * {@link HistorialTareaWriter}. Una fila con error no se inserta y no impide el alta de las demás: la respuesta
+ * lleva el resultado de cada fila.
+ *
+ * <p>Los eventos de Sheets quedan encolados seguidos, así que {@code SheetsOutboxDispatcher} los envía en una
+ * sola escritura por pasada (hasta {@code sheets.outbox.batch-size} tareas) en lugar de un append por tarea.
+ */
+@Service
+public class TareaImportService {
+
+    private static final String INSERT_TAREA = "INSERT INTO tareas "
+            + "(paciente_numero_identificacion, tipo_cita, especialidad, autorizacion, orden, radicado, prioridad, "
+            + "especificaciones, observacion, estado, fecha_solicitud_serviconli, fecha_cita, hora_cita, doctor, "
+            + "direccion_cita, lugar_cita, informacion_cita, confirmacion_cita, fecha_recordatorio, "
+            + "fecha_creacion, fecha_actualizacion, version, recordatorio_enviado) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0, false)";
+
+    // Encabezados aceptados en el CSV: los campos de CreateTaskRequestDTO, sin distinguir mayúsculas ni '_'
+    private static final Map<String, String> COLUMNAS_CSV = Arrays.stream(BeanUtils.getPropertyDescriptors(CreateTaskRequestDTO.class))
+            .map(PropertyDescriptor::getName)
+            .filter(nombre -> !nombre.equals("class"))
+            .collect(Collectors.toUnmodifiableMap(TareaImportService::normalizarColumna, Function.identity()));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SheetsOutboxEncolador sheetsOutboxEncolador;
+    private final PatientInfoCache patientInfoCache;
+    private final HistorialTareaWriter historialTareaWriter;
+    private final TareaStatsService tareaStatsService;
+    private final RecordatorioScheduler recordatorioScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TareaMapper tareaMapper;
+
+    @Value("${task.import.max-rows:2000}")
+    private int maxFilas;
+
+    @Value("${task.import.batch-size:500}")
+    private int batchSize;
+
+    public TareaImportService(JdbcTemplate jdbcTemplate,
+                              SheetsOutboxEncolador sheetsOutboxEncolador,
+                              PatientInfoCache patientInfoCache,
+                              HistorialTareaWriter historialTareaWriter,
+                              TareaStatsService tareaStatsService,
+                              RecordatorioScheduler recordatorioScheduler,
+                              ApplicationEventPublisher eventPublisher,
+                              ObjectMapper objectMapper,
+                              Validator validator,
+                              TareaMapper tareaMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sheetsOutboxEncolador = sheetsOutboxEncolador;
+        this.patientInfoCache = patientInfoCache;
+        this.historialTareaWriter = historialTareaWriter;
+        this.tareaStatsService = tareaStatsService;
+        this.recordatorioScheduler = recordatorioScheduler;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.tareaMapper = tareaMapper;
+    }
+
+    // Una tarea válida a la espera de insertarse, con su posición en el archivo
+    private record Candidata(int indice, Tarea tarea) {
+    }
+
+    /**
+     * Importa las filas dadas (objetos JSON con los campos de {@link CreateTaskRequestDTO}).
+     */
+    @Transactional
+    public ImportacionTareasDTO importar(List<JsonNode> filas) {
+        if (filas == null || filas.isEmpty()) {
+            throw new InvalidImportException("No hay filas que importar");
+        }
+        if (filas.size() > maxFilas) {
+            throw new InvalidImportException("Se pueden importar como máximo " + maxFilas + " filas por petición");
+        }
+
+        // --- PASO 1: Convertir y validar cada fila por separado ---
+        String[] errores = new String[filas.size()];
+        List<Candidata> candidatas = new ArrayList<>();
+        LocalDateTime ahora = LocalDateTime.now();
+        for (int i = 0; i < filas.size(); i++) {
+            try {
+                Tarea tarea = nuevaTarea(leerFila(filas.get(i)), ahora);
+                candidatas.add(new Candidata(i, tarea));
+            } catch (InvalidImportException e) {
+                errores[i] = e.getMessage();
+            }
+        }
+
+        // --- PASO 2: Comprobar todos los pacientes con una sola consulta ---
+        Set<String> identificaciones = candidatas.stream()
+                .map(c -> c.tarea().getPacienteNumeroIdentificacion())
+                .collect(Collectors.toSet());
+        Map<String, PatientInfoDTO> pacientes = identificaciones.isEmpty()
+                ? Map.of()
+                : patientInfoCache.getAll(identificaciones).blockOptional().orElse(Map.of());
+        List<Tarea> tareas = new ArrayList<>();
+        List<Integer> indices = new ArrayList<>();
+        for (Candidata candidata : candidatas) {
+            String paciente = candidata.tarea().getPacienteNumeroIdentificacion();
+            if (pacientes.containsKey(paciente)) {
+                tareas.add(candidata.tarea());
+                indices.add(candidata.indice());
+            } else {
+                errores[candidata.indice()] = "No se encontró el paciente con ID: " + paciente;
+            }
+        }
+
+        // --- PASO 3: Insertar las tareas y sus eventos de Sheets en lotes ---
+        if (!tareas.isEmpty()) {
+            insertarTareas(tareas);
+            sheetsOutboxEncolador.encolar(tareas.stream().map(Tarea::getId).toList(), OperacionSheets.CREAR);
+        }
+
+        // --- PASO 4: Historial, estadísticas, recordatorios y /eventos, como en un alta normal ---
+        Long[] creadas = new Long[filas.size()];
+        for (int i = 0; i < tareas.size(); i++) {
+            Tarea tarea = tareas.get(i);
+            creadas[indices.get(i)] = tarea.getId();
+            historialTareaWriter.registrar(tarea.getId(), null, tarea.getEstado(), "Tarea importada");
+            tareaStatsService.registrarCambio(null, TareaStatsService.Foto.of(tarea));
+            recordatorioScheduler.reprogramar(tarea);
+
+            TaskResponseDTO respuesta = tareaMapper.toResponse(tarea, pacientes.get(tarea.getPacienteNumeroIdentificacion()));
+            eventPublisher.publishEvent(TareaCambiadaEvent.creada(tarea.getPacienteNumeroIdentificacion(), respuesta));
+        }
+
+        List<FilaImportacionDTO> resultado = new ArrayList<>(filas.size());
+        for (int i = 0; i < filas.size(); i++) {
+            resultado.add(new FilaImportacionDTO(i + 1, creadas[i], errores[i]));
+        }
+        return new ImportacionTareasDTO(filas.size(), tareas.size(), filas.size() - tareas.size(), resultado);
+    }
+
+    /**
+     * Lee un CSV (RFC 4180) con una fila de encabezados. Las columnas son los campos de
+     * {@link CreateTaskRequestDTO} ({@code pacienteNumeroIdentificacion} o {@code paciente_numero_identificacion});
+     * el separador puede ser ',' o ';' (el de Excel en español) y las celdas vacías se ignoran.
+     */
+    public List<JsonNode> leerCsv(Reader reader) throws IOException {
+        List<List<String>> registros = parsearCsv(reader);
+        if (registros.isEmpty()) {
+            throw new InvalidImportException("El CSV está vacío");
+        }
+        List<String> encabezados = new ArrayList<>();
+        for (String encabezado : registros.get(0)) {
+            String campo = COLUMNAS_CSV.get(normalizarColumna(encabezado));
+            if (campo == null) {
+                throw new InvalidImportException("Columna desconocida en el CSV: " + encabezado);
+            }
+            encabezados.add(campo);
+        }
+
+        List<JsonNode> filas = new ArrayList<>(registros.size() - 1);
+        for (List<String> registro : registros.subList(1, registros.size())) {
+            ObjectNode fila = objectMapper.createObjectNode();
+            for (int i = 0; i < registro.size() && i < encabezados.size(); i++) {
+                String valor = registro.get(i).trim();
+                if (!valor.isEmpty()) {
+                    fila.put(encabezados.get(i), valor);
+                }
+            }
+            filas.add(fila);
+        }
+        return filas;
+    }
+
+    private CreateTaskRequestDTO leerFila(JsonNode fila) {
+        if (fila == null || !fila.isObject()) {
+            throw new InvalidImportException("La fila debe ser un objeto JSON");
+        }
+        CreateTaskRequestDTO dto;
+        try {
+            dto = objectMapper.treeToValue(fila, CreateTaskRequestDTO.class);
+        } catch (JsonMappingException e) {
+            String campo = e.getPath().stream()
+                    .map(JsonMappingException.Reference::getFieldName)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.joining("."));
+            throw new InvalidImportException(campo.isEmpty() ? e.getOriginalMessage() : campo + ": valor no válido");
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+            throw new InvalidImportException(e.getMessage());
+        }
+        String errores = validator.validate(dto).stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .collect(Collectors.joining("; "));
+        if (!errores.isEmpty()) {
+            throw new InvalidImportException(errores);
+        }
+        return dto;
+    }
+
+    // Mismo mapeo que TaskServiceImpl.crearTarea: las fechas de creación las pone el servidor
+    private Tarea nuevaTarea(CreateTaskRequestDTO dto, LocalDateTime ahora) {
+        Tarea tarea = tareaMapper.toTarea(dto);
+        tarea.setFechaCreacion(ahora);
+        tarea.setFechaActualizacion(ahora);
+        tarea.setVersion(0L);
+        String errores = validator.validate(tarea).stream()
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .collect(Collectors.joining("; "));
+        if (!errores.isEmpty()) {
+            throw new InvalidImportException(errores);
+        }
+        return tarea;
+    }
+
+    // INSERTs en lotes de task.import.batch-size (multi-fila con rewriteBatchedStatements), con las claves de vuelta
+    private void insertarTareas(List<Tarea> tareas) {
+        for (int desde = 0; desde < tareas.size(); desde += batchSize) {
+            List<Tarea> lote = tareas.subList(desde, Math.min(desde + batchSize, tareas.size()));
+            KeyHolder claves = new GeneratedKeyHolder();
+            jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_TAREA, new String[]{"id"}),
+                    new BatchPreparedStatementSetter() {
+                        @Override
+                        public void setValues(PreparedStatement ps, int i) throws SQLException {
+                            asignarColumnas(ps, lote.get(i));
+                        }
+
+                        @Override
+                        public int getBatchSize() {
+                            return lote.size();
+                        }
+                    }, claves);
+
+            List<Map<String, Object>> generadas = claves.getKeyList();
+            if (generadas.size() != lote.size()) {
+                throw new IllegalStateException("Se esperaban " + lote.size() + " claves generadas y llegaron " + generadas.size());
+            }
+            for (int i = 0; i < lote.size(); i++) {
+                // Connector/J devuelve la clave como GENERATED_KEY, otros drivers con el nombre de la columna
+                lote.get(i).setId(((Number) generadas.get(i).values().iterator().next()).longValue());
+            }
+        }
+    }
+
+    private static void asignarColumnas(PreparedStatement ps, Tarea t) throws SQLException {
+        ps.setString(1, t.getPacienteNumeroIdentificacion());
+        ps.setString(2, t.getTipoCita().name());
+        ps.setString(3, t.getEspecialidad());
+        ps.setString(4, t.getAutorizacion());
+        ps.setString(5, t.getOrden());
+        ps.setString(6, t.getRadicado());
+        ps.setString(7, t.getPrioridad().name());
+        ps.setString(8, t.getEspecificaciones());
+        ps.setString(9, t.getObservacion());
+        ps.setString(10, t.getEstado().name());
+        ps.setObject(11, t.getFechaSolicitudServiconli());
+        ps.setObject(12, t.getFechaCita());
+        ps.setString(13, t.getHoraCita());
+        ps.setString(14, t.getDoctor());
+        ps.setString(15, t.getDireccionCita());
+        ps.setString(16, t.getLugarCita());
+        ps.setString(17, t.getInformacionCita());
+        ps.setString(18, t.getConfirmacionCita());
+        ps.setObject(19, t.getFechaRecordatorio());
+        ps.setTimestamp(20, Timestamp.valueOf(t.getFechaCreacion()));
+        ps.setTimestamp(21, Timestamp.valueOf(t.getFechaActualizacion()));
+    }
+
+    private static String normalizarColumna(String nombre) {
+        return nombre.replace("_", "").trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Parser mínimo de CSV: comillas dobles, "" como comilla escapada y saltos de línea dentro de comillas
+    private static List<List<String>> parsearCsv(Reader reader) throws IOException {
+        StringBuilder texto = new StringBuilder();
+        char[] buffer = new char[8192];
+        for (int leidos; (leidos = reader.read(buffer)) != -1; ) {
+            texto.append(buffer, 0, leidos);
+        }
+        if (!texto.isEmpty() && texto.charAt(0) == '\uFEFF') {
+            texto.deleteCharAt(0); // BOM que añade Excel al guardar en UTF-8
+        }
+        int finEncabezado = texto.indexOf("\n");
+        String encabezado = finEncabezado < 0 ? texto.toString() : texto.substring(0, finEncabezado);
+        char separador = encabezado.indexOf(';') >= 0 && encabezado.indexOf(',') < 0 ? ';' : ',';
+
+        List<List<String>> registros = new ArrayList<>();
+        List<String> registro = new ArrayList<>();
+        StringBuilder celda = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < texto.length() && texto.charAt(i + 1) == '"') {
+                    celda.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    celda.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                registro.add(celda.toString());
+                celda.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r' && i + 1 < texto.length() && texto.charAt(i + 1) == '\n') {
+                    i++;
+                }
+                registro.add(celda.toString());
+                celda.setLength(0);
+                agregarRegistro(registros, registro);
+                registro = new ArrayList<>();
+            } else {
+                celda.append(c);
+            }
+        }
+        if (entreComillas) {
+            throw new InvalidImportException("CSV mal formado: falta cerrar unas comillas");
+        }
+        registro.add(celda.toString());
+        agregarRegistro(registros, registro);
+        return registros;
+    }
+
+    // Las líneas en blanco (incluida la última del archivo) no son filas
+    private static void agregarRegistro(List<List<String>> registros, List<String> registro) {
+        if (registro.size() > 1 || !registro.get(0).isBlank()) {
+            registros.add(registro);
+        }
+    }
+}
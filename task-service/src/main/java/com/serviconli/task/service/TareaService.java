@@ -1,7 +1,7 @@
 package com.serviconli.task.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.serviconli.task.dto.*;
-import com.serviconli.task.model.*;
 
 import java.util.List;
 import java.util.Optional;
@@ -11,22 +11,26 @@ public interface TareaService {
     // --- Operaciones CRUD básicas ---
     TaskResponseDTO crearTarea(CreateTaskRequestDTO createTaskRequestDTO);
     Optional<TaskResponseDTO> obtenerTareaPorId(Long id); // Devolver Optional es más seguro
-    List<TaskResponseDTO> obtenerTodasLasTareas();
-    TaskResponseDTO actualizarTarea(Long id, UpdateTaskDTO updateTaskDTO);
+    Optional<String> obtenerEtag(Long id); // Sin cargar la tarea ni consultar al paciente
+    CursorPageDTO<TaskResponseDTO> obtenerTodasLasTareas(TaskPageRequestDTO pagina);
+    default TaskResponseDTO actualizarTarea(Long id, UpdateTaskDTO updateTaskDTO) {
+        return actualizarTarea(id, updateTaskDTO, null);
+    }
+    TaskResponseDTO actualizarTarea(Long id, UpdateTaskDTO updateTaskDTO, String ifMatch); // ifMatch null = sin condición
+    TaskResponseDTO parchearTarea(Long id, JsonNode mergePatch, String ifMatch); // JSON Merge Patch (RFC 7396)
     void eliminarTarea(Long id);
+    TransicionEstadoResultadoDTO cambiarEstado(TransicionEstadoDTO transicion); // Varias tareas a un mismo estado
 
     // --- Búsquedas Específicas
 
-    List<TaskResponseDTO> buscarPorNumeroIdentificacionPaciente(String numeroIdentificacion);
+    // Todas las búsquedas de listado van paginadas por cursor sobre (fechaCreacion, id)
 
+    CursorPageDTO<TaskResponseDTO> buscarPorNumeroIdentificacionPaciente(String numeroIdentificacion, TaskPageRequestDTO pagina);
 
-    List<TaskResponseDTO> buscarPorNombrePaciente(String nombre);
 
-    List<TaskResponseDTO> filtrarTareasPorAtributos(
-            Optional<EstadoTarea> estado,
-            Optional<Prioridad> prioridad,
-            Optional<TipoCita> tipoCita
-    );
+    CursorPageDTO<TaskResponseDTO> buscarPorNombrePaciente(String nombre, TaskPageRequestDTO pagina);
+
+    CursorPageDTO<TaskResponseDTO> filtrarTareasPorAtributos(TaskFilterDTO filtro, TaskPageRequestDTO pagina);
 
     List<HistorialTareaResponseDTO> obtenerHistorialPorTarea(Long tareaId);
 }
\ No newline at end of file
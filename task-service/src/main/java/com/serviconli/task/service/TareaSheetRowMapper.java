@@ -0,0 +1,83 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.model.Tarea;
+import org.springframework.stereotype.Component;
+
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+@Component
+public class TareaSheetRowMapper {
+
+    /**
+     * Propiedades de {@link Tarea} que salen en la hoja (ver {@link #toRow}). Si un cambio no toca ninguna,
+     * no hace falta reescribir la fila.
+     */
+    public static final Set<String> PROPIEDADES_EXPORTADAS = Set.of(
+            "fechaCreacion", "tipoCita", "radicado", "autorizacion", "fechaSolicitudServiconli", "fechaCita",
+            "confirmacionCita", "especificaciones", "estado", "observacion", "prioridad");
+
+    /**
+     * Convierte una tarea y su paciente en las 22 columnas (A..V) de la hoja. La columna V es el ID de la tarea.
+     * Si el paciente ya no existe en patient-service, sus columnas quedan vacías.
+     */
+    public List<Object> toRow(Tarea tarea, PatientInfoDTO paciente) {
+        if (paciente == null) {
+            paciente = PatientInfoDTO.builder().build();
+        }
+        DateTimeFormatter fFecha = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+        DateTimeFormatter fFechaHora = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+        java.util.function.Function<Object, String> s = obj -> (obj == null) ? "" : obj.toString();
+
+        // Lógica para determinar los datos del cotizante a mostrar
+        String cotizanteTipoId, cotizanteNumId, cotizanteNombre;
+
+        // Si el paciente es un beneficiario y tiene un cotizante asociado...
+        if ("BENEFICIARIO".equals(paciente.getTipoPaciente()) && paciente.getCotizante() != null) {
+
+            cotizanteTipoId = s.apply(paciente.getCotizante().getTipoIdentificacion());
+            cotizanteNumId = s.apply(paciente.getCotizante().getNumeroIdentificacion());
+            cotizanteNombre = s.apply(paciente.getCotizante().getNombreCompleto());
+        } else {
+            // ... si no (es un cotizante), usamos sus propios datos.
+            cotizanteTipoId = s.apply(paciente.getTipoIdentificacion());
+            cotizanteNumId = s.apply(paciente.getNumeroIdentificacion());
+            cotizanteNombre = s.apply(paciente.getNombreCompleto());
+        }
+
+        return Arrays.asList(
+
+                (tarea.getFechaCreacion() == null) ? "" : tarea.getFechaCreacion().format(fFechaHora),
+
+                // --- Columnas del "Cotizante" (con la nueva lógica) ---
+                cotizanteTipoId,      // Columna 2: Tipo ID del Cotizante
+                cotizanteNumId,       // Columna 3: Número de ID cotizante
+                cotizanteNombre,      // Columna 4: Nombre completo del Cotizante
+                s.apply(paciente.getParentesco()), // Columna 5: Parentesco (del paciente, sea cual sea)
+
+                // --- Columnas del "Paciente"
+                s.apply(paciente.getTipoIdentificacion()),
+                s.apply(paciente.getNumeroIdentificacion()),
+                s.apply(paciente.getNombreCompleto()),
+                s.apply(paciente.getCelular()),
+                s.apply(paciente.getCorreo()),
+                s.apply(paciente.getEps()),
+
+                // --- Columnas de la Tarea/Cita (no cambian) ---
+                s.apply(tarea.getTipoCita()),
+                s.apply(tarea.getRadicado()),
+                s.apply(tarea.getAutorizacion()),
+                (tarea.getFechaSolicitudServiconli() == null) ? "" : tarea.getFechaSolicitudServiconli().format(fFecha),
+                (tarea.getFechaCita() == null) ? "" : tarea.getFechaCita().format(fFecha),
+                s.apply(tarea.getConfirmacionCita()),
+                s.apply(tarea.getEspecificaciones()),
+                (tarea.getEstado() == null) ? "" : tarea.getEstado().name(),
+                s.apply(tarea.getObservacion()),
+                (tarea.getPrioridad() == null) ? "" : tarea.getPrioridad().name(),
+                s.apply(tarea.getId())
+        );
+    }
+}
@@ -0,0 +1,298 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.TaskStatsDTO;
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.Prioridad;
+import com.serviconli.task.model.Tarea;
+import com.serviconli.task.model.TareaRow;
+import com.serviconli.task.model.TipoCita;
+import com.serviconli.task.repository.ConteoPorFecha;
+import com.serviconli.task.repository.ConteoPorMomento;
+import com.serviconli.task.repository.TareaConteo;
+import com.serviconli.task.repository.TareaRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Estadísticas del tablero (GET /api/v1/tareas/stats) mantenidas en memoria.
+ *
+ * <p>Al arrancar se siembran con unas pocas consultas GROUP BY sobre la misma foto de la base de datos. Después
+ * cada alta, cambio o baja de una tarea ajusta los contadores con la foto de la tarea antes y después del cambio,
+ * una vez confirmada la transacción. Leerlas cuesta lo mismo haya 10 o 10 millones de tareas, y lo que se guarda
+ * crece con los días con citas o recordatorios, no con las tareas.
+ *
+ * <p>Los cambios hechos fuera de este proceso (otra instancia, SQL a mano) no se ven hasta la siguiente
+ * resiembra, que se repite cada {@code task.stats.reseed-interval} y a medianoche. Los cambios que llegan
+ * mientras se siembra se guardan y se aplican también a los contadores nuevos antes de cambiarlos.
+ */
+@Service
+public class TareaStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TareaStatsService.class);
+
+    private final TareaRepository tareaRepository;
+    private final TransactionTemplate lectura;
+
+    // Protegidos por "cambios": así ningún cambio cae en los contadores viejos después de reemplazarlos
+    private final Object cambios = new Object();
+    private volatile Contadores contadores = new Contadores(LocalDateTime.now());
+    private List<Cambio> duranteSiembra;
+
+    public TareaStatsService(TareaRepository tareaRepository, PlatformTransactionManager transactionManager) {
+        this.tareaRepository = tareaRepository;
+        this.lectura = new TransactionTemplate(transactionManager);
+        this.lectura.setReadOnly(true);
+        this.lectura.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ); // Una sola foto para todas
+    }
+
+    /**
+     * Los campos de una tarea que cuentan para las estadísticas.
+     */
+    public record Foto(EstadoTarea estado, Prioridad prioridad, TipoCita tipoCita,
+                       LocalDate fechaCita, LocalDateTime fechaRecordatorio) {
+
+        public static Foto of(Tarea tarea) {
+            return new Foto(tarea.getEstado(), tarea.getPrioridad(), tarea.getTipoCita(),
+                    tarea.getFechaCita(), tarea.getFechaRecordatorio());
+        }
+
+        public static Foto of(TareaRow tarea) {
+            return new Foto(tarea.getEstado(), tarea.getPrioridad(), tarea.getTipoCita(),
+                    tarea.getFechaCita(), tarea.getFechaRecordatorio());
+        }
+
+        LocalDateTime recordatorioActivo() {
+            return estado == EstadoTarea.COMPLETADA ? null : fechaRecordatorio;
+        }
+    }
+
+    private record Cambio(Foto antes, Foto despues) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${task.stats.reseed-interval:1h}", fixedDelayString = "${task.stats.reseed-interval:1h}")
+    @Scheduled(cron = "${task.stats.reseed-cron:0 0 0 * * *}") // Trae con su hora los recordatorios del día que empieza
+    public synchronized void sembrar() {
+        synchronized (cambios) {
+            duranteSiembra = new ArrayList<>();
+        }
+        Contadores nuevos;
+        try {
+            nuevos = lectura.execute(estado -> contar(LocalDateTime.now()));
+        } catch (RuntimeException e) {
+            synchronized (cambios) {
+                duranteSiembra = null;
+            }
+            throw e;
+        }
+        // Un cambio confirmado justo antes de la consulta pero anotado después puede contarse dos veces; se
+        // corrige en la siguiente resiembra. Lo que importa es que no se pierda ninguno.
+        synchronized (cambios) {
+            duranteSiembra.forEach(cambio -> aplicarA(nuevos, cambio));
+            duranteSiembra = null;
+            contadores = nuevos;
+        }
+        logger.debug("Estadísticas de tareas sembradas: {} tareas", nuevos.total.sum());
+    }
+
+    private Contadores contar(LocalDateTime ahora) {
+        Contadores nuevos = new Contadores(ahora);
+        for (TareaConteo conteo : tareaRepository.contarAgrupado()) {
+            nuevos.sumar(conteo.getEstado(), conteo.getPrioridad(), conteo.getTipoCita(), conteo.getTotal());
+        }
+        for (ConteoPorFecha conteo : tareaRepository.contarCitasPorFecha(ahora.toLocalDate())) {
+            nuevos.sumarCitas(conteo.getFecha(), conteo.getTotal());
+        }
+        LocalDateTime manana = ahora.toLocalDate().plusDays(1).atStartOfDay();
+        nuevos.sumarRecordatoriosVencidos(tareaRepository.contarRecordatoriosHasta(ahora));
+        for (ConteoPorMomento conteo : tareaRepository.contarRecordatoriosEntre(ahora, manana)) {
+            nuevos.sumarRecordatorio(conteo.getMomento(), conteo.getTotal());
+        }
+        for (ConteoPorFecha conteo : tareaRepository.contarRecordatoriosPorDia(manana)) {
+            nuevos.sumarRecordatoriosDelDia(conteo.getFecha(), conteo.getTotal());
+        }
+        return nuevos;
+    }
+
+    /**
+     * Registra un cambio en una tarea: {@code antes} es null en un alta y {@code despues} es null en una baja.
+     * Si hay una transacción activa, se aplica solo cuando se confirma.
+     */
+    public void registrarCambio(Foto antes, Foto despues) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(new Cambio(antes, despues));
+                }
+            });
+        } else {
+            aplicar(new Cambio(antes, despues));
+        }
+    }
+
+    private void aplicar(Cambio cambio) {
+        synchronized (cambios) {
+            aplicarA(contadores, cambio);
+            if (duranteSiembra != null) {
+                duranteSiembra.add(cambio);
+            }
+        }
+    }
+
+    private static void aplicarA(Contadores destino, Cambio cambio) {
+        if (cambio.antes() != null) {
+            destino.sumar(cambio.antes(), -1);
+        }
+        if (cambio.despues() != null) {
+            destino.sumar(cambio.despues(), 1);
+        }
+    }
+
+    public TaskStatsDTO obtenerEstadisticas() {
+        Contadores actuales = contadores;
+        LocalDateTime ahora = LocalDateTime.now();
+        long recordatoriosVencidos = actuales.recordatoriosVencidos(ahora);
+        LongAdder citasHoy = actuales.citasPorFecha.get(ahora.toLocalDate());
+        return new TaskStatsDTO(
+                actuales.total.sum(),
+                aMapa(actuales.porEstado, EstadoTarea.class),
+                aMapa(actuales.porPrioridad, Prioridad.class),
+                aMapa(actuales.porTipoCita, TipoCita.class),
+                citasHoy == null ? 0 : citasHoy.sum(),
+                recordatoriosVencidos);
+    }
+
+    private static <E extends Enum<E>> Map<E, Long> aMapa(Map<E, LongAdder> contadores, Class<E> tipo) {
+        Map<E, Long> mapa = new EnumMap<>(tipo);
+        contadores.forEach((clave, valor) -> mapa.put(clave, valor.sum()));
+        return mapa;
+    }
+
+    /**
+     * Los contadores en sí. Se reemplazan enteros al resembrar.
+     */
+    private static final class Contadores {
+
+        final LongAdder total = new LongAdder();
+        final Map<EstadoTarea, LongAdder> porEstado = contadoresPara(EstadoTarea.class);
+        final Map<Prioridad, LongAdder> porPrioridad = contadoresPara(Prioridad.class);
+        final Map<TipoCita, LongAdder> porTipoCita = contadoresPara(TipoCita.class);
+        // Solo desde el día en curso: las citas pasadas no cuentan para nada
+        final Map<LocalDate, LongAdder> citasPorFecha = new ConcurrentHashMap<>();
+        private volatile LocalDate dia;
+
+        // Recordatorios de tareas activas, protegidos por el objeto. Los vencidos son un número; los de lo que
+        // queda de hoy van por fecha y hora, y los de días siguientes solo por día. Al leer se pasan a "vencidos"
+        // los que ya cumplieron su hora: cada uno se mueve una sola vez.
+        private long vencidos;
+        private LocalDateTime corte;
+        private final TreeMap<LocalDateTime, Long> recordatoriosHoy = new TreeMap<>();
+        private final TreeMap<LocalDate, Long> recordatoriosPorDia = new TreeMap<>();
+
+        Contadores(LocalDateTime ahora) {
+            this.dia = ahora.toLocalDate();
+            this.corte = ahora;
+        }
+
+        private static <E extends Enum<E>> Map<E, LongAdder> contadoresPara(Class<E> tipo) {
+            Map<E, LongAdder> mapa = new EnumMap<>(tipo);
+            for (E valor : tipo.getEnumConstants()) {
+                mapa.put(valor, new LongAdder());
+            }
+            return mapa;
+        }
+
+        void sumar(Foto foto, long delta) {
+            sumar(foto.estado(), foto.prioridad(), foto.tipoCita(), delta);
+            if (foto.fechaCita() != null) {
+                sumarCitas(foto.fechaCita(), delta);
+            }
+            if (foto.recordatorioActivo() != null) {
+                sumarRecordatorio(foto.recordatorioActivo(), delta);
+            }
+        }
+
+        void sumar(EstadoTarea estado, Prioridad prioridad, TipoCita tipoCita, long delta) {
+            total.add(delta);
+            if (estado != null) porEstado.get(estado).add(delta);
+            if (prioridad != null) porPrioridad.get(prioridad).add(delta);
+            if (tipoCita != null) porTipoCita.get(tipoCita).add(delta);
+        }
+
+        void sumarCitas(LocalDate fecha, long delta) {
+            if (!fecha.isBefore(dia)) {
+                citasPorFecha.computeIfAbsent(fecha, f -> new LongAdder()).add(delta);
+            }
+        }
+
+        synchronized void sumarRecordatoriosVencidos(long delta) {
+            vencidos += delta;
+        }
+
+        synchronized void sumarRecordatorio(LocalDateTime recordatorio, long delta) {
+            if (!recordatorio.isAfter(corte)) {
+                vencidos += delta;
+            } else if (recordatorio.toLocalDate().equals(dia)) {
+                sumarEn(recordatoriosHoy, recordatorio, delta);
+            } else {
+                sumarEn(recordatoriosPorDia, recordatorio.toLocalDate(), delta);
+            }
+        }
+
+        synchronized void sumarRecordatoriosDelDia(LocalDate fecha, long delta) {
+            sumarEn(recordatoriosPorDia, fecha, delta);
+        }
+
+        synchronized long recordatoriosVencidos(LocalDateTime ahora) {
+            if (!ahora.isAfter(corte)) {
+                return vencidos;
+            }
+            if (ahora.toLocalDate().isAfter(dia)) {
+                // Terminó el día: vence lo que quedaba de él y lo de los días ya pasados. Los del día nuevo solo se
+                // conocen por día, así que siguen pendientes hasta la resiembra de medianoche, que los trae con su hora
+                recordatoriosHoy.values().forEach(total -> vencidos += total);
+                recordatoriosHoy.clear();
+                LocalDate nuevoDia = ahora.toLocalDate();
+                while (!recordatoriosPorDia.isEmpty() && recordatoriosPorDia.firstKey().isBefore(nuevoDia)) {
+                    vencidos += recordatoriosPorDia.pollFirstEntry().getValue();
+                }
+                dia = nuevoDia;
+                citasPorFecha.keySet().removeIf(fecha -> fecha.isBefore(nuevoDia));
+            }
+            while (!recordatoriosHoy.isEmpty() && !recordatoriosHoy.firstKey().isAfter(ahora)) {
+                vencidos += recordatoriosHoy.pollFirstEntry().getValue();
+            }
+            corte = ahora;
+            return vencidos;
+        }
+
+        private static <K> void sumarEn(TreeMap<K, Long> mapa, K clave, long delta) {
+            long restante = mapa.getOrDefault(clave, 0L) + delta;
+            if (restante == 0) {
+                mapa.remove(clave);
+            } else {
+                mapa.put(clave, restante);
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.serviconli.task.service;
+
+/**
+ * Token bucket sencillo y bloqueante: {@code capacidad} tokens como máximo, repuestos a ritmo constante.
+ * Cada llamada a la API de Sheets consume uno; si no hay, el hilo espera a que se reponga.
+ */
+public class TokenBucket {
+
+    private final double capacidad;
+    private final double tokensPorNano;
+    private double tokens;
+    private long ultimaRecarga;
+
+    public TokenBucket(int capacidad, double tokensPorSegundo) {
+        this.capacidad = capacidad;
+        this.tokensPorNano = tokensPorSegundo / 1_000_000_000d;
+        this.tokens = capacidad;
+        this.ultimaRecarga = System.nanoTime();
+    }
+
+    public static TokenBucket perMinute(int requestsPerMinute) {
+        return new TokenBucket(requestsPerMinute, requestsPerMinute / 60d);
+    }
+
+    public synchronized void acquire() throws InterruptedException {
+        while (true) {
+            recargar();
+            if (tokens >= 1) {
+                tokens -= 1;
+                return;
+            }
+            long esperaNanos = (long) Math.ceil((1 - tokens) / tokensPorNano);
+            long millis = Math.max(1, esperaNanos / 1_000_000);
+            wait(millis);
+        }
+    }
+
+    private void recargar() {
+        long ahora = System.nanoTime();
+        tokens = Math.min(capacidad, tokens + (ahora - ultimaRecarga) * tokensPorNano);
+        ultimaRecarga = ahora;
+    }
+}
@@ -0,0 +1,297 @@
+package com.serviconli.task.service.impl;
+
+import com.serviconli.task.client.PatientServiceClient;
+import com.serviconli.task.dto.*;
+import com.serviconli.task.exception.*;
+import com.serviconli.task.mapper.TareaMapper;
+import com.serviconli.task.model.*;
+import com.serviconli.task.repository.*;
+import com.serviconli.task.service.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Implementación reactiva de las operaciones de tareas. Ningún método bloquea: las consultas van por R2DBC
+ * y los datos del paciente llegan de {@link PatientInfoCache} como {@code Mono}, así que una petición que
+ * espera a patient-service no retiene ningún hilo.
+ *
+ * <p>El historial y el evento de Google Sheets se escriben en la misma transacción que la tarea,
+ * igual que en {@link TaskServiceImpl}.
+ */
+@Service
+public class ReactiveTaskServiceImpl implements ReactiveTareaService {
+
+    private final TareaReactiveRepository tareaRepository;
+    private final HistorialTareaReactiveRepository historialTareaRepository;
+    private final R2dbcEntityTemplate template;
+    private final TransactionalOperator transactionalOperator;
+    private final PatientInfoCache patientInfoCache;
+    private final PatientServiceClient patientServiceClient;
+    private final TareaStatsService tareaStatsService;
+    private final RecordatorioScheduler recordatorioScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TareaMapper tareaMapper;
+
+    @Value("${task.patient-search.max-patients:2000}")
+    private int maxPacientesPorNombre;
+
+    @Value("${task.patient-search.chunk-size:500}")
+    private int bloquePacientes;
+
+    public ReactiveTaskServiceImpl(TareaReactiveRepository tareaRepository,
+                                   HistorialTareaReactiveRepository historialTareaRepository,
+                                   R2dbcEntityTemplate template,
+                                   TransactionalOperator transactionalOperator,
+                                   PatientInfoCache patientInfoCache,
+                                   PatientServiceClient patientServiceClient,
+                                   TareaStatsService tareaStatsService,
+                                   RecordatorioScheduler recordatorioScheduler,
+                                   ApplicationEventPublisher eventPublisher,
+                                   TareaMapper tareaMapper) {
+        this.tareaRepository = tareaRepository;
+        this.historialTareaRepository = historialTareaRepository;
+        this.template = template;
+        this.transactionalOperator = transactionalOperator;
+        this.patientInfoCache = patientInfoCache;
+        this.patientServiceClient = patientServiceClient;
+        this.tareaStatsService = tareaStatsService;
+        this.recordatorioScheduler = recordatorioScheduler;
+        this.eventPublisher = eventPublisher;
+        this.tareaMapper = tareaMapper;
+    }
+
+    @Override
+    public Mono<TaskResponseDTO> crearTarea(CreateTaskRequestDTO dto) {
+        // El paciente se valida antes de abrir la transacción
+        return patientInfoCache.get(dto.getPacienteNumeroIdentificacion())
+                .switchIfEmpty(Mono.error(() -> new PatientNotFoundException("No se encontró el paciente con ID: " + dto.getPacienteNumeroIdentificacion())))
+                .flatMap(patientInfo -> {
+                    TareaRow tarea = tareaMapper.toTareaRow(dto);
+                    LocalDateTime ahora = LocalDateTime.now();
+                    tarea.setFechaCreacion(ahora);
+                    tarea.setFechaActualizacion(ahora);
+
+                    return tareaRepository.save(tarea)
+                            .flatMap(saved -> registrarHistorial(saved.getId(), null, saved.getEstado(), "Tarea creada")
+                                    .then(encolarSincronizacionSheets(saved.getId(), OperacionSheets.CREAR))
+                                    .thenReturn(saved))
+                            .as(transactionalOperator::transactional)
+                            // Ya confirmada la transacción
+                            .doOnNext(saved -> {
+                                tareaStatsService.registrarCambio(null, TareaStatsService.Foto.of(saved));
+                                recordatorioScheduler.reprogramar(saved);
+                            })
+                            .map(saved -> convertToEnrichedDto(saved, patientInfo))
+                            .doOnNext(respuesta -> eventPublisher.publishEvent(
+                                    TareaCambiadaEvent.creada(tarea.getPacienteNumeroIdentificacion(), respuesta)));
+                });
+    }
+
+    @Override
+    public Mono<TaskResponseDTO> obtenerTareaPorId(Long id) {
+        return tareaRepository.findById(id)
+                .flatMap(tarea -> patientInfoCache.getSiDisponible(tarea.getPacienteNumeroIdentificacion())
+                        .map(paciente -> convertToEnrichedDto(tarea, paciente))
+                        .defaultIfEmpty(convertToEnrichedDto(tarea, null)));
+    }
+
+    @Override
+    public Mono<CursorPageDTO<TaskResponseDTO>> obtenerTodasLasTareas(TaskPageRequestDTO pagina) {
+        return buscarPagina(Criteria.empty(), pagina);
+    }
+
+    @Override
+    public Mono<TaskResponseDTO> actualizarTarea(Long id, UpdateTaskDTO dto) {
+        return tareaRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Tarea no encontrada con ID: " + id)))
+                .flatMap(tarea -> {
+                    EstadoTarea estadoAnterior = tarea.getEstado();
+                    TareaStatsService.Foto fotoAnterior = TareaStatsService.Foto.of(tarea);
+                    LocalDateTime recordatorioAnterior = tarea.getFechaRecordatorio();
+                    // Mismo mapeo explícito que la API v1: todos los campos del formulario se guardan siempre
+                    tareaMapper.actualizar(dto, tarea);
+                    if (!Objects.equals(recordatorioAnterior, tarea.getFechaRecordatorio())) {
+                        tarea.setRecordatorioEnviado(false);
+                    }
+                    tarea.setFechaActualizacion(LocalDateTime.now());
+
+                    return tareaRepository.save(tarea)
+                            .flatMap(saved -> registrarHistorial(saved.getId(), estadoAnterior, saved.getEstado(), "Tarea actualizada")
+                                    .then(encolarSincronizacionSheets(saved.getId(), OperacionSheets.ACTUALIZAR))
+                                    .thenReturn(saved))
+                            .as(transactionalOperator::transactional)
+                            .doOnNext(saved -> {
+                                tareaStatsService.registrarCambio(fotoAnterior, TareaStatsService.Foto.of(saved));
+                                recordatorioScheduler.reprogramar(saved);
+                            })
+                            .flatMap(saved -> patientInfoCache.getSiDisponible(saved.getPacienteNumeroIdentificacion())
+                                    .map(paciente -> convertToEnrichedDto(saved, paciente))
+                                    .defaultIfEmpty(convertToEnrichedDto(saved, null)))
+                            .doOnNext(respuesta -> eventPublisher.publishEvent(
+                                    TareaCambiadaEvent.actualizada(tarea.getPacienteNumeroIdentificacion(), estadoAnterior, respuesta)));
+                });
+    }
+
+    @Override
+    public Mono<Void> eliminarTarea(Long id) {
+        return tareaRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("No se puede eliminar, tarea no encontrada con ID: " + id)))
+                // Sin cascada de JPA: el historial se borra a mano antes que la tarea
+                .flatMap(tarea -> template.delete(HistorialTareaRow.class)
+                        .matching(Query.query(Criteria.where("tareaId").is(id)))
+                        .all()
+                        .then(tareaRepository.deleteById(id))
+                        .then(encolarSincronizacionSheets(id, OperacionSheets.ELIMINAR))
+                        .thenReturn(tarea))
+                .as(transactionalOperator::transactional)
+                .doOnNext(tarea -> {
+                    tareaStatsService.registrarCambio(TareaStatsService.Foto.of(tarea), null);
+                    recordatorioScheduler.cancelar(id);
+                    eventPublisher.publishEvent(TareaCambiadaEvent.eliminada(id, tarea.getPacienteNumeroIdentificacion(), tarea.getEstado()));
+                })
+                .then();
+    }
+
+    // --- BÚSQUEDAS ---
+
+    @Override
+    public Mono<CursorPageDTO<TaskResponseDTO>> buscarPorNumeroIdentificacionPaciente(String numeroIdentificacion, TaskPageRequestDTO pagina) {
+        return buscarPagina(TareaCriterios.delPaciente(numeroIdentificacion), pagina);
+    }
+
+    @Override
+    public Mono<CursorPageDTO<TaskResponseDTO>> buscarPorNombrePaciente(String nombre, TaskPageRequestDTO pagina) {
+        // Igual que la API v1: una llamada a patient-service, el IN en bloques y los pacientes de la búsqueda
+        // reutilizados para enriquecer
+        Comparator<TareaRow> orden = Comparator.comparing(TareaRow::getFechaCreacion).thenComparing(TareaRow::getId);
+        return patientServiceClient.findPatientsByName(nombre)
+                .defaultIfEmpty(List.of())
+                .flatMap(encontrados -> {
+                    if (encontrados.size() > maxPacientesPorNombre) {
+                        return Mono.error(new InvalidSearchException("Hay más de " + maxPacientesPorNombre + " pacientes con \""
+                                + nombre + "\" en el nombre; escriba un nombre más completo"));
+                    }
+                    if (encontrados.isEmpty()) {
+                        return Mono.just(new CursorPageDTO<TaskResponseDTO>(List.of(), null));
+                    }
+                    Map<String, PatientInfoDTO> pacientes = encontrados.stream()
+                            .collect(Collectors.toMap(PatientInfoDTO::getNumeroIdentificacion, p -> p, (a, b) -> a));
+                    return Flux.fromIterable(pacientes.keySet())
+                            .buffer(bloquePacientes)
+                            .concatMap(bloque -> buscarFilas(TareaCriterios.dePacientes(bloque), pagina))
+                            .sort(pagina.getSort() == Sort.Direction.ASC ? orden : orden.reversed())
+                            .take(pagina.getSize() + 1L)
+                            .collectList()
+                            .flatMap(filas -> construirPagina(filas, pagina, tareas -> Mono.just(tareas.stream()
+                                    .map(tarea -> convertToEnrichedDto(tarea, pacientes.get(tarea.getPacienteNumeroIdentificacion())))
+                                    .toList())));
+                });
+    }
+
+    @Override
+    public Mono<CursorPageDTO<TaskResponseDTO>> filtrarTareasPorAtributos(TaskFilterDTO filtro, TaskPageRequestDTO pagina) {
+        return buscarPagina(TareaCriterios.conFiltro(filtro), pagina);
+    }
+
+    @Override
+    public Flux<HistorialTareaResponseDTO> obtenerHistorialPorTarea(Long tareaId) {
+        return tareaRepository.existsById(tareaId)
+                .flatMapMany(existe -> existe
+                        ? historialTareaRepository.findByTareaIdOrderByFechaCambioAsc(tareaId)
+                        : Flux.error(new ResourceNotFoundException("Tarea no encontrada con ID: " + tareaId)))
+                .map(this::convertToDto);
+    }
+
+    // ========================= MÉTODOS PRIVADOS =========================
+
+    /**
+     * Misma paginación keyset que la API v1: size + 1 filas para saber si hay página siguiente.
+     */
+    private Mono<CursorPageDTO<TaskResponseDTO>> buscarPagina(Criteria filtro, TaskPageRequestDTO pagina) {
+        return buscarFilas(filtro, pagina)
+                .collectList()
+                .flatMap(filas -> construirPagina(filas, pagina, this::enriquecerTareas));
+    }
+
+    private Flux<TareaRow> buscarFilas(Criteria filtro, TaskPageRequestDTO pagina) {
+        Query query = Query.query(TareaCriterios.todas(filtro, TareaCriterios.despuesDe(pagina.getCursor(), pagina.getSort())))
+                .sort(Sort.by(pagina.getSort(), "fechaCreacion", "id"))
+                .limit(pagina.getSize() + 1);
+        return template.select(TareaRow.class)
+                .matching(query)
+                .all();
+    }
+
+    private Mono<CursorPageDTO<TaskResponseDTO>> construirPagina(List<TareaRow> filas, TaskPageRequestDTO pagina,
+                                                                 Function<List<TareaRow>, Mono<List<TaskResponseDTO>>> enriquecer) {
+        String nextCursor = null;
+        if (filas.size() > pagina.getSize()) {
+            filas = filas.subList(0, pagina.getSize());
+            TareaRow ultima = filas.get(filas.size() - 1);
+            nextCursor = new TaskCursor(ultima.getFechaCreacion(), ultima.getId()).encode();
+        }
+        String cursor = nextCursor;
+        return enriquecer.apply(filas).map(items -> new CursorPageDTO<>(items, cursor));
+    }
+
+    // Un solo getAll por página: la consulta a patient-service se encadena, no se espera
+    private Mono<List<TaskResponseDTO>> enriquecerTareas(List<TareaRow> tareas) {
+        if (tareas.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        List<String> ids = tareas.stream().map(TareaRow::getPacienteNumeroIdentificacion).toList();
+        return patientInfoCache.getAllSiDisponible(ids)
+                .defaultIfEmpty(Map.of())
+                .map(pacientes -> tareas.stream()
+                        .map(tarea -> convertToEnrichedDto(tarea, pacientes.get(tarea.getPacienteNumeroIdentificacion())))
+                        .toList());
+    }
+
+    private TaskResponseDTO convertToEnrichedDto(TareaRow tarea, PatientInfoDTO patientInfo) {
+        return tareaMapper.toResponse(tarea, patientInfo);
+    }
+
+    private HistorialTareaResponseDTO convertToDto(HistorialTareaRow historial) {
+        return tareaMapper.toResponse(historial);
+    }
+
+    private Mono<HistorialTareaRow> registrarHistorial(Long tareaId, EstadoTarea estadoAnterior, EstadoTarea estadoNuevo, String descripcion) {
+        HistorialTareaRow historial = new HistorialTareaRow();
+        historial.setTareaId(tareaId);
+        historial.setEstadoAnterior(estadoAnterior);
+        historial.setEstadoNuevo(estadoNuevo);
+        historial.setDescripcionCambio(descripcion);
+        historial.setUsuarioCambio("Sistema"); // Cambiar cuando tengas seguridad
+        historial.setFechaCambio(LocalDateTime.now());
+        return historialTareaRepository.save(historial);
+    }
+
+    // Misma fila de sheets_outbox que escribe la entidad SheetsOutboxEvent; la consume SheetsOutboxDispatcher
+    private Mono<Void> encolarSincronizacionSheets(Long tareaId, OperacionSheets operacion) {
+        LocalDateTime ahora = LocalDateTime.now();
+        return template.getDatabaseClient()
+                .sql("INSERT INTO sheets_outbox (tarea_id, operacion, estado, intentos, proximo_intento, fecha_creacion) "
+                        + "VALUES (:tareaId, :operacion, :estado, 0, :ahora, :ahora)")
+                .bind("tareaId", tareaId)
+                .bind("operacion", operacion.name())
+                .bind("estado", EstadoOutbox.PENDIENTE.name())
+                .bind("ahora", ahora)
+                .then();
+    }
+}
@@ -5,45 +5,103 @@ import com.serviconli.task.exception.*;
 import com.serviconli.task.model.*;
 import com.serviconli.task.repository.*;
 import com.serviconli.task.service.*;
+import com.serviconli.task.client.PatientServiceClient;
+import com.serviconli.task.mapper.TareaMapper;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validator;
 import org.springframework.beans.BeanUtils;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.reactive.function.client.WebClient;
-import reactor.core.publisher.Mono;
 
+import java.beans.PropertyDescriptor;
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class TaskServiceImpl implements TareaService {
 
+    // Lo que se puede cambiar con PATCH: los mismos campos que con PUT
+    private static final Set<String> CAMPOS_PARCHEABLES = Arrays.stream(BeanUtils.getPropertyDescriptors(UpdateTaskDTO.class))
+            .map(PropertyDescriptor::getName)
+            .filter(nombre -> !nombre.equals("class"))
+            .collect(Collectors.toUnmodifiableSet());
+
     private final TareaRepository tareaRepository;
     private final HistorialTareaRepository historialTareaRepository;
-    private final GoogleSheetsService googleSheetsService;
-    private final WebClient webClient;
+    private final SheetsOutboxRepository sheetsOutboxRepository;
+    private final SheetsOutboxEncolador sheetsOutboxEncolador;
+    private final PatientInfoCache patientInfoCache;
+    private final PatientServiceClient patientServiceClient;
+    private final TareaStatsService tareaStatsService;
+    private final HistorialTareaWriter historialTareaWriter;
+    private final RecordatorioScheduler recordatorioScheduler;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final TareaMapper tareaMapper;
+
+    @Value("${task.transitions.max-ids:1000}")
+    private int maxTransiciones;
+
+    @Value("${task.patient-search.max-patients:2000}")
+    private int maxPacientesPorNombre;
+
+    @Value("${task.patient-search.chunk-size:500}")
+    private int bloquePacientes;
 
-    // Inyectamos el WebClient configurado
     public TaskServiceImpl(TareaRepository tareaRepository,
                            HistorialTareaRepository historialTareaRepository,
-                           GoogleSheetsService googleSheetsService,
-                           WebClient.Builder webClientBuilder) {
+                           SheetsOutboxRepository sheetsOutboxRepository,
+                           SheetsOutboxEncolador sheetsOutboxEncolador,
+                           PatientInfoCache patientInfoCache,
+                           PatientServiceClient patientServiceClient,
+                           TareaStatsService tareaStatsService,
+                           HistorialTareaWriter historialTareaWriter,
+                           RecordatorioScheduler recordatorioScheduler,
+                           ApplicationEventPublisher eventPublisher,
+                           ObjectMapper objectMapper,
+                           Validator validator,
+                           TareaMapper tareaMapper) {
         this.tareaRepository = tareaRepository;
         this.historialTareaRepository = historialTareaRepository;
-        this.googleSheetsService = googleSheetsService;
-        // La URL base ya está en la configuración
-        this.webClient = webClientBuilder.build();
+        this.sheetsOutboxRepository = sheetsOutboxRepository;
+        this.sheetsOutboxEncolador = sheetsOutboxEncolador;
+        // Los datos del paciente se leen a través de la caché; la búsqueda por nombre va directa al cliente
+        this.patientInfoCache = patientInfoCache;
+        this.patientServiceClient = patientServiceClient;
+        this.tareaStatsService = tareaStatsService;
+        this.historialTareaWriter = historialTareaWriter;
+        this.recordatorioScheduler = recordatorioScheduler;
+        this.eventPublisher = eventPublisher;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.tareaMapper = tareaMapper;
     }
 
     @Override
     @Transactional
     public TaskResponseDTO crearTarea(CreateTaskRequestDTO dto) {
         // --- PASO 1: Validar que el paciente existe llamando a patient-service ---
-        PatientInfoDTO patientInfo = findPatientById(dto.getPacienteNumeroIdentificacion())
+        PatientInfoDTO patientInfo = patientInfoCache.get(dto.getPacienteNumeroIdentificacion())
                 .blockOptional() // .block() convierte la llamada asíncrona en síncrona
                 .orElseThrow(() -> new PatientNotFoundException("No se encontró el paciente con ID: " + dto.getPacienteNumeroIdentificacion()));
 
@@ -68,21 +126,21 @@ public class TaskServiceImpl implements TareaService {
         tarea.setLugarCita(dto.getLugarCita());
         tarea.setInformacionCita(dto.getInformacionCita());
         tarea.setConfirmacionCita(dto.getConfirmacionCita());
+        tarea.setFechaRecordatorio(dto.getFechaRecordatorio());
 
         Tarea savedTarea = tareaRepository.save(tarea);
         registrarHistorial(savedTarea, null, savedTarea.getEstado(), "Tarea creada");
 
 
-        // --- PASO 3: Enviar la información COMPLETA a Google Sheets ---
-        try {
-            googleSheetsService.appendRow(mapToSheetRow(savedTarea, patientInfo));
-        } catch (IOException e) {
-            // Es mejor usar un logger que System.err
-            System.err.println("⚠ Error enviando a Google Sheets: " + e.getMessage());
-        }
+        // --- PASO 3: Dejar encolada la fila para Google Sheets (se envía fuera de la transacción) ---
+        encolarSincronizacionSheets(savedTarea.getId(), OperacionSheets.CREAR);
+        tareaStatsService.registrarCambio(null, TareaStatsService.Foto.of(savedTarea));
+        recordatorioScheduler.reprogramar(savedTarea);
 
-        // --- PASO 4: Devolver el DTO enriquecido ---
-        return convertToEnrichedDto(savedTarea, patientInfo);
+        // --- PASO 4: Devolver el DTO enriquecido (y avisar a los clientes de /eventos tras el commit) ---
+        TaskResponseDTO respuesta = convertToEnrichedDto(savedTarea, patientInfo);
+        eventPublisher.publishEvent(TareaCambiadaEvent.creada(savedTarea.getPacienteNumeroIdentificacion(), respuesta));
+        return respuesta;
     }
 
     @Override
@@ -94,32 +152,37 @@ public class TaskServiceImpl implements TareaService {
 
         Tarea tarea = tareaOpt.get();
         // Enriquecemos la tarea con la información del paciente
-        PatientInfoDTO patientInfo = findPatientById(tarea.getPacienteNumeroIdentificacion()).block();
+        PatientInfoDTO patientInfo = patientInfoCache.getSiDisponible(tarea.getPacienteNumeroIdentificacion()).block();
         return Optional.of(convertToEnrichedDto(tarea, patientInfo));
     }
 
     @Override
-    public List<TaskResponseDTO> obtenerTodasLasTareas() {
-        List<Tarea> tareas = tareaRepository.findAll();
-        // Para cada tarea, obtenemos su información de paciente y la mapeamos
-        return tareas.stream()
-                .map(tarea -> {
-                    PatientInfoDTO patientInfo = findPatientById(tarea.getPacienteNumeroIdentificacion()).block();
-                    return convertToEnrichedDto(tarea, patientInfo);
-                })
-                .collect(Collectors.toList());
+    public Optional<String> obtenerEtag(Long id) {
+        return tareaRepository.findVersionById(id)
+                .map(v -> TaskETag.of(v.getVersion(), v.getFechaActualizacion()));
+    }
+
+    @Override
+    public CursorPageDTO<TaskResponseDTO> obtenerTodasLasTareas(TaskPageRequestDTO pagina) {
+        return buscarPagina(null, pagina);
     }
 
 
     @Override
     @Transactional
-    public TaskResponseDTO actualizarTarea(Long id, UpdateTaskDTO dto) {
+    public TaskResponseDTO actualizarTarea(Long id, UpdateTaskDTO dto, String ifMatch) {
         // 1. Busca la tarea existente en la base de datos
         Tarea tareaExistente = tareaRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Tarea no encontrada con ID: " + id));
 
-        // Guarda el estado anterior para el historial
+        // Si el cliente editó otra versión, no se toca nada (la @Version cubre lo que cambie desde aquí al commit)
+        if (ifMatch != null && !TaskETag.matches(ifMatch, TaskETag.of(tareaExistente))) {
+            throw new PreconditionFailedException("La tarea " + id + " cambió desde que se leyó; vuelva a cargarla");
+        }
+
+        // Guarda el estado anterior para el historial (y la foto previa para las estadísticas)
         EstadoTarea estadoAnterior = tareaExistente.getEstado();
+        TareaStatsService.Foto fotoAnterior = TareaStatsService.Foto.of(tareaExistente);
 
         // 2. Mapeo MANUAL y explícito para la actualización
         // Esto asegura que todos los campos del formulario se guarden siempre
@@ -140,79 +203,206 @@ public class TaskServiceImpl implements TareaService {
         tareaExistente.setLugarCita(dto.getLugarCita());
         tareaExistente.setInformacionCita(dto.getInformacionCita());
         tareaExistente.setConfirmacionCita(dto.getConfirmacionCita());
+        if (!Objects.equals(tareaExistente.getFechaRecordatorio(), dto.getFechaRecordatorio())) {
+            tareaExistente.setFechaRecordatorio(dto.getFechaRecordatorio());
+            tareaExistente.setRecordatorioEnviado(false); // Nueva fecha, nuevo aviso
+        }
 
         // 3. Guarda la tarea actualizada en la base de datos
-        Tarea updatedTarea = tareaRepository.save(tareaExistente);
+        // (con flush, para que la respuesta lleve ya la nueva versión y fechaActualizacion)
+        Tarea updatedTarea = tareaRepository.saveAndFlush(tareaExistente);
         registrarHistorial(updatedTarea, estadoAnterior, updatedTarea.getEstado(), "Tarea actualizada");
 
-        // Volvemos a necesitar los datos del paciente para actualizar Google Sheets
-        PatientInfoDTO patientInfo = findPatientById(updatedTarea.getPacienteNumeroIdentificacion()).block();
+        encolarSincronizacionSheets(updatedTarea.getId(), OperacionSheets.ACTUALIZAR);
+        tareaStatsService.registrarCambio(fotoAnterior, TareaStatsService.Foto.of(updatedTarea));
+        recordatorioScheduler.reprogramar(updatedTarea);
+
+        PatientInfoDTO patientInfo = patientInfoCache.getSiDisponible(updatedTarea.getPacienteNumeroIdentificacion()).block();
+
+        TaskResponseDTO respuesta = convertToEnrichedDto(updatedTarea, patientInfo);
+        eventPublisher.publishEvent(TareaCambiadaEvent.actualizada(updatedTarea.getPacienteNumeroIdentificacion(), estadoAnterior, respuesta));
+        return respuesta;
+    }
+
+    /**
+     * Aplica un JSON Merge Patch sobre los campos de {@link UpdateTaskDTO}. Solo se escriben las columnas que
+     * cambian de verdad (Tarea tiene @DynamicUpdate) y cada efecto secundario depende de qué cambió:
+     * el historial solo si cambia el estado, la fila de Sheets solo si cambia una columna exportada y el
+     * recordatorio solo si cambia su fecha o el estado. Si nada cambia no se escribe nada.
+     *
+     * <p>No se consulta patient-service: el paciente no se puede cambiar con un PATCH, así que la respuesta
+     * (y el evento de /eventos) va sin {@code paciente}.
+     */
+    @Override
+    @Transactional
+    public TaskResponseDTO parchearTarea(Long id, JsonNode mergePatch, String ifMatch) {
+        if (mergePatch == null || !mergePatch.isObject()) {
+            throw new InvalidPatchException("El cuerpo debe ser un objeto JSON (application/merge-patch+json)");
+        }
+        Tarea tarea = tareaRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Tarea no encontrada con ID: " + id));
+        if (ifMatch != null && !TaskETag.matches(ifMatch, TaskETag.of(tarea))) {
+            throw new PreconditionFailedException("La tarea " + id + " cambió desde que se leyó; vuelva a cargarla");
+        }
+
+        // El parche se aplica sobre el DTO de actualización con los valores actuales: así se reutilizan
+        // la conversión de tipos de Jackson y las validaciones de UpdateTaskDTO
+        UpdateTaskDTO parcheado = tareaMapper.toUpdate(tarea);
+        List<String> campos = new ArrayList<>();
+        mergePatch.fieldNames().forEachRemaining(campos::add);
+        List<String> desconocidos = campos.stream().filter(campo -> !CAMPOS_PARCHEABLES.contains(campo)).toList();
+        if (!desconocidos.isEmpty()) {
+            throw new InvalidPatchException("Campos que no se pueden modificar: " + desconocidos);
+        }
         try {
-            googleSheetsService.updateRow(updatedTarea.getId().toString(), mapToSheetRow(updatedTarea, patientInfo));
-        } catch (IOException e) {
-            System.err.println("⚠ Error actualizando en Google Sheets: " + e.getMessage());
+            objectMapper.readerForUpdating(parcheado).readValue(mergePatch);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new InvalidPatchException("Parche inválido: " + e.getMessage());
+        }
+
+        // Diff campo a campo: solo se tocan en la entidad los que cambian
+        EstadoTarea estadoAnterior = tarea.getEstado();
+        TareaStatsService.Foto fotoAnterior = TareaStatsService.Foto.of(tarea);
+        BeanWrapper nuevo = new BeanWrapperImpl(parcheado);
+        BeanWrapper actual = new BeanWrapperImpl(tarea);
+        Set<String> cambiados = new HashSet<>();
+        for (String campo : campos) {
+            Object valor = nuevo.getPropertyValue(campo);
+            if (!Objects.equals(valor, actual.getPropertyValue(campo))) {
+                actual.setPropertyValue(campo, valor);
+                cambiados.add(campo);
+            }
+        }
+        if (cambiados.isEmpty()) {
+            return convertToEnrichedDto(tarea, null);
+        }
+
+        String errores = Stream.concat(validator.validate(parcheado).stream(), validator.validate(tarea).stream())
+                .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                .distinct()
+                .collect(Collectors.joining("; "));
+        if (!errores.isEmpty()) {
+            throw new InvalidPatchException(errores); // La excepción deshace también los cambios en la entidad
+        }
+        if (cambiados.contains("fechaRecordatorio")) {
+            tarea.setRecordatorioEnviado(false);
+        }
+
+        Tarea guardada = tareaRepository.saveAndFlush(tarea);
+        if (cambiados.contains("estado")) {
+            registrarHistorial(guardada, estadoAnterior, guardada.getEstado(), "Tarea actualizada");
+        }
+        if (cambiados.stream().anyMatch(TareaSheetRowMapper.PROPIEDADES_EXPORTADAS::contains)) {
+            encolarSincronizacionSheets(guardada.getId(), OperacionSheets.ACTUALIZAR);
+        }
+        tareaStatsService.registrarCambio(fotoAnterior, TareaStatsService.Foto.of(guardada));
+        if (cambiados.contains("fechaRecordatorio") || cambiados.contains("estado")) {
+            recordatorioScheduler.reprogramar(guardada);
         }
 
-        return convertToEnrichedDto(updatedTarea, patientInfo);
+        TaskResponseDTO respuesta = convertToEnrichedDto(guardada, null);
+        eventPublisher.publishEvent(TareaCambiadaEvent.actualizada(guardada.getPacienteNumeroIdentificacion(), estadoAnterior, respuesta));
+        return respuesta;
     }
 
     @Override
     @Transactional
     public void eliminarTarea(Long id) {
-        if (!tareaRepository.existsById(id)) {
-            throw new ResourceNotFoundException("No se puede eliminar, tarea no encontrada con ID: " + id);
+        Tarea tarea = tareaRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("No se puede eliminar, tarea no encontrada con ID: " + id));
+        tareaRepository.delete(tarea);
+        encolarSincronizacionSheets(id, OperacionSheets.ELIMINAR);
+        tareaStatsService.registrarCambio(TareaStatsService.Foto.of(tarea), null);
+        recordatorioScheduler.cancelar(id);
+        eventPublisher.publishEvent(TareaCambiadaEvent.eliminada(id, tarea.getPacienteNumeroIdentificacion(), tarea.getEstado()));
+    }
+
+    /**
+     * Pasa varias tareas a un mismo estado con un número fijo de consultas, sean cuantas sean: un SELECT ... FOR
+     * UPDATE para leer el estado anterior, un UPDATE para todas, y el historial y los eventos de Sheets en un
+     * INSERT en lote cada uno. Las que ya estaban en ese estado no se tocan. Como en un PATCH, los eventos de
+     * /eventos van sin {@code paciente}. Los eventos de Sheets los envía después el dispatcher, en pasadas de
+     * {@code sheets.outbox.batch-size} eventos: 1000 tareas son 10 pasadas con el valor por defecto.
+     */
+    @Override
+    @Transactional
+    public TransicionEstadoResultadoDTO cambiarEstado(TransicionEstadoDTO transicion) {
+        Set<Long> ids = transicion.getIds();
+        EstadoTarea estado = transicion.getEstado();
+        if (ids.size() > maxTransiciones) {
+            throw new InvalidTransitionException("Se pueden cambiar como máximo " + maxTransiciones + " tareas por petición");
         }
-        tareaRepository.deleteById(id);
-        try {
-            googleSheetsService.deleteRowById(id.toString());
-        } catch (IOException e) {
-            System.err.println("⚠ Error eliminando en Google Sheets: " + e.getMessage());
+
+        List<Tarea> tareas = tareaRepository.findAllByIdForUpdate(ids);
+        List<Tarea> cambian = tareas.stream().filter(t -> t.getEstado() != estado).toList();
+        List<Long> actualizadas = cambian.stream().map(Tarea::getId).sorted().toList();
+        List<Long> sinCambios = tareas.stream().filter(t -> t.getEstado() == estado).map(Tarea::getId).sorted().toList();
+        Set<Long> encontradas = tareas.stream().map(Tarea::getId).collect(Collectors.toSet());
+
+        if (!cambian.isEmpty()) {
+            LocalDateTime ahora = LocalDateTime.now();
+            tareaRepository.actualizarEstado(actualizadas, estado, ahora);
+            sheetsOutboxEncolador.encolar(actualizadas, OperacionSheets.ACTUALIZAR);
+
+            // El UPDATE ya vació el contexto de persistencia: estas copias solo sirven para armar la respuesta
+            for (Tarea tarea : cambian) {
+                EstadoTarea estadoAnterior = tarea.getEstado();
+                TareaStatsService.Foto fotoAnterior = TareaStatsService.Foto.of(tarea);
+                tarea.setEstado(estado);
+                tarea.setFechaActualizacion(ahora);
+                tarea.setVersion(tarea.getVersion() + 1);
+
+                registrarHistorial(tarea, estadoAnterior, estado, "Cambio de estado en lote");
+                tareaStatsService.registrarCambio(fotoAnterior, TareaStatsService.Foto.of(tarea));
+                recordatorioScheduler.reprogramar(tarea);
+                eventPublisher.publishEvent(TareaCambiadaEvent.actualizada(
+                        tarea.getPacienteNumeroIdentificacion(), estadoAnterior, convertToEnrichedDto(tarea, null)));
+            }
         }
+
+        List<Long> noEncontradas = ids.stream().filter(id -> !encontradas.contains(id)).sorted().toList();
+        return new TransicionEstadoResultadoDTO(estado, actualizadas, sinCambios, noEncontradas);
     }
 
     // --- MÉTODOS DE BÚSQUEDA REFACTORIZADOS ---
 
     @Override
-    public List<TaskResponseDTO> buscarPorNumeroIdentificacionPaciente(String numeroIdentificacion) {
-        return tareaRepository.findByPacienteNumeroIdentificacion(numeroIdentificacion).stream()
-                .map(tarea -> {
-                    PatientInfoDTO patientInfo = findPatientById(tarea.getPacienteNumeroIdentificacion()).block();
-                    return convertToEnrichedDto(tarea, patientInfo);
-                })
-                .collect(Collectors.toList());
+    public CursorPageDTO<TaskResponseDTO> buscarPorNumeroIdentificacionPaciente(String numeroIdentificacion, TaskPageRequestDTO pagina) {
+        return buscarPagina(TareaSpecifications.delPaciente(numeroIdentificacion), pagina);
     }
 
     @Override
-    public List<TaskResponseDTO> buscarPorNombrePaciente(String nombre) {
-        // PASO 1: Llamar a patient-service para obtener IDs por nombre
-        List<String> patientIds = findPatientIdsByName(nombre).block();
-        if (patientIds == null || patientIds.isEmpty()) {
-            return List.of(); // Devolver lista vacía si no hay pacientes con ese nombre
+    public CursorPageDTO<TaskResponseDTO> buscarPorNombrePaciente(String nombre, TaskPageRequestDTO pagina) {
+        // Una sola llamada a patient-service: los pacientes que devuelve sirven también para enriquecer las tareas
+        Map<String, PatientInfoDTO> pacientes = pacientesPorNombre(
+                patientServiceClient.findPatientsByName(nombre).blockOptional().orElse(List.of()), nombre);
+        if (pacientes.isEmpty()) {
+            return new CursorPageDTO<>(List.of(), null); // Página vacía si no hay pacientes con ese nombre
         }
 
-        // PASO 2: Buscar en nuestro repositorio las tareas con esos IDs
-        return tareaRepository.findByPacienteNumeroIdentificacionIn(patientIds).stream()
-                .map(tarea -> {
-                    PatientInfoDTO patientInfo = findPatientById(tarea.getPacienteNumeroIdentificacion()).block();
-                    return convertToEnrichedDto(tarea, patientInfo);
-                })
+        // El IN va en bloques de task.patient-search.chunk-size. Cada bloque trae sus size + 1 primeras filas en el
+        // orden keyset de la página, y de todas juntas se quedan las size + 1 primeras: las mismas que daría un solo IN
+        List<String> ids = new ArrayList<>(pacientes.keySet());
+        List<Tarea> filas = new ArrayList<>();
+        for (int desde = 0; desde < ids.size(); desde += bloquePacientes) {
+            List<String> bloque = ids.subList(desde, Math.min(desde + bloquePacientes, ids.size()));
+            filas.addAll(buscarFilas(TareaSpecifications.dePacientes(bloque), pagina));
+        }
+        Comparator<Tarea> orden = Comparator.comparing(Tarea::getFechaCreacion).thenComparing(Tarea::getId);
+        filas = filas.stream()
+                .sorted(pagina.getSort() == Sort.Direction.ASC ? orden : orden.reversed())
+                .limit(pagina.getSize() + 1L)
                 .collect(Collectors.toList());
+
+        return construirPagina(filas, pagina, tareas -> tareas.stream()
+                .map(tarea -> convertToEnrichedDto(tarea, pacientes.get(tarea.getPacienteNumeroIdentificacion())))
+                .collect(Collectors.toList()));
     }
 
     @Override
-    public List<TaskResponseDTO> filtrarTareasPorAtributos(Optional<EstadoTarea> estado, Optional<Prioridad> prioridad, Optional<TipoCita> tipoCita) {
-        // Aquí iría una lógica de consulta dinámica (ej. con Criteria API o Specifications)
-        // Por simplicidad, por ahora solo devolvemos todas y filtramos en memoria (no ideal para producción)
-        List<Tarea> tareas = tareaRepository.findAll(); // Reemplazar con una consulta más eficiente
-        return tareas.stream()
-                .filter(t -> estado.map(s -> t.getEstado() == s).orElse(true))
-                .filter(t -> prioridad.map(p -> t.getPrioridad() == p).orElse(true))
-                .filter(t -> tipoCita.map(tc -> t.getTipoCita() == tc).orElse(true))
-                .map(tarea -> {
-                    PatientInfoDTO patientInfo = findPatientById(tarea.getPacienteNumeroIdentificacion()).block();
-                    return convertToEnrichedDto(tarea, patientInfo);
-                })
-                .collect(Collectors.toList());
+    public CursorPageDTO<TaskResponseDTO> filtrarTareasPorAtributos(TaskFilterDTO filtro, TaskPageRequestDTO pagina) {
+        // Todo el filtrado lo hace MySQL: solo salen de la base las filas de la página pedida
+        return buscarPagina(TareaSpecifications.conFiltro(filtro), pagina);
     }
 
     @Override
@@ -227,102 +417,80 @@ public class TaskServiceImpl implements TareaService {
 
     // ========================= MÉTODOS PRIVADOS DE COMUNICACIÓN Y MAPEO =========================
 
-    private Mono<PatientInfoDTO> findPatientById(String id) {
-        return webClient.get()
-                .uri("/api/v1/patients/{id}", id) // Llama a GET /api/v1/patients/{id}
-                .retrieve()
-                .bodyToMono(PatientInfoDTO.class);
+    private TaskResponseDTO convertToEnrichedDto(Tarea tarea, PatientInfoDTO patientInfo) {
+        return tareaMapper.toResponse(tarea, patientInfo); // ¡Aquí ocurre el enriquecimiento!
     }
 
-    private Mono<List<String>> findPatientIdsByName(String name) {
-        // Asume que patient-service tiene un endpoint para buscar por nombre
-        return webClient.get()
-                .uri(uriBuilder -> uriBuilder.path("/api/v1/patients/search")
-                        .queryParam("nombre", name)
-                        .build())
-                .retrieve()
-                .bodyToFlux(PatientInfoDTO.class) // Obtiene un flujo de pacientes
-                .map(PatientInfoDTO::getNumeroIdentificacion) // Extrae solo sus IDs
-                .collectList(); // Los agrupa en una lista
+    /**
+     * Trae una página del filtro dado usando keyset sobre (fechaCreacion, id): se piden size + 1 filas
+     * para saber si hay una página siguiente sin tener que contar.
+     */
+    private CursorPageDTO<TaskResponseDTO> buscarPagina(Specification<Tarea> filtro, TaskPageRequestDTO pagina) {
+        return construirPagina(buscarFilas(filtro, pagina), pagina, this::enriquecerTareas);
     }
 
-    private TaskResponseDTO convertToEnrichedDto(Tarea tarea, PatientInfoDTO patientInfo) {
-        TaskResponseDTO dto = new TaskResponseDTO();
-        BeanUtils.copyProperties(tarea, dto);
-        dto.setPaciente(patientInfo); // ¡Aquí ocurre el enriquecimiento!
-        return dto;
+    private List<Tarea> buscarFilas(Specification<Tarea> filtro, TaskPageRequestDTO pagina) {
+        Sort orden = Sort.by(pagina.getSort(), "fechaCreacion", "id");
+        Specification<Tarea> spec = Specification.allOf(filtro, TareaSpecifications.despuesDe(pagina.getCursor(), pagina.getSort()));
+        return tareaRepository.findBy(spec, q -> q.sortBy(orden).limit(pagina.getSize() + 1).all());
     }
 
-    private HistorialTareaResponseDTO convertToDto(HistorialTarea historial) {
-        HistorialTareaResponseDTO dto = new HistorialTareaResponseDTO();
-        BeanUtils.copyProperties(historial, dto);
-        dto.setTareaId(historial.getTarea().getId());
-        return dto;
-    }
+    private CursorPageDTO<TaskResponseDTO> construirPagina(List<Tarea> filas, TaskPageRequestDTO pagina,
+                                                           Function<List<Tarea>, List<TaskResponseDTO>> enriquecer) {
+        String nextCursor = null;
+        if (filas.size() > pagina.getSize()) {
+            filas = filas.subList(0, pagina.getSize());
+            nextCursor = TaskCursor.of(filas.get(filas.size() - 1)).encode();
+        }
 
-    private void registrarHistorial(Tarea tarea, EstadoTarea estadoAnterior, EstadoTarea estadoNuevo, String descripcion) {
-        HistorialTarea historial = new HistorialTarea();
-        historial.setTarea(tarea);
-        historial.setEstadoAnterior(estadoAnterior);
-        historial.setEstadoNuevo(estadoNuevo);
-        historial.setDescripcionCambio(descripcion);
-        historial.setUsuarioCambio("Sistema"); // Cambiar cuando tengas seguridad
-        historialTareaRepository.save(historial);
+        // Si el cliente ya tiene esta página, se ahorra la consulta de pacientes
+        String etag = TaskETag.ofPage(filas, nextCursor);
+        if (TaskETag.matches(pagina.getIfNoneMatch(), etag)) {
+            return new CursorPageDTO<>(null, nextCursor, etag, true);
+        }
+        return new CursorPageDTO<>(enriquecer.apply(filas), nextCursor, etag, false);
     }
 
+    // Un nombre muy general ("a") devolvería casi todos los pacientes: por encima del límite se pide afinar
+    private Map<String, PatientInfoDTO> pacientesPorNombre(List<PatientInfoDTO> encontrados, String nombre) {
+        if (encontrados.size() > maxPacientesPorNombre) {
+            throw new InvalidSearchException("Hay más de " + maxPacientesPorNombre + " pacientes con \"" + nombre
+                    + "\" en el nombre; escriba un nombre más completo");
+        }
+        return encontrados.stream()
+                .collect(Collectors.toMap(PatientInfoDTO::getNumeroIdentificacion, p -> p, (a, b) -> a));
+    }
 
-    private List<Object> mapToSheetRow(Tarea tarea, PatientInfoDTO paciente) {
-        DateTimeFormatter fFecha = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        DateTimeFormatter fFechaHora = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
-        java.util.function.Function<Object, String> s = obj -> (obj == null) ? "" : obj.toString();
+    // Enriquece un conjunto de tareas resolviendo primero, de una vez, todos sus pacientes distintos
+    private List<TaskResponseDTO> enriquecerTareas(List<Tarea> tareas) {
+        if (tareas.isEmpty()) {
+            return List.of();
+        }
+        List<String> ids = tareas.stream()
+                .map(Tarea::getPacienteNumeroIdentificacion)
+                .collect(Collectors.toList());
+        Map<String, PatientInfoDTO> pacientes = patientInfoCache.getAllSiDisponible(ids).blockOptional().orElse(Map.of());
 
-        // Lógica para determinar los datos del cotizante a mostrar
-        String cotizanteTipoId, cotizanteNumId, cotizanteNombre;
+        return tareas.stream()
+                .map(tarea -> convertToEnrichedDto(tarea, pacientes.get(tarea.getPacienteNumeroIdentificacion())))
+                .collect(Collectors.toList());
+    }
 
-        // Si el paciente es un beneficiario y tiene un cotizante asociado...
-        if ("BENEFICIARIO".equals(paciente.getTipoPaciente()) && paciente.getCotizante() != null) {
+    private HistorialTareaResponseDTO convertToDto(HistorialTarea historial) {
+        return tareaMapper.toResponse(historial);
+    }
 
-            cotizanteTipoId = s.apply(paciente.getCotizante().getTipoIdentificacion());
-            cotizanteNumId = s.apply(paciente.getCotizante().getNumeroIdentificacion());
-            cotizanteNombre = s.apply(paciente.getCotizante().getNombreCompleto());
-        } else {
-            // ... si no (es un cotizante), usamos sus propios datos.
-            cotizanteTipoId = s.apply(paciente.getTipoIdentificacion());
-            cotizanteNumId = s.apply(paciente.getNumeroIdentificacion());
-            cotizanteNombre = s.apply(paciente.getNombreCompleto());
-        }
+    // Se acumula y se escribe en lote al confirmar la transacción (ver HistorialTareaWriter)
+    private void registrarHistorial(Tarea tarea, EstadoTarea estadoAnterior, EstadoTarea estadoNuevo, String descripcion) {
+        historialTareaWriter.registrar(tarea.getId(), estadoAnterior, estadoNuevo, descripcion);
+    }
 
-        return Arrays.asList(
-
-                (tarea.getFechaCreacion() == null) ? "" : tarea.getFechaCreacion().format(fFechaHora),
-
-                // --- Columnas del "Cotizante" (con la nueva lógica) ---
-                cotizanteTipoId,      // Columna 2: Tipo ID del Cotizante
-                cotizanteNumId,       // Columna 3: Número de ID cotizante
-                cotizanteNombre,      // Columna 4: Nombre completo del Cotizante
-                s.apply(paciente.getParentesco()), // Columna 5: Parentesco (del paciente, sea cual sea)
-
-                // --- Columnas del "Paciente"
-                s.apply(paciente.getTipoIdentificacion()),
-                s.apply(paciente.getNumeroIdentificacion()),
-                s.apply(paciente.getNombreCompleto()),
-                s.apply(paciente.getCelular()),
-                s.apply(paciente.getCorreo()),
-                s.apply(paciente.getEps()),
-
-                // --- Columnas de la Tarea/Cita (no cambian) ---
-                s.apply(tarea.getTipoCita()),
-                s.apply(tarea.getRadicado()),
-                s.apply(tarea.getAutorizacion()),
-                (tarea.getFechaSolicitudServiconli() == null) ? "" : tarea.getFechaSolicitudServiconli().format(fFecha),
-                (tarea.getFechaCita() == null) ? "" : tarea.getFechaCita().format(fFecha),
-                s.apply(tarea.getConfirmacionCita()),
-                s.apply(tarea.getEspecificaciones()),
-                (tarea.getEstado() == null) ? "" : tarea.getEstado().name(),
-                s.apply(tarea.getObservacion()),
-                (tarea.getPrioridad() == null) ? "" : tarea.getPrioridad().name(),
-                s.apply(tarea.getId())
-        );
+    // El evento se guarda en la misma transacción que la tarea: si la tarea se confirma, el cambio llegará a Sheets
+    private void encolarSincronizacionSheets(Long tareaId, OperacionSheets operacion) {
+        SheetsOutboxEvent evento = new SheetsOutboxEvent();
+        evento.setTareaId(tareaId);
+        evento.setOperacion(operacion);
+        sheetsOutboxRepository.save(evento);
     }
 
 }
\ No newline at end of file
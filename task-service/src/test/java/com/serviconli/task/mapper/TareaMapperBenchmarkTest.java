@@ -0,0 +1,142 @@
+package com.serviconli.task.mapper;
+
+import com.serviconli.task.dto.HistorialTareaResponseDTO;
+import com.serviconli.task.dto.PatientInfoDTO;
+import com.serviconli.task.dto.TaskResponseDTO;
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.HistorialTarea;
+import com.serviconli.task.model.Prioridad;
+import com.serviconli.task.model.Tarea;
+import com.serviconli.task.model.TipoCita;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.BeanUtils;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Coste por fila de pasar una tarea (y una entrada de historial) a su DTO de respuesta: el
+ * {@code BeanUtils.copyProperties} que se usaba antes, por reflexión, contra el {@link TareaMapper} generado por
+ * MapStruct. Antes de medir se comprueba que los dos dan el mismo DTO.
+ *
+ * <p>No corre con el build normal. Se lanza con: {@code mvn test -Pbenchmark}
+ */
+@Tag("benchmark")
+class TareaMapperBenchmarkTest {
+
+    private static final int FILAS = 10_000;
+    private static final int RONDAS_CALENTAMIENTO = 20;
+    private static final int RONDAS = 50;
+
+    private final TareaMapper mapper = new TareaMapperImpl();
+
+    @Test
+    void beanUtilsVsMapStruct() {
+        List<Tarea> tareas = new ArrayList<>(FILAS);
+        List<HistorialTarea> historial = new ArrayList<>(FILAS);
+        for (int i = 0; i < FILAS; i++) {
+            Tarea tarea = tarea(i);
+            tareas.add(tarea);
+            historial.add(historial(i, tarea));
+        }
+        PatientInfoDTO paciente = PatientInfoDTO.builder().numeroIdentificacion("1234567890").nombreCompleto("Carlos Ramírez").build();
+
+        Function<Tarea, TaskResponseDTO> tareaBeanUtils = tarea -> {
+            TaskResponseDTO dto = new TaskResponseDTO();
+            BeanUtils.copyProperties(tarea, dto);
+            dto.setPaciente(paciente);
+            return dto;
+        };
+        Function<Tarea, TaskResponseDTO> tareaMapStruct = tarea -> mapper.toResponse(tarea, paciente);
+        Function<HistorialTarea, HistorialTareaResponseDTO> historialBeanUtils = h -> {
+            HistorialTareaResponseDTO dto = new HistorialTareaResponseDTO();
+            BeanUtils.copyProperties(h, dto);
+            dto.setTareaId(h.getTarea().getId());
+            return dto;
+        };
+        Function<HistorialTarea, HistorialTareaResponseDTO> historialMapStruct = mapper::toResponse;
+
+        assertEquals(tareaBeanUtils.apply(tareas.get(1)), tareaMapStruct.apply(tareas.get(1)));
+        assertEquals(historialBeanUtils.apply(historial.get(1)), historialMapStruct.apply(historial.get(1)));
+
+        System.out.printf("%nBenchmark de mapeo a DTO (%d filas por ronda, mediana de %d rondas)%n", FILAS, RONDAS);
+        System.out.printf("  Tarea -> TaskResponseDTO           BeanUtils: %6.1f ns/fila   MapStruct: %6.1f ns/fila%n",
+                medir(tareas, tareaBeanUtils), medir(tareas, tareaMapStruct));
+        System.out.printf("  HistorialTarea -> ResponseDTO      BeanUtils: %6.1f ns/fila   MapStruct: %6.1f ns/fila%n",
+                medir(historial, historialBeanUtils), medir(historial, historialMapStruct));
+    }
+
+    // Mediana de las rondas, tras calentar el JIT con la misma función
+    private static <T> double medir(List<T> filas, Function<T, ?> mapeo) {
+        long sumidero = 0;
+        for (int r = 0; r < RONDAS_CALENTAMIENTO; r++) {
+            sumidero += ejecutar(filas, mapeo);
+        }
+        List<Long> tiempos = new ArrayList<>(RONDAS);
+        for (int r = 0; r < RONDAS; r++) {
+            long inicio = System.nanoTime();
+            sumidero += ejecutar(filas, mapeo);
+            tiempos.add(System.nanoTime() - inicio);
+        }
+        // Se usa el resultado para que el JIT no elimine el trabajo
+        if (sumidero == 42) {
+            System.out.println();
+        }
+        tiempos.sort(null);
+        return tiempos.get(RONDAS / 2) / (double) filas.size();
+    }
+
+    private static <T> long ejecutar(List<T> filas, Function<T, ?> mapeo) {
+        long hash = 0;
+        for (T fila : filas) {
+            hash += System.identityHashCode(mapeo.apply(fila));
+        }
+        return hash;
+    }
+
+    private static Tarea tarea(int i) {
+        Tarea tarea = new Tarea();
+        tarea.setId((long) i);
+        tarea.setPacienteNumeroIdentificacion("1234567890");
+        tarea.setTipoCita(TipoCita.values()[i % TipoCita.values().length]);
+        tarea.setEspecialidad("Cardiología");
+        tarea.setAutorizacion("AUT-" + i);
+        tarea.setOrden("ORD-" + i);
+        tarea.setRadicado("RAD-" + i);
+        tarea.setPrioridad(Prioridad.values()[i % Prioridad.values().length]);
+        tarea.setEspecificaciones("Paciente solicita exámenes previos.");
+        tarea.setObservacion("Sin observaciones");
+        tarea.setEstado(EstadoTarea.values()[i % EstadoTarea.values().length]);
+        tarea.setFechaSolicitudServiconli(LocalDate.of(2025, 1, 1));
+        tarea.setFechaCreacion(LocalDateTime.of(2025, 1, 1, 8, 0).plusMinutes(i));
+        tarea.setFechaActualizacion(tarea.getFechaCreacion());
+        tarea.setVersion(0L);
+        tarea.setFechaCita(LocalDate.of(2025, 2, 1));
+        tarea.setHoraCita("08:30");
+        tarea.setDoctor("Dra. Gómez");
+        tarea.setDireccionCita("Calle 10 # 20-30");
+        tarea.setLugarCita("Clínica Central");
+        tarea.setInformacionCita("Llegar 15 minutos antes");
+        tarea.setConfirmacionCita("Confirmada");
+        tarea.setFechaRecordatorio(LocalDateTime.of(2025, 1, 31, 8, 0));
+        return tarea;
+    }
+
+    private static HistorialTarea historial(int i, Tarea tarea) {
+        HistorialTarea historial = new HistorialTarea();
+        historial.setId((long) i);
+        historial.setTarea(tarea);
+        historial.setEstadoAnterior(EstadoTarea.values()[0]);
+        historial.setEstadoNuevo(tarea.getEstado());
+        historial.setFechaCambio(tarea.getFechaCreacion());
+        historial.setUsuarioCambio("Sistema");
+        historial.setDescripcionCambio("Tarea actualizada");
+        return historial;
+    }
+}
@@ -0,0 +1,52 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.client.PatientServiceClient;
+import com.serviconli.task.dto.PatientInfoDTO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba las métricas de la caché de pacientes con un patient-service simulado.
+ */
+class PatientInfoCacheTest {
+
+    private final PatientServiceClient client = Mockito.mock(PatientServiceClient.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PatientInfoCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new PatientInfoCache(client, Mockito.mock(PacienteResumenReplica.class), registry,
+                100, Duration.ofMinutes(10), Duration.ofHours(24));
+    }
+
+    @Test
+    void contarLasConsultasAgrupadasNoAlteraLosAciertosNiLosFallos() {
+        Sinks.One<PatientInfoDTO> respuesta = Sinks.one();
+        when(client.findPatientById("123")).thenReturn(respuesta.asMono());
+
+        Mono<PatientInfoDTO> primera = cache.get("123");
+        Mono<PatientInfoDTO> segunda = cache.get("123"); // Espera la misma llamada en curso
+        respuesta.tryEmitValue(PatientInfoDTO.builder().numeroIdentificacion("123").build());
+        primera.block(Duration.ofSeconds(5));
+        segunda.block(Duration.ofSeconds(5));
+        cache.get("123").block(Duration.ofSeconds(5));
+
+        assertEquals(1, registry.get("patient.lookups.coalesced").counter().count());
+        assertEquals(2, gets("hit"));
+        assertEquals(1, gets("miss"));
+    }
+
+    private double gets(String resultado) {
+        return registry.get("cache.gets").tag("cache", "patientInfo").tag("result", resultado).functionCounter().count();
+    }
+}
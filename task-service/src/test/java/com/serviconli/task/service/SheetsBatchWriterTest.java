@@ -0,0 +1,188 @@
+package com.serviconli.task.service;
+
+import com.google.api.client.http.javanet.NetHttpTransport;
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.sheets.v4.Sheets;
+import com.serviconli.task.model.OperacionSheets;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba el writer contra un servidor HTTP local que hace de API de Google Sheets.
+ */
+class SheetsBatchWriterTest {
+
+    private HttpServer server;
+    private final List<String> llamadas = new CopyOnWriteArrayList<>();
+    private final List<String> cuerpos = new CopyOnWriteArrayList<>();
+    private final AtomicInteger rechazosPendientes = new AtomicInteger();
+    private final AtomicInteger caidasEnAppend = new AtomicInteger();
+    private SheetsBatchWriter writer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::responder);
+        server.start();
+
+        Sheets sheets = new Sheets.Builder(new NetHttpTransport(), JacksonFactory.getDefaultInstance(), null)
+                .setRootUrl("http://localhost:" + server.getAddress().getPort() + "/")
+                .setApplicationName("test")
+                .build();
+        GoogleSheetsService service = new GoogleSheetsService(sheets, new TokenBucket(100, 100), 3, Duration.ofMillis(1));
+        writer = new SheetsBatchWriter(service);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    void fusionaLosCambiosDeUnaTareaEnUnaSolaEscrituraPorTipo() {
+        Map<String, Exception> fallos = writer.escribir(List.of(
+                new SheetsBatchWriter.Cambio("1", OperacionSheets.CREAR, fila("1", "v1")),
+                new SheetsBatchWriter.Cambio("1", OperacionSheets.ACTUALIZAR, fila("1", "v2")),
+                new SheetsBatchWriter.Cambio("2", OperacionSheets.ACTUALIZAR, fila("2", "a")),
+                new SheetsBatchWriter.Cambio("2", OperacionSheets.ACTUALIZAR, fila("2", "b")),
+                new SheetsBatchWriter.Cambio("3", OperacionSheets.ELIMINAR, null),
+                new SheetsBatchWriter.Cambio("4", OperacionSheets.CREAR, fila("4", "x")),
+                new SheetsBatchWriter.Cambio("4", OperacionSheets.ELIMINAR, null)));
+
+        assertTrue(fallos.isEmpty());
+        // Un append, una lectura de la columna de IDs para localizar 2 y 3, y un único batchUpdate
+        assertEquals(List.of("append", "get", "batchUpdate"), llamadas);
+
+        String append = cuerpos.get(0);
+        assertTrue(append.contains("v2") && !append.contains("v1") && !append.contains("\"4\""));
+        String batchUpdate = cuerpos.get(2);
+        assertTrue(batchUpdate.contains("A2:V2") && batchUpdate.contains("\"b\"") && !batchUpdate.contains("\"a\""));
+        assertTrue(batchUpdate.contains("V3") && batchUpdate.contains("ELIMINADA"));
+    }
+
+    @Test
+    void usaElIndiceDeFilasSinVolverALeerLaHoja() {
+        writer.escribir(List.of(new SheetsBatchWriter.Cambio("2", OperacionSheets.ACTUALIZAR, fila("2", "a"))));
+        writer.escribir(List.of(new SheetsBatchWriter.Cambio("2", OperacionSheets.ACTUALIZAR, fila("2", "b"))));
+
+        // Solo la primera escritura lee la columna de IDs
+        assertEquals(List.of("get", "batchUpdate", "batchUpdate"), llamadas);
+    }
+
+    @Test
+    void unaActualizacionDeUnaTareaQueNoEstaEnLaHojaLaAnadeAlFinal() {
+        Map<String, Exception> fallos = writer.escribir(List.of(
+                new SheetsBatchWriter.Cambio("7", OperacionSheets.ACTUALIZAR, fila("7", "a"))));
+
+        assertTrue(fallos.isEmpty());
+        assertEquals(List.of("get", "append"), llamadas);
+        assertTrue(cuerpos.get(1).contains("\"7\""));
+    }
+
+    @Test
+    void noReleeLaHojaPorTareasQueYaSabeQueNoEstan() {
+        writer.escribir(List.of(new SheetsBatchWriter.Cambio("8", OperacionSheets.ELIMINAR, null)));
+        writer.escribir(List.of(new SheetsBatchWriter.Cambio("8", OperacionSheets.ELIMINAR, null)));
+
+        assertEquals(List.of("get"), llamadas);
+    }
+
+    @Test
+    void noDuplicaUnaFilaSiElAppendAnteriorFalloSinRespuestaClara() {
+        caidasEnAppend.set(1);
+        Map<String, Exception> fallos = writer.escribir(List.of(
+                new SheetsBatchWriter.Cambio("2", OperacionSheets.CREAR, fila("2", "a"))));
+        assertTrue(fallos.containsKey("2"));
+
+        // La hoja de prueba sí tiene la tarea 2: el reintento la actualiza en su fila en lugar de añadirla otra vez
+        fallos = writer.escribir(List.of(new SheetsBatchWriter.Cambio("2", OperacionSheets.CREAR, fila("2", "a"))));
+
+        assertTrue(fallos.isEmpty());
+        assertEquals(List.of("append", "get", "batchUpdate"), llamadas);
+    }
+
+    @Test
+    void reintentaCuandoLaApiRespondeTooManyRequests() {
+        rechazosPendientes.set(2);
+
+        Map<String, Exception> fallos = writer.escribir(List.of(
+                new SheetsBatchWriter.Cambio("1", OperacionSheets.CREAR, fila("1", "v1"))));
+
+        assertTrue(fallos.isEmpty());
+        assertEquals(List.of("append", "append", "append"), llamadas);
+    }
+
+    @Test
+    void devuelveComoFallidasLasTareasSiSeAgotanLosReintentos() {
+        rechazosPendientes.set(10);
+
+        Map<String, Exception> fallos = writer.escribir(List.of(
+                new SheetsBatchWriter.Cambio("1", OperacionSheets.CREAR, fila("1", "v1"))));
+
+        assertEquals(1, fallos.size());
+        assertTrue(fallos.containsKey("1"));
+    }
+
+    private static List<Object> fila(String id, String valor) {
+        return List.of(valor, id);
+    }
+
+    private void responder(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        InputStream in = exchange.getRequestBody();
+        if ("gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))) {
+            in = new GZIPInputStream(in); // El cliente de Google comprime los cuerpos
+        }
+        String cuerpo = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+
+        String tipo = path.endsWith(":append") ? "append"
+                : path.endsWith(":batchUpdate") ? "batchUpdate"
+                : path.endsWith(":batchGet") ? "batchGet"
+                : "get";
+        llamadas.add(tipo);
+        cuerpos.add(cuerpo);
+
+        if (rechazosPendientes.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            enviar(exchange, 429, "{\"error\":{\"code\":429,\"message\":\"Quota exceeded\",\"status\":\"RESOURCE_EXHAUSTED\"}}");
+            return;
+        }
+        if ("append".equals(tipo) && caidasEnAppend.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+            enviar(exchange, 503, "{\"error\":{\"code\":503,\"message\":\"Backend Error\",\"status\":\"UNAVAILABLE\"}}");
+            return;
+        }
+        switch (tipo) {
+            case "append" -> enviar(exchange, 200,
+                    "{\"updates\":{\"updatedRange\":\"'CITAS ARMENIA'!A10:V10\"}}");
+            case "get" -> enviar(exchange, 200,
+                    "{\"values\":[[\"ID\"],[\"2\"],[\"3\"]]}");
+            default -> enviar(exchange, 200, "{}");
+        }
+    }
+
+    private static void enviar(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
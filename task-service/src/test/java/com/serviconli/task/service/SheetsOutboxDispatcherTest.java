@@ -0,0 +1,122 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.model.EstadoOutbox;
+import com.serviconli.task.model.OperacionSheets;
+import com.serviconli.task.model.SheetsOutboxEvent;
+import com.serviconli.task.repository.EventoOutboxPendiente;
+import com.serviconli.task.repository.SheetsOutboxRepository;
+import com.serviconli.task.repository.TareaRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba las transacciones de una pasada del despachador con un repositorio y un writer simulados.
+ */
+class SheetsOutboxDispatcherTest {
+
+    private final SheetsOutboxRepository outboxRepository = Mockito.mock(SheetsOutboxRepository.class);
+    private final TareaRepository tareaRepository = Mockito.mock(TareaRepository.class);
+    private final SheetsBatchWriter batchWriter = Mockito.mock(SheetsBatchWriter.class);
+    private final PlatformTransactionManager transactionManager = Mockito.mock(PlatformTransactionManager.class);
+    private final SheetsOutboxEvent evento = new SheetsOutboxEvent();
+    private SheetsOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new SheetsOutboxDispatcher(outboxRepository, tareaRepository,
+                Mockito.mock(PatientInfoCache.class), batchWriter, Mockito.mock(TareaSheetRowMapper.class),
+                transactionManager);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 100);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 8);
+        ReflectionTestUtils.setField(dispatcher, "backoffBase", Duration.ofSeconds(2));
+        ReflectionTestUtils.setField(dispatcher, "backoffMax", Duration.ofMinutes(10));
+        ReflectionTestUtils.setField(dispatcher, "lease", Duration.ofMinutes(5));
+
+        evento.setId(1L);
+        evento.setTareaId(10L);
+        evento.setOperacion(OperacionSheets.ELIMINAR);
+        evento.setEstado(EstadoOutbox.PENDIENTE);
+        evento.setProximoIntento(LocalDateTime.now());
+        when(outboxRepository.reclamarListos(any(), anyInt())).thenReturn(List.of(evento));
+        when(outboxRepository.findPendientesDeTareas(any())).thenReturn(List.of(pendiente(1L, 10L)));
+        when(outboxRepository.findAllById(any())).thenReturn(List.of(evento));
+        when(tareaRepository.findAllById(any())).thenReturn(List.of());
+    }
+
+    @Test
+    void llamaASheetsConLaReclamacionYaConfirmada() {
+        LocalDateTime antes = LocalDateTime.now();
+        when(batchWriter.escribir(anyList())).thenAnswer(invocacion -> {
+            assertTrue(evento.getProximoIntento().isAfter(antes.plusMinutes(4)), "el evento debe ir arrendado");
+            return Map.of();
+        });
+
+        dispatcher.despachar();
+
+        InOrder orden = Mockito.inOrder(transactionManager, batchWriter);
+        orden.verify(transactionManager).getTransaction(any());
+        orden.verify(transactionManager).commit(any());
+        orden.verify(batchWriter).escribir(anyList());
+        orden.verify(transactionManager).getTransaction(any());
+        orden.verify(transactionManager).commit(any());
+        Mockito.verify(transactionManager, times(2)).commit(any());
+        assertEquals(EstadoOutbox.ENVIADO, evento.getEstado());
+    }
+
+    @Test
+    void unFalloDeSheetsSeAnotaConSuBackoff() {
+        when(batchWriter.escribir(anyList())).thenReturn(Map.of("10", new IllegalStateException("429")));
+
+        dispatcher.despachar();
+
+        assertEquals(EstadoOutbox.PENDIENTE, evento.getEstado());
+        assertEquals(1, evento.getIntentos());
+        assertTrue(evento.getProximoIntento().isBefore(LocalDateTime.now().plusMinutes(1)), "vale el backoff, no el arriendo");
+    }
+
+    @Test
+    void noPisaUnEventoQueYaNoEstaPendiente() {
+        SheetsOutboxEvent enviadoPorOtra = new SheetsOutboxEvent();
+        enviadoPorOtra.setId(1L);
+        enviadoPorOtra.setTareaId(10L);
+        enviadoPorOtra.setEstado(EstadoOutbox.ENVIADO);
+        when(outboxRepository.findAllById(any())).thenReturn(List.of(enviadoPorOtra));
+        when(batchWriter.escribir(anyList())).thenReturn(Map.of("10", new IllegalStateException("429")));
+
+        dispatcher.despachar();
+
+        assertEquals(EstadoOutbox.ENVIADO, enviadoPorOtra.getEstado());
+        assertEquals(0, enviadoPorOtra.getIntentos());
+    }
+
+    private static EventoOutboxPendiente pendiente(Long id, Long tareaId) {
+        return new EventoOutboxPendiente() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Long getTareaId() {
+                return tareaId;
+            }
+        };
+    }
+}
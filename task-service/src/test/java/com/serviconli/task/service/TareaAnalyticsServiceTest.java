@@ -0,0 +1,114 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.model.EstadoTarea;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba la lectura incremental del historial con un JdbcTemplate que sirve filas desde memoria.
+ */
+class TareaAnalyticsServiceTest {
+
+    private final HistorialEnMemoria historial = new HistorialEnMemoria();
+    private TareaAnalyticsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TareaAnalyticsService(historial);
+        ReflectionTestUtils.setField(service, "huecoMax", Duration.ofMinutes(10));
+    }
+
+    @Test
+    void unaFilaQueSeConfirmaTardeSeCuentaUnaSolaVez() {
+        LocalDateTime hace = LocalDateTime.now().minusMinutes(1);
+        historial.agregar(1, 10, EstadoTarea.PENDIENTE, hace);
+        historial.agregar(3, 20, EstadoTarea.PENDIENTE, hace);
+        assertEquals(0, service.obtenerAnalitica(7).getTotal().getCompletadas());
+
+        // La fila 2 se confirma ahora, con una fecha_cambio anterior a la de la fila 3
+        historial.agregar(2, 10, EstadoTarea.COMPLETADA, hace);
+        assertEquals(1, service.obtenerAnalitica(7).getTotal().getCompletadas());
+        assertEquals(1, historial.desde());
+
+        assertEquals(1, service.obtenerAnalitica(7).getTotal().getCompletadas());
+        assertEquals(3, historial.desde());
+    }
+
+    @Test
+    void noEsperaPorHuecosMasViejosQueElMaximo() {
+        historial.agregar(1, 10, EstadoTarea.PENDIENTE, LocalDateTime.now().minusHours(1));
+        historial.agregar(5, 10, EstadoTarea.COMPLETADA, LocalDateTime.now().minusHours(1));
+        assertEquals(1, service.obtenerAnalitica(7).getTotal().getCompletadas());
+
+        service.obtenerAnalitica(7);
+        assertEquals(5, historial.desde());
+    }
+
+    private static final class HistorialEnMemoria extends JdbcTemplate {
+
+        private record Fila(long id, long tareaId, EstadoTarea estado, LocalDateTime fecha) {
+        }
+
+        private final List<Fila> filas = new ArrayList<>();
+        private long desde;
+
+        void agregar(long id, long tareaId, EstadoTarea estado, LocalDateTime fecha) {
+            filas.add(new Fila(id, tareaId, estado, fecha));
+            filas.sort((a, b) -> Long.compare(a.id(), b.id()));
+        }
+
+        long desde() {
+            return desde;
+        }
+
+        @Override
+        public void query(PreparedStatementCreator psc, RowCallbackHandler rch) {
+            try {
+                Connection conexion = Mockito.mock(Connection.class);
+                PreparedStatement ps = Mockito.mock(PreparedStatement.class);
+                when(conexion.prepareStatement(anyString(), anyInt(), anyInt())).thenReturn(ps);
+                Mockito.doAnswer(invocacion -> desde = invocacion.getArgument(1)).when(ps).setLong(anyInt(), anyLong());
+                psc.createPreparedStatement(conexion);
+
+                for (Fila fila : filas) {
+                    if (fila.id() > desde) {
+                        rch.processRow(resultSet(fila));
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static ResultSet resultSet(Fila fila) throws SQLException {
+            ResultSet rs = Mockito.mock(ResultSet.class);
+            when(rs.getLong("id")).thenReturn(fila.id());
+            when(rs.getLong("tarea_id")).thenReturn(fila.tareaId());
+            when(rs.getString("estado_nuevo")).thenReturn(fila.estado().name());
+            when(rs.getTimestamp("fecha_cambio")).thenReturn(Timestamp.valueOf(fila.fecha()));
+            when(rs.getTimestamp("fecha_creacion")).thenReturn(Timestamp.valueOf(fila.fecha().minusDays(1)));
+            return rs;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.TaskResponseDTO;
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.repository.TareaRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba el reparto de eventos con emisores que apuntan lo que se les envía en lugar de escribir en una conexión.
+ */
+class TareaEventosServiceTest {
+
+    private static final Pattern ID = Pattern.compile("id:[0-9a-z]+-(\\d+)");
+
+    private final List<EmisorDePrueba> emisores = new CopyOnWriteArrayList<>();
+    private TareaEventosService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TareaEventosService(Mockito.mock(TareaRepository.class), new SimpleMeterRegistry()) {
+            @Override
+            SseEmitter crearEmitter(Duration timeout) {
+                EmisorDePrueba emisor = new EmisorDePrueba();
+                emisores.add(emisor);
+                return emisor;
+            }
+        };
+        ReflectionTestUtils.setField(service, "bufferSize", 100_000);
+        ReflectionTestUtils.setField(service, "timeout", Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        emisores.forEach(EmisorDePrueba::desbloquear);
+        service.detener();
+    }
+
+    @Test
+    void losCambiosConfirmadosALaVezLleganEnOrdenYSinHuecos() throws Exception {
+        service.suscribir(null, null, null);
+        EmisorDePrueba cliente = emisores.get(0);
+        cliente.esperarConexion();
+
+        int hilos = 8;
+        int porHilo = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(hilos);
+        CountDownLatch salida = new CountDownLatch(1);
+        for (int h = 0; h < hilos; h++) {
+            pool.execute(() -> {
+                try {
+                    salida.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                for (int i = 0; i < porHilo; i++) {
+                    service.onTareaCambiada(cambio());
+                }
+            });
+        }
+        salida.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+
+        List<Long> recibidos = cliente.esperarEventos(hilos * porHilo);
+        assertEquals(hilos * porHilo, recibidos.size());
+        for (int i = 0; i < recibidos.size(); i++) {
+            assertEquals(i + 1, recibidos.get(i));
+        }
+    }
+
+    @Test
+    void unClienteLentoNoFrenaALosDemas() throws Exception {
+        service.suscribir(null, null, null);
+        EmisorDePrueba lento = emisores.get(0);
+        lento.esperarConexion();
+        service.suscribir(null, null, null);
+        EmisorDePrueba rapido = emisores.get(1);
+        rapido.esperarConexion();
+
+        lento.bloquear();
+        for (int i = 0; i < 50; i++) {
+            service.onTareaCambiada(cambio());
+        }
+
+        assertEquals(50, rapido.esperarEventos(50).size());
+        lento.desbloquear();
+        assertEquals(50, lento.esperarEventos(50).size());
+    }
+
+    @Test
+    void elLatidoLlegaSinElSchedulerDeSpring() throws Exception {
+        ReflectionTestUtils.setField(service, "intervaloLatido", Duration.ofMillis(50));
+        service.iniciar();
+        service.suscribir(null, null, null);
+        EmisorDePrueba cliente = emisores.get(0);
+        cliente.esperarConexion();
+
+        assertTrue(cliente.latidos.await(5, TimeUnit.SECONDS));
+    }
+
+    private static TareaCambiadaEvent cambio() {
+        TaskResponseDTO tarea = new TaskResponseDTO();
+        tarea.setId(1L);
+        tarea.setEstado(EstadoTarea.values()[0]);
+        return TareaCambiadaEvent.actualizada("123", EstadoTarea.values()[0], tarea);
+    }
+
+    private static final class EmisorDePrueba extends SseEmitter {
+
+        private final List<Long> secuencias = new CopyOnWriteArrayList<>();
+        private final CountDownLatch conectado = new CountDownLatch(1);
+        private final CountDownLatch latidos = new CountDownLatch(2);
+        private volatile CountDownLatch bloqueo = new CountDownLatch(0);
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                bloqueo.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            StringBuilder texto = new StringBuilder();
+            for (DataWithMediaType parte : builder.build()) {
+                texto.append(parte.getData());
+            }
+            Matcher id = ID.matcher(texto);
+            if (id.find()) {
+                secuencias.add(Long.parseLong(id.group(1)));
+            } else if (texto.toString().contains("conectado")) {
+                conectado.countDown();
+            } else if (texto.toString().contains("latido")) {
+                latidos.countDown();
+            }
+        }
+
+        void esperarConexion() throws InterruptedException {
+            assertTrue(conectado.await(5, TimeUnit.SECONDS));
+        }
+
+        List<Long> esperarEventos(int cuantos) throws InterruptedException {
+            long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (secuencias.size() < cuantos && System.nanoTime() < limite) {
+                Thread.sleep(10);
+            }
+            return new ArrayList<>(secuencias);
+        }
+
+        void bloquear() {
+            bloqueo = new CountDownLatch(1);
+        }
+
+        void desbloquear() {
+            bloqueo.countDown();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.serviconli.task.service;
+
+import com.serviconli.task.dto.TaskStatsDTO;
+import com.serviconli.task.model.EstadoTarea;
+import com.serviconli.task.model.Prioridad;
+import com.serviconli.task.model.TipoCita;
+import com.serviconli.task.repository.TareaConteo;
+import com.serviconli.task.repository.TareaRepository;
+import com.serviconli.task.service.TareaStatsService.Foto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+/**
+ * Prueba los contadores de estadísticas con un repositorio simulado.
+ */
+class TareaStatsServiceTest {
+
+    private final TareaRepository repository = Mockito.mock(TareaRepository.class);
+    private TareaStatsService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new TareaStatsService(repository, Mockito.mock(PlatformTransactionManager.class));
+        when(repository.contarAgrupado()).thenReturn(List.of(conteo(EstadoTarea.PENDIENTE, 5)));
+        when(repository.contarCitasPorFecha(any())).thenReturn(List.of());
+        when(repository.contarRecordatoriosEntre(any(), any())).thenReturn(List.of());
+        when(repository.contarRecordatoriosPorDia(any())).thenReturn(List.of());
+        when(repository.contarRecordatoriosHasta(any())).thenReturn(2L);
+    }
+
+    @Test
+    void ajustaLosContadoresSembradosConCadaCambio() {
+        service.sembrar();
+        Foto hoy = foto(LocalDate.now(), LocalDateTime.now().minusMinutes(5));
+
+        service.registrarCambio(null, hoy);
+        service.registrarCambio(null, hoy);
+        service.registrarCambio(hoy, null);
+
+        TaskStatsDTO stats = service.obtenerEstadisticas();
+        assertEquals(6, stats.getTotal());
+        assertEquals(6, stats.getPorEstado().get(EstadoTarea.PENDIENTE));
+        assertEquals(1, stats.getCitasHoy());
+        assertEquals(3, stats.getRecordatoriosVencidos());
+    }
+
+    @Test
+    void unRecordatorioFuturoCuentaComoVencidoCuandoLlegaSuHora() throws InterruptedException {
+        service.sembrar();
+        service.registrarCambio(null, foto(null, LocalDateTime.now().plusNanos(50_000_000)));
+
+        assertEquals(2, service.obtenerEstadisticas().getRecordatoriosVencidos());
+        Thread.sleep(100);
+        assertEquals(3, service.obtenerEstadisticas().getRecordatoriosVencidos());
+    }
+
+    @Test
+    void noPierdeNiDuplicaLosCambiosQueLleganMientrasSeSiembra() {
+        service.sembrar();
+        Foto tarea = foto(null, null);
+        // Un alta que se confirma mientras corre la consulta de siembra, después de que esta ya contó las tareas
+        when(repository.contarAgrupado()).thenAnswer(invocacion -> {
+            service.registrarCambio(null, tarea);
+            return List.of(conteo(EstadoTarea.PENDIENTE, 5));
+        });
+
+        service.sembrar();
+        assertEquals(6, service.obtenerEstadisticas().getTotal());
+
+        // La siguiente resiembra ya la ve en la base de datos
+        when(repository.contarAgrupado()).thenReturn(List.of(conteo(EstadoTarea.PENDIENTE, 6)));
+        service.sembrar();
+        assertEquals(6, service.obtenerEstadisticas().getTotal());
+    }
+
+    private static Foto foto(LocalDate fechaCita, LocalDateTime fechaRecordatorio) {
+        return new Foto(EstadoTarea.PENDIENTE, Prioridad.MEDIA, TipoCita.ESPECIALISTA, fechaCita, fechaRecordatorio);
+    }
+
+    private static TareaConteo conteo(EstadoTarea estado, long total) {
+        return new TareaConteo() {
+            @Override
+            public EstadoTarea getEstado() {
+                return estado;
+            }
+
+            @Override
+            public Prioridad getPrioridad() {
+                return Prioridad.MEDIA;
+            }
+
+            @Override
+            public TipoCita getTipoCita() {
+                return TipoCita.ESPECIALISTA;
+            }
+
+            @Override
+            public long getTotal() {
+                return total;
+            }
+        };
+    }
+}